@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Repository;
+
+import fr.cnes.regards.framework.jpa.converters.OffsetDateTimeAttributeConverter;
+import fr.cnes.regards.framework.jpa.converters.PathAttributeConverter;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+
+/**
+ * JDBC batching implementation of {@link IAcquisitionFileBulkRepository}.<br/>
+ * Statements are run on the connection bound to the current JPA transaction so the current tenant is respected.
+ *
+ * @author REGARDS Team
+ */
+@Repository
+public class AcquisitionFileBulkRepository implements IAcquisitionFileBulkRepository {
+
+    /**
+     * Increment of the acquisition file sequence. Must be kept consistent with the database sequence and the
+     * {@link AcquisitionFile} JPA allocation size as each sequence value reserves a block of identifiers.
+     */
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    /**
+     * Number of rows sent to the database in one JDBC batch
+     */
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private static final String SELECT_SEQUENCE_BLOCKS = "SELECT nextval('%sseq_acq_file') FROM generate_series(1, ?)";
+
+    private static final String INSERT_FILE = "INSERT INTO %st_acquisition_file (id, acquisition_date, error, filePath, file_path_hash, state, acq_file_info_id, session_owner, session) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_FILE = "UPDATE %st_acquisition_file SET state = ?, error = ?, session_owner = ?, session = ?, checksum = ?, checksum_algorithm = ?, checksum_file_size = ?, checksum_file_lmd = ? WHERE id = ?";
+
+    private static final String SUPERSEDE_FILES = "UPDATE %st_acquisition_file SET state = CASE state WHEN 'ACQUIRED' THEN 'SUPERSEDED' ELSE 'SUPERSEDED_AFTER_ERROR' END WHERE product_id = ? AND acq_file_info_id = ? AND state IN ('ACQUIRED', 'ERROR')";
+
+    private static final String LINK_FILE = "UPDATE %st_acquisition_file SET product_id = ? WHERE id = ?";
+
+    private final OffsetDateTimeAttributeConverter dateConverter = new OffsetDateTimeAttributeConverter();
+
+    private final PathAttributeConverter pathConverter = new PathAttributeConverter();
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public int insertAll(List<AcquisitionFile> files) {
+        if (files.isEmpty()) {
+            return 0;
+        }
+        // Send pending JPA changes before working directly on the connection
+        em.flush();
+        Session session = em.unwrap(Session.class);
+        String schemaPrefix = getSchemaPrefix(session);
+        return session.doReturningWork(connection -> {
+            Iterator<Long> ids = reserveIds(connection, schemaPrefix, files.size()).iterator();
+            int count = 0;
+            try (PreparedStatement statement = connection.prepareStatement(String.format(INSERT_FILE, schemaPrefix))) {
+                for (AcquisitionFile file : files) {
+                    file.setId(ids.next());
+                    statement.setLong(1, file.getId());
+                    statement.setTimestamp(2, dateConverter.convertToDatabaseColumn(file.getAcqDate()));
+                    statement.setString(3, file.getError());
+                    statement.setString(4, pathConverter.convertToDatabaseColumn(file.getFilePath()));
+                    statement.setLong(5, file.getFilePathHash());
+                    statement.setString(6, file.getState().toString());
+                    statement.setLong(7, file.getFileInfo().getId());
+                    statement.setString(8, file.getSessionOwner());
+                    statement.setString(9, file.getSession());
+                    statement.addBatch();
+                    count++;
+                    if ((count % JDBC_BATCH_SIZE) == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if ((count % JDBC_BATCH_SIZE) != 0) {
+                    statement.executeBatch();
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int updateAll(Collection<AcquisitionFile> files) {
+        if (files.isEmpty()) {
+            return 0;
+        }
+        Session session = em.unwrap(Session.class);
+        String schemaPrefix = getSchemaPrefix(session);
+        int updated = session.doReturningWork(connection -> {
+            int count = 0;
+            try (PreparedStatement statement = connection.prepareStatement(String.format(UPDATE_FILE, schemaPrefix))) {
+                for (AcquisitionFile file : files) {
+                    statement.setString(1, file.getState().toString());
+                    statement.setString(2, file.getError());
+                    statement.setString(3, file.getSessionOwner());
+                    statement.setString(4, file.getSession());
+                    statement.setString(5, file.getChecksum());
+                    statement.setString(6, file.getChecksumAlgorithm());
+                    setLong(statement, 7, file.getChecksumFileSize());
+                    setLong(statement, 8, file.getChecksumFileLastModified());
+                    statement.setLong(9, file.getId());
+                    statement.addBatch();
+                    count++;
+                    if ((count % JDBC_BATCH_SIZE) == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if ((count % JDBC_BATCH_SIZE) != 0) {
+                    statement.executeBatch();
+                }
+            }
+            return count;
+        });
+        // Take a new snapshot of attached files so JPA does not detect written changes as dirty
+        for (AcquisitionFile file : files) {
+            if (session.contains(file)) {
+                session.setReadOnly(file, true);
+                session.setReadOnly(file, false);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public int supersedeAll(Map<Long, ? extends Collection<Long>> fileInfoIdsByProductId) {
+        if (fileInfoIdsByProductId.isEmpty()) {
+            return 0;
+        }
+        Session session = em.unwrap(Session.class);
+        String schemaPrefix = getSchemaPrefix(session);
+        return session.doReturningWork(connection -> {
+            int superseded = 0;
+            int count = 0;
+            try (PreparedStatement statement = connection
+                    .prepareStatement(String.format(SUPERSEDE_FILES, schemaPrefix))) {
+                for (Map.Entry<Long, ? extends Collection<Long>> entry : fileInfoIdsByProductId.entrySet()) {
+                    for (Long fileInfoId : entry.getValue()) {
+                        statement.setLong(1, entry.getKey());
+                        statement.setLong(2, fileInfoId);
+                        statement.addBatch();
+                        count++;
+                        if ((count % JDBC_BATCH_SIZE) == 0) {
+                            superseded += sum(statement.executeBatch());
+                        }
+                    }
+                }
+                if ((count % JDBC_BATCH_SIZE) != 0) {
+                    superseded += sum(statement.executeBatch());
+                }
+            }
+            return superseded;
+        });
+    }
+
+    @Override
+    public int linkAll(Map<Long, ? extends Collection<AcquisitionFile>> filesByProductId) {
+        if (filesByProductId.isEmpty()) {
+            return 0;
+        }
+        // Send pending JPA changes (i.e. new products) before working directly on the connection
+        em.flush();
+        Session session = em.unwrap(Session.class);
+        String schemaPrefix = getSchemaPrefix(session);
+        return session.doReturningWork(connection -> {
+            int count = 0;
+            try (PreparedStatement statement = connection.prepareStatement(String.format(LINK_FILE, schemaPrefix))) {
+                for (Map.Entry<Long, ? extends Collection<AcquisitionFile>> entry : filesByProductId.entrySet()) {
+                    for (AcquisitionFile file : entry.getValue()) {
+                        statement.setLong(1, entry.getKey());
+                        statement.setLong(2, file.getId());
+                        statement.addBatch();
+                        count++;
+                        if ((count % JDBC_BATCH_SIZE) == 0) {
+                            statement.executeBatch();
+                        }
+                    }
+                }
+                if ((count % JDBC_BATCH_SIZE) != 0) {
+                    statement.executeBatch();
+                }
+            }
+            return count;
+        });
+    }
+
+    private static int sum(int[] updateCounts) {
+        int sum = 0;
+        for (int updateCount : updateCounts) {
+            // Driver may not report the number of rows affected by each statement
+            if (updateCount > 0) {
+                sum += updateCount;
+            }
+        }
+        return sum;
+    }
+
+    private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value != null) {
+            statement.setLong(index, value);
+        } else {
+            statement.setNull(index, Types.BIGINT);
+        }
+    }
+
+    /**
+     * Reserve at least <code>count</code> identifiers from the acquisition file sequence.<br/>
+     * Each sequence value <code>v</code> reserves the identifier block <code>[v - increment + 1, v]</code> which is
+     * the interpretation used by hibernate pooled optimizer so both allocation ways never overlap.
+     */
+    private List<Long> reserveIds(Connection connection, String schemaPrefix, int count) throws SQLException {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int missingBlocks = ((count - ids.size()) + SEQUENCE_INCREMENT - 1) / SEQUENCE_INCREMENT;
+            try (PreparedStatement statement = connection
+                    .prepareStatement(String.format(SELECT_SEQUENCE_BLOCKS, schemaPrefix))) {
+                statement.setInt(1, missingBlocks);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next() && (ids.size() < count)) {
+                        long hi = rs.getLong(1);
+                        // First sequence value may be lower than increment, only keep positive identifiers
+                        for (long id = Math.max(1L, (hi - SEQUENCE_INCREMENT) + 1); (id <= hi)
+                                && (ids.size() < count); id++) {
+                            ids.add(id);
+                        }
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    static String getSchemaPrefix(Session session) {
+        Object schema = ((SessionFactoryImplementor) session.getSessionFactory()).getProperties()
+                .get(AvailableSettings.DEFAULT_SCHEMA);
+        return (schema != null) && !schema.toString().isEmpty() ? schema + "." : "";
+    }
+}
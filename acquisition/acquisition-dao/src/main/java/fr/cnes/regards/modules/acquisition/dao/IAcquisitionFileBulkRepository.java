@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+
+/**
+ * Bulk write access to {@link AcquisitionFile} table bypassing JPA entity lifecycle.<br/>
+ * Used by file registration when millions of files have to be inserted at first scan.
+ *
+ * @author REGARDS Team
+ */
+public interface IAcquisitionFileBulkRepository {
+
+    /**
+     * Insert all given {@link AcquisitionFile}s using JDBC batching in the current transaction.<br/>
+     * Identifiers are pre-allocated from the acquisition file sequence and set on each file before insertion.<br/>
+     * <b>Inserted files are not attached to the JPA persistence context.</b>
+     * @param files new {@link AcquisitionFile}s to insert (identifiers must be null)
+     * @return number of inserted files
+     */
+    int insertAll(List<AcquisitionFile> files);
+
+    /**
+     * Write state, error, session and checksum of all given persisted {@link AcquisitionFile}s using JDBC batching in
+     * the current transaction.<br/>
+     * Given files that are attached to the JPA persistence context are synchronized so they are not written again at
+     * flush. Product link is not written, see {@link #linkAll(Map)}.
+     * @param files {@link AcquisitionFile}s to update
+     * @return number of updated files
+     */
+    int updateAll(Collection<AcquisitionFile> files);
+
+    /**
+     * Mark all {@link AcquisitionFile}s of the given products and file infos in ACQUIRED or ERROR state as superseded
+     * using JDBC batching in the current transaction.<br/>
+     * <b>Files attached to the JPA persistence context are not synchronized.</b>
+     * @param fileInfoIdsByProductId file info identifiers to supersede by product identifier
+     * @return number of superseded files
+     */
+    int supersedeAll(Map<Long, ? extends Collection<Long>> fileInfoIdsByProductId);
+
+    /**
+     * Link all given persisted {@link AcquisitionFile}s to their product using JDBC batching in the current
+     * transaction.<br/>
+     * Pending JPA changes are flushed first so new products can be referenced. Product side file collections are not
+     * updated.
+     * @param filesByProductId {@link AcquisitionFile}s to link by product identifier
+     * @return number of linked files
+     */
+    int linkAll(Map<Long, ? extends Collection<AcquisitionFile>> filesByProductId);
+}
@@ -22,11 +22,13 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
@@ -55,6 +57,28 @@ public interface IAcquisitionFileRepository
 
     Optional<AcquisitionFile> findOneByFilePathIn(Path filePath);
 
+    /**
+     * Retrieve file paths already registered for the given {@link AcquisitionFileInfo} among the given path hashes.
+     * As hashes may collide, caller has to compare returned paths with the expected ones.
+     * @param fileInfo {@link AcquisitionFileInfo}
+     * @param filePathHashes hashes computed with {@link AcquisitionFile#computeFilePathHash(Path)}
+     * @return registered file paths matching one of the hashes
+     */
+    @Query("select f.filePath from AcquisitionFile f where f.fileInfo = ?1 and f.filePathHash in ?2")
+    Set<Path> findFilePathByFileInfoAndFilePathHashIn(AcquisitionFileInfo fileInfo,
+            Collection<Long> filePathHashes);
+
+    /**
+     * Count acquisition files of the given products in the given state by product and {@link AcquisitionFileInfo}
+     * @param productIds {@link Product} identifiers
+     * @param state {@link AcquisitionFileState}
+     * @return rows of product identifier, file info identifier, file info mandatory flag and number of files
+     */
+    @Query("select f.product.id, i.id, i.mandatory, count(f) from AcquisitionFile f join f.fileInfo i"
+            + " where f.product.id in ?1 and f.state = ?2 group by f.product.id, i.id, i.mandatory")
+    List<Object[]> countByProductIdInAndStateGroupByFileInfo(Collection<Long> productIds,
+            AcquisitionFileState state);
+
     /**
      * Search all acquisition files for the given {@link AcquisitionFileState}
      * @param state {@link AcquisitionFileState}
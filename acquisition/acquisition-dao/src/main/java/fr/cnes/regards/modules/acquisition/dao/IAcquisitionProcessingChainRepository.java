@@ -54,6 +54,9 @@ public interface IAcquisitionProcessingChainRepository
     @EntityGraph("graph.acquisition.file.info.complete")
     AcquisitionProcessingChain findCompleteById(Long id);
 
+    @Query("select fileInfo.id from AcquisitionProcessingChain chain join chain.fileInfos fileInfo where chain.id = ?1")
+    List<Long> findFileInfoIdsById(Long chainId);
+
     /**
      * Find all active and not running processing chain for a specified mode
      * @param mode chain processing mode
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import fr.cnes.regards.modules.acquisition.domain.ChecksumCacheEntry;
+
+/**
+ * {@link ChecksumCacheEntry} repository
+ *
+ * @author REGARDS Team
+ */
+@Repository
+public interface IChecksumCacheRepository extends JpaRepository<ChecksumCacheEntry, Long> {
+
+    /**
+     * Entries may have the same path hash for different paths, caller has to check the path
+     */
+    List<ChecksumCacheEntry> findByFilePathHashAndAlgorithm(Long filePathHash, String algorithm);
+
+    /**
+     * Insert the checksum of a file or replace the existing one for the same path and algorithm in one statement so
+     * concurrent computations of the same checksum never conflict.
+     * @return number of written entries
+     */
+    @Modifying
+    @Query(value = "insert into {h-schema}t_acq_checksum_cache"
+            + " (file_path, file_path_hash, algorithm, file_size, file_lmd, checksum, last_access)"
+            + " values (?1, ?2, ?3, ?4, ?5, ?6, ?7) on conflict (file_path_hash, algorithm, file_path) do update"
+            + " set file_size = excluded.file_size, file_lmd = excluded.file_lmd, checksum = excluded.checksum,"
+            + " last_access = excluded.last_access", nativeQuery = true)
+    int upsert(String filePath, long filePathHash, String algorithm, long fileSize, long fileLastModified,
+            String checksum, long lastAccess);
+
+    @Modifying
+    @Query("update ChecksumCacheEntry e set e.lastAccess = ?2 where e.id in ?1")
+    int updateLastAccess(Collection<Long> ids, long lastAccess);
+
+    @Modifying
+    @Query("delete from ChecksumCacheEntry e where e.lastAccess < ?1")
+    int deleteByLastAccessBefore(long lastAccess);
+}
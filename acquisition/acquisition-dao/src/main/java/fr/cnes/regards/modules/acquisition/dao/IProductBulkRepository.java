@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.dao;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
+
+/**
+ * Bulk write access to {@link Product} table bypassing JPA entity lifecycle.<br/>
+ * Used to update products handled through their {@link ProductSummary} without loading files, jobs and SIP, and to
+ * write SIP generation results without merging each product.
+ *
+ * @author REGARDS Team
+ */
+public interface IProductBulkRepository {
+
+    /**
+     * Write state, SIP state and session of all given persisted products using JDBC batching in the current
+     * transaction. Product error is only written if a new one is set.<br/>
+     * <b>Products attached to the JPA persistence context are not synchronized.</b>
+     * @param products {@link ProductSummary}s of the products to update
+     * @param lastUpdate last update date to set
+     * @return number of updated products
+     */
+    int updateAll(Collection<ProductSummary> products, OffsetDateTime lastUpdate);
+
+    /**
+     * Write SIP, SIP state and error of all given persisted products using JDBC batching in the current transaction.
+     * <br/>
+     * <b>Products attached to the JPA persistence context are not synchronized.</b>
+     * @param products {@link Product}s to update
+     * @param lastUpdate last update date to set
+     * @return number of updated products
+     */
+    int updateSips(Collection<Product> products, OffsetDateTime lastUpdate);
+}
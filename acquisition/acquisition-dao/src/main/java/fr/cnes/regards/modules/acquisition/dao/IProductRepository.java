@@ -43,6 +43,7 @@ import fr.cnes.regards.framework.modules.jobs.domain.JobInfo;
 import fr.cnes.regards.modules.acquisition.domain.Product;
 import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
 import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
 import fr.cnes.regards.modules.ingest.domain.sip.ISipState;
 
@@ -64,6 +65,24 @@ public interface IProductRepository extends JpaRepository<Product, Long>, JpaSpe
     @EntityGraph("graph.product.complete")
     Set<Product> findByProductNameIn(Collection<String> productNames);
 
+    /**
+     * Find products by name with their processing chain and jobs but without their files
+     * @param productNames product names
+     * @return matching {@link Product}s
+     */
+    @Query("select p from Product p join fetch p.processingChain left join fetch p.lastSIPGenerationJobInfo"
+            + " left join fetch p.lastPostProductionJobInfo where p.productName in ?1")
+    Set<Product> findWithJobsByProductNameIn(Collection<String> productNames);
+
+    /**
+     * Find summaries of products by name without loading files, jobs and SIP
+     * @param productNames product names
+     * @return matching {@link ProductSummary}s
+     */
+    @Query("select new fr.cnes.regards.modules.acquisition.domain.ProductSummary(p.id, p.productName, p.state,"
+            + " p.sipState, p.session, c.label) from Product p join p.processingChain c where p.productName in ?1")
+    List<ProductSummary> findSummariesByProductNameIn(Collection<String> productNames);
+
     Page<Product> findByProcessingChainOrderByIdAsc(AcquisitionProcessingChain processingChain, Pageable pageable);
 
     Page<Product> findByProcessingChainAndSession(AcquisitionProcessingChain processingChain, String session,
@@ -129,9 +148,26 @@ public interface IProductRepository extends JpaRepository<Product, Long>, JpaSpe
      */
     Page<Product> findBySipStateOrderByIdAsc(ISipState sipState, Pageable pageable);
 
-    @Lock(LockModeType.PESSIMISTIC_READ)
-    Page<Product> findByProcessingChainAndStateOrderByIdAsc(AcquisitionProcessingChain processingChain,
-            ProductState state, Pageable pageable);
+    /**
+     * Compute completeness of a page of products in the given state with one aggregate request.<br/>
+     * Products of the page are locked with a pessimistic read lock.
+     * @param processingChainId {@link AcquisitionProcessingChain} identifier
+     * @param state {@link ProductState} name
+     * @param limit page size
+     * @return rows of product identifier, name, state, SIP state, session, number of mandatory and number of optional
+     *         acquired files ordered by product identifier
+     */
+    @Query(value = "select p.id, p.product_name, p.product_state, p.sip_state, p.session,"
+            + " coalesce(sum(case when i.mandatory then 1 else 0 end), 0),"
+            + " coalesce(sum(case when not i.mandatory then 1 else 0 end), 0)"
+            + " from {h-schema}t_acquisition_product p"
+            + " left join {h-schema}t_acquisition_file f on f.product_id = p.id and f.state = 'ACQUIRED'"
+            + " left join {h-schema}t_acq_file_info i on i.id = f.acq_file_info_id"
+            + " where p.id in (select l.id from {h-schema}t_acquisition_product l where l.processing_chain_id = ?1"
+            + " and l.product_state = ?2 order by l.id limit ?3 for share)"
+            + " group by p.id order by p.id", nativeQuery = true)
+    List<Object[]> computeCompletenessWithLockByProcessingChainAndState(Long processingChainId, String state,
+            int limit);
 
     /**
      * Count number of products associated to the given {@link AcquisitionProcessingChain} and in the given state
@@ -167,6 +203,9 @@ public interface IProductRepository extends JpaRepository<Product, Long>, JpaSpe
     Set<JobInfo> findDistinctLastSIPGenerationJobInfoByProcessingChainAndSipStateIn(
             AcquisitionProcessingChain processingChain, ISipState productSipState);
 
+    @Query(value = "select distinct p.lastSIPGenerationJobInfo from Product p where p.id in ?1")
+    Set<JobInfo> findDistinctLastSIPGenerationJobInfoByIdIn(Collection<Long> ids);
+
     /**
      * Count number of {@link Product} associated to the given {@link AcquisitionProcessingChain}
      * @param chain {@link AcquisitionProcessingChain}
@@ -182,6 +221,10 @@ public interface IProductRepository extends JpaRepository<Product, Long>, JpaSpe
     @Query(value = "UPDATE Product p set p.sipState = ?1 where p.productName in (?2)")
     void updateSipStatesByProductNameIn(ISipState state, Collection<String> productNames);
 
+    @Modifying
+    @Query(value = "UPDATE Product p set p.sipState = ?1, p.lastSIPGenerationJobInfo = ?2 where p.id in ?3")
+    void updateSipStateAndLastSIPGenerationJobInfoByIdIn(ISipState state, JobInfo jobInfo, Collection<Long> ids);
+
     /**
      * Load a page of product (i.e. with all dependencies).
      */
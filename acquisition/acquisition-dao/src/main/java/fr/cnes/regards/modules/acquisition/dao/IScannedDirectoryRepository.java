@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.dao;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import fr.cnes.regards.modules.acquisition.domain.chain.ScannedDirectory;
+
+/**
+ * {@link ScannedDirectory} repository
+ *
+ * @author REGARDS Team
+ */
+@Repository
+public interface IScannedDirectoryRepository extends JpaRepository<ScannedDirectory, Long> {
+
+    List<ScannedDirectory> findByFileInfoId(Long fileInfoId);
+
+    @Modifying
+    @Query("delete from ScannedDirectory dir where dir.fileInfoId = ?1")
+    int deleteByFileInfoId(Long fileInfoId);
+}
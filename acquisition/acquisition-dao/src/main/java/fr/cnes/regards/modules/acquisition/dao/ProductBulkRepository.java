@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.Type;
+import org.springframework.stereotype.Repository;
+
+import fr.cnes.regards.framework.jpa.converters.OffsetDateTimeAttributeConverter;
+import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
+import fr.cnes.regards.modules.acquisition.domain.converters.SipStateConverter;
+
+/**
+ * JDBC batching implementation of {@link IProductBulkRepository}.<br/>
+ * Statements are run on the connection bound to the current JPA transaction so the current tenant is respected.
+ *
+ * @author REGARDS Team
+ */
+@Repository
+public class ProductBulkRepository implements IProductBulkRepository {
+
+    /**
+     * Number of rows sent to the database in one JDBC batch
+     */
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private static final String UPDATE_PRODUCT = "UPDATE %st_acquisition_product SET product_state = ?, sip_state = ?, session = ?, error = COALESCE(?, error), last_update = ? WHERE id = ?";
+
+    private static final String UPDATE_SIP = "UPDATE %st_acquisition_product SET sip_state = ?, json_sip = ?, error = ?, last_update = ? WHERE id = ?";
+
+    private final OffsetDateTimeAttributeConverter dateConverter = new OffsetDateTimeAttributeConverter();
+
+    private final SipStateConverter sipStateConverter = new SipStateConverter();
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public int updateAll(Collection<ProductSummary> products, OffsetDateTime lastUpdate) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+        Session session = em.unwrap(Session.class);
+        String schemaPrefix = AcquisitionFileBulkRepository.getSchemaPrefix(session);
+        Timestamp lastUpdateTimestamp = dateConverter.convertToDatabaseColumn(lastUpdate);
+        return session.doReturningWork(connection -> {
+            int count = 0;
+            try (PreparedStatement statement = connection
+                    .prepareStatement(String.format(UPDATE_PRODUCT, schemaPrefix))) {
+                for (ProductSummary product : products) {
+                    statement.setString(1, product.getState().toString());
+                    statement.setString(2, sipStateConverter.convertToDatabaseColumn(product.getSipState()));
+                    statement.setString(3, product.getSession());
+                    statement.setString(4, product.getError());
+                    statement.setTimestamp(5, lastUpdateTimestamp);
+                    statement.setLong(6, product.getId());
+                    statement.addBatch();
+                    count++;
+                    if ((count % JDBC_BATCH_SIZE) == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if ((count % JDBC_BATCH_SIZE) != 0) {
+                    statement.executeBatch();
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int updateSips(Collection<Product> products, OffsetDateTime lastUpdate) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+        Session session = em.unwrap(Session.class);
+        String schemaPrefix = AcquisitionFileBulkRepository.getSchemaPrefix(session);
+        // Use the mapped type of the SIP so it is written the same way as by JPA
+        Type sipType = ((SessionFactoryImplementor) session.getSessionFactory()).getMetamodel()
+                .entityPersister(Product.class).getPropertyType("sip");
+        SharedSessionContractImplementor sessionImplementor = (SharedSessionContractImplementor) session;
+        Timestamp lastUpdateTimestamp = dateConverter.convertToDatabaseColumn(lastUpdate);
+        return session.doReturningWork(connection -> {
+            int count = 0;
+            try (PreparedStatement statement = connection.prepareStatement(String.format(UPDATE_SIP, schemaPrefix))) {
+                for (Product product : products) {
+                    statement.setString(1, sipStateConverter.convertToDatabaseColumn(product.getSipState()));
+                    sipType.nullSafeSet(statement, product.getSip(), 2, sessionImplementor);
+                    statement.setString(3, product.getError());
+                    statement.setTimestamp(4, lastUpdateTimestamp);
+                    statement.setLong(5, product.getId());
+                    statement.addBatch();
+                    count++;
+                    if ((count % JDBC_BATCH_SIZE) == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if ((count % JDBC_BATCH_SIZE) != 0) {
+                    statement.executeBatch();
+                }
+            }
+            return count;
+        });
+    }
+}
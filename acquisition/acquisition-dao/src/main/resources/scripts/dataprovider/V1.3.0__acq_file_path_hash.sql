@@ -0,0 +1,4 @@
+-- Hashed file path used to detect already registered files by batch
+alter table t_acquisition_file ADD file_path_hash int8;
+update t_acquisition_file set file_path_hash = ('x' || substr(md5(filePath), 1, 16))::bit(64)::bigint where filePath is not null;
+create index IF NOT EXISTS idx_acq_file_path_hash on t_acquisition_file (acq_file_info_id, file_path_hash);
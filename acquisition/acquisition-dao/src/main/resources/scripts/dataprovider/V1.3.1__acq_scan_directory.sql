@@ -0,0 +1,5 @@
+-- Directories seen by the last successful scan of each file info
+create table t_acq_scan_directory (id int8 not null, acq_file_info_id int8 not null, dir_path varchar(2048) not null, last_modified int8, primary key (id));
+create index idx_acq_scan_dir_file_info on t_acq_scan_directory (acq_file_info_id);
+create sequence seq_acq_scan_dir start 1 increment 50;
+alter table t_acq_scan_directory add constraint fk_acq_scan_dir_file_info_id foreign key (acq_file_info_id) references t_acq_file_info on delete cascade;
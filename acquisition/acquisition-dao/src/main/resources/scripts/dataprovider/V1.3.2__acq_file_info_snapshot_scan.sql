@@ -0,0 +1,2 @@
+-- Scan mode comparing each listing with the previous one
+alter table t_acq_file_info add column snapshot_scan boolean default false not null;
@@ -0,0 +1,5 @@
+-- Checksum computed at validation time with the file size and last modification date it was computed against
+alter table t_acquisition_file add column checksum varchar(128);
+alter table t_acquisition_file add column checksum_algorithm varchar(16);
+alter table t_acquisition_file add column checksum_file_size int8;
+alter table t_acquisition_file add column checksum_file_lmd int8;
@@ -0,0 +1,7 @@
+-- Checksums computed on file contents, reused while file size and last modification date do not change
+-- One checksum per file path and algorithm so concurrent computations update the same entry
+create sequence seq_acq_checksum_cache start 1 increment 50;
+create table t_acq_checksum_cache (id int8 default nextval('seq_acq_checksum_cache') not null, file_path varchar(2048) not null, file_path_hash int8 not null, algorithm varchar(16) not null, file_size int8 not null, file_lmd int8 not null, checksum varchar(128) not null, last_access int8 not null, primary key (id));
+alter table t_acq_checksum_cache add constraint uk_acq_checksum_cache_path unique (file_path_hash, algorithm, file_path);
+-- Last access in milliseconds, checksums not accessed for a while are evicted
+create index idx_acq_checksum_cache_access on t_acq_checksum_cache (last_access);
@@ -0,0 +1,2 @@
+-- Checksum algorithm used to describe the files of the generated SIPs
+alter table t_acq_processing_chain add column checksum_algorithm varchar(16) default 'MD5' not null;
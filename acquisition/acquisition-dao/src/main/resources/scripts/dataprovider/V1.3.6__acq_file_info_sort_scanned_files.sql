@@ -0,0 +1,2 @@
+-- Optional registration of scanned files from the oldest to the most recent
+alter table t_acq_file_info add column sort_scanned_files boolean default false not null;
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.dao;
+
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+
+import com.google.common.collect.Sets;
+
+import fr.cnes.regards.framework.jpa.multitenant.test.AbstractDaoTest;
+import fr.cnes.regards.framework.jpa.multitenant.transactional.MultitenantTransactional;
+import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.framework.modules.plugins.dao.IPluginConfigurationRepository;
+import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
+import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.framework.urn.DataType;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
+import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
+import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChainMode;
+import fr.cnes.regards.modules.acquisition.domain.chain.StorageMetadataProvider;
+
+/**
+ * Test {@link IProductRepository#computeCompletenessWithLockByProcessingChainAndState(Long, String, int)} : number of
+ * mandatory and optional acquired files of each product and page of products locked.
+ *
+ * @author REGARDS Team
+ */
+@TestPropertySource(properties = { "spring.jpa.properties.hibernate.default_schema=acq_product_completeness" })
+@MultitenantTransactional
+public class ProductCompletenessRepositoryTest extends AbstractDaoTest {
+
+    @Autowired
+    private IRuntimeTenantResolver runtimeTenantResolver;
+
+    @Autowired
+    private IPluginConfigurationRepository pluginConfRepository;
+
+    @Autowired
+    private IAcquisitionFileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private IAcquisitionProcessingChainRepository processingChainRepository;
+
+    @Autowired
+    private IProductRepository productRepository;
+
+    @Autowired
+    private IAcquisitionFileRepository acqFileRepository;
+
+    private AcquisitionProcessingChain chain;
+
+    private AcquisitionFileInfo mandatoryA;
+
+    private AcquisitionFileInfo mandatoryB;
+
+    private AcquisitionFileInfo optional;
+
+    @Before
+    public void before() {
+        runtimeTenantResolver.forceTenant(getDefaultTenant());
+        chain = createChain("Completeness chain");
+        mandatoryA = getFileInfo(chain, "A");
+        mandatoryB = getFileInfo(chain, "B");
+        optional = getFileInfo(chain, "C");
+    }
+
+    @Test
+    public void countAcquiredFiles() {
+        // Product without file
+        Product empty = createProduct(chain, "empty", ProductState.UPDATED);
+        // Product with all its files, previous versions and files in error must not be counted
+        Product finished = createProduct(chain, "finished", ProductState.UPDATED);
+        createFile(finished, mandatoryA, AcquisitionFileState.ACQUIRED);
+        createFile(finished, mandatoryA, AcquisitionFileState.SUPERSEDED);
+        createFile(finished, mandatoryB, AcquisitionFileState.ACQUIRED);
+        createFile(finished, optional, AcquisitionFileState.ACQUIRED);
+        createFile(finished, optional, AcquisitionFileState.ERROR);
+        // Product with too many files
+        Product invalid = createProduct(chain, "invalid", ProductState.UPDATED);
+        createFile(invalid, mandatoryA, AcquisitionFileState.ACQUIRED);
+        createFile(invalid, mandatoryA, AcquisitionFileState.ACQUIRED);
+        createFile(invalid, optional, AcquisitionFileState.ACQUIRED);
+        createFile(invalid, optional, AcquisitionFileState.ACQUIRED);
+        // Product in another state
+        Product completed = createProduct(chain, "completed", ProductState.COMPLETED);
+        createFile(completed, mandatoryA, AcquisitionFileState.ACQUIRED);
+
+        List<Object[]> rows = productRepository
+                .computeCompletenessWithLockByProcessingChainAndState(chain.getId(), ProductState.UPDATED.toString(),
+                                                                      10);
+        Assert.assertEquals(3, rows.size());
+        assertRow(rows.get(0), empty, 0, 0);
+        assertRow(rows.get(1), finished, 2, 1);
+        assertRow(rows.get(2), invalid, 2, 2);
+    }
+
+    @Test
+    public void lockPageOfChainProducts() {
+        AcquisitionProcessingChain otherChain = createChain("Other completeness chain");
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Product product = createProduct(chain, "product" + i, ProductState.UPDATED);
+            // Files of a product must not increase the number of products of the page
+            createFile(product, mandatoryA, AcquisitionFileState.ACQUIRED);
+            createFile(product, optional, AcquisitionFileState.ACQUIRED);
+            productIds.add(product.getId());
+            createProduct(otherChain, "other" + i, ProductState.UPDATED);
+        }
+
+        // Page is limited to the first products of the chain in the given state by identifier
+        Assert.assertEquals(productIds.subList(0, 3), getIds(productRepository
+                .computeCompletenessWithLockByProcessingChainAndState(chain.getId(), ProductState.UPDATED.toString(),
+                                                                      3)));
+        // Asking one more product than the whole chain products only returns them : there is no next page
+        Assert.assertEquals(productIds, getIds(productRepository
+                .computeCompletenessWithLockByProcessingChainAndState(chain.getId(), ProductState.UPDATED.toString(),
+                                                                      6)));
+        Assert.assertTrue(productRepository
+                .computeCompletenessWithLockByProcessingChainAndState(chain.getId(), ProductState.ACQUIRING.toString(),
+                                                                      3)
+                .isEmpty());
+    }
+
+    private static List<Long> getIds(List<Object[]> rows) {
+        return rows.stream().map(row -> ((Number) row[0]).longValue()).collect(Collectors.toList());
+    }
+
+    private static void assertRow(Object[] row, Product product, long nbMandatory, long nbOptional) {
+        Assert.assertEquals(product.getId().longValue(), ((Number) row[0]).longValue());
+        Assert.assertEquals(product.getProductName(), row[1]);
+        Assert.assertEquals(product.getState().toString(), row[2]);
+        Assert.assertEquals(product.getSipState().toString(), row[3]);
+        Assert.assertEquals(product.getSession(), row[4]);
+        Assert.assertEquals(nbMandatory, ((Number) row[5]).longValue());
+        Assert.assertEquals(nbOptional, ((Number) row[6]).longValue());
+    }
+
+    private Product createProduct(AcquisitionProcessingChain processingChain, String productName,
+            ProductState state) {
+        Product product = new Product();
+        product.setProductName(productName);
+        product.setProcessingChain(processingChain);
+        product.setSession("session");
+        product.setState(state);
+        product.setSipState(ProductSIPState.NOT_SCHEDULED);
+        product.setLastUpdate(OffsetDateTime.now());
+        return productRepository.save(product);
+    }
+
+    private void createFile(Product product, AcquisitionFileInfo fileInfo, AcquisitionFileState state) {
+        AcquisitionFile file = new AcquisitionFile();
+        file.setAcqDate(OffsetDateTime.now());
+        file.setFileInfo(fileInfo);
+        file.setFilePath(Paths.get("/data", fileInfo.getComment(), product.getProductName() + "_" + state));
+        file.setState(state);
+        file.setSession(product.getSession());
+        file.setSessionOwner(product.getProcessingChain().getLabel());
+        file.setProduct(product);
+        acqFileRepository.save(file);
+    }
+
+    private AcquisitionFileInfo getFileInfo(AcquisitionProcessingChain processingChain, String comment) {
+        return processingChain.getFileInfos().stream().filter(fi -> comment.equals(fi.getComment())).findFirst()
+                .get();
+    }
+
+    private AcquisitionProcessingChain createChain(String label) {
+        AcquisitionProcessingChain processingChain = new AcquisitionProcessingChain();
+        processingChain.setLabel(label);
+        processingChain.setActive(Boolean.TRUE);
+        processingChain.setMode(AcquisitionProcessingChainMode.MANUAL);
+        processingChain.setIngestChain("DefaultIngestChain");
+        processingChain.setPeriodicity("0 * * * * *");
+        processingChain.setCategories(Sets.newLinkedHashSet());
+        processingChain.setStorages(Collections
+                .singletonList(StorageMetadataProvider.build("AWS", "/path/to/file", new HashSet<>())));
+
+        for (String comment : new String[] { "A", "B", "C" }) {
+            AcquisitionFileInfo fileInfo = new AcquisitionFileInfo();
+            fileInfo.setMandatory(!"C".equals(comment));
+            fileInfo.setComment(comment);
+            fileInfo.setMimeType(MediaType.APPLICATION_OCTET_STREAM);
+            fileInfo.setDataType(DataType.RAWDATA);
+            fileInfo.setScanPlugin(createPluginConf(label + " scan plugin " + comment));
+            processingChain.addFileInfo(fileInfoRepository.save(fileInfo));
+        }
+        processingChain.setValidationPluginConf(createPluginConf(label + " validation plugin"));
+        processingChain.setProductPluginConf(createPluginConf(label + " product plugin"));
+        processingChain.setGenerateSipPluginConf(createPluginConf(label + " SIP generation plugin"));
+        return processingChainRepository.save(processingChain);
+    }
+
+    private PluginConfiguration createPluginConf(String label) {
+        PluginConfiguration conf = PluginConfiguration.build(CompletenessTestPlugin.class, label,
+                                                             new HashSet<IPluginParam>());
+        conf.setIsActive(true);
+        return pluginConfRepository.save(conf);
+    }
+
+    /**
+     * Plugin only used to reference plugin configurations from the chains
+     */
+    @Plugin(id = "CompletenessTestPlugin", version = "1.0.0-SNAPSHOT", description = "Completeness test plugin",
+            author = "REGARDS Team", contact = "regards@c-s.fr", license = "GPLv3", owner = "CSSI",
+            url = "https://github.com/RegardsOss")
+    public static class CompletenessTestPlugin {
+    }
+}
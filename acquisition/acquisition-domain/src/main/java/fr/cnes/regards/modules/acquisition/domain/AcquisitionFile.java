@@ -18,7 +18,12 @@
  */
 package fr.cnes.regards.modules.acquisition.domain;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
 
 import javax.persistence.CascadeType;
@@ -36,6 +41,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
 import org.hibernate.annotations.Type;
@@ -58,7 +64,8 @@ import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
         indexes = { @Index(name = "idx_acq_file_state", columnList = "state"),
                 @Index(name = "idx_acq_file_state_file_info", columnList = "state, acq_file_info_id"),
                 @Index(name = "idx_acq_file_info", columnList = "acq_file_info_id"),
-                @Index(name = "idx_acq_file_product_id", columnList = "product_id") })
+                @Index(name = "idx_acq_file_product_id", columnList = "product_id"),
+                @Index(name = "idx_acq_file_path_hash", columnList = "acq_file_info_id, file_path_hash") })
 public class AcquisitionFile {
 
     @Id
@@ -70,6 +77,12 @@ public class AcquisitionFile {
     @Convert(converter = PathAttributeConverter.class)
     private Path filePath;
 
+    /**
+     * Hash of the file path used to detect already registered files by batch. See {@link #computeFilePathHash(Path)}
+     */
+    @Column(name = "file_path_hash")
+    private Long filePathHash;
+
     /**
      * The data file's status
      */
@@ -110,6 +123,27 @@ public class AcquisitionFile {
     @Convert(converter = OffsetDateTimeAttributeConverter.class)
     private OffsetDateTime acqDate;
 
+    /**
+     * Checksum computed while validating the file
+     */
+    @Column(name = "checksum", length = 128)
+    private String checksum;
+
+    @Column(name = "checksum_algorithm", length = 16)
+    private String checksumAlgorithm;
+
+    /**
+     * File size when checksum was computed
+     */
+    @Column(name = "checksum_file_size")
+    private Long checksumFileSize;
+
+    /**
+     * File last modification time in milliseconds when checksum was computed
+     */
+    @Column(name = "checksum_file_lmd")
+    private Long checksumFileLastModified;
+
     @GsonIgnore
     @NotNull(message = "Acquisition file information is required")
     @ManyToOne
@@ -148,6 +182,22 @@ public class AcquisitionFile {
         this.sessionOwner = sessionOwner;
     }
 
+    public String getSession() {
+        return session;
+    }
+
+    public void setSession(String session) {
+        this.session = session;
+    }
+
+    public OffsetDateTime getAcqDate() {
+        return acqDate;
+    }
+
+    public void setAcqDate(OffsetDateTime acqDate) {
+        this.acqDate = acqDate;
+    }
+
     public AcquisitionFileInfo getFileInfo() {
         return fileInfo;
     }
@@ -170,6 +220,76 @@ public class AcquisitionFile {
 
     public void setFilePath(Path filePath) {
         this.filePath = filePath;
+        this.filePathHash = computeFilePathHash(filePath);
+    }
+
+    public Long getFilePathHash() {
+        return filePathHash;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public String getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    public Long getChecksumFileSize() {
+        return checksumFileSize;
+    }
+
+    public Long getChecksumFileLastModified() {
+        return checksumFileLastModified;
+    }
+
+    /**
+     * Keep a checksum computed on the file content
+     * @param checksumAlgorithm checksum algorithm
+     * @param checksum hexadecimal checksum
+     * @param fileSize file size when checksum was computed
+     * @param fileLastModified file last modification time in milliseconds when checksum was computed
+     */
+    public void setChecksum(String checksumAlgorithm, String checksum, Long fileSize, Long fileLastModified) {
+        this.checksumAlgorithm = checksumAlgorithm;
+        this.checksum = checksum;
+        this.checksumFileSize = fileSize;
+        this.checksumFileLastModified = fileLastModified;
+    }
+
+    /**
+     * @param algorithm expected checksum algorithm
+     * @param attributes current file attributes
+     * @return stored checksum if computed with the given algorithm and file size and last modification time have not
+     *         changed since, null otherwise
+     */
+    public String getChecksumIfUnchanged(String algorithm, BasicFileAttributes attributes) {
+        if ((checksum != null) && algorithm.equals(checksumAlgorithm) && (checksumFileSize != null)
+                && (checksumFileSize == attributes.size()) && (checksumFileLastModified != null)
+                && (checksumFileLastModified == attributes.lastModifiedTime().toMillis())) {
+            return checksum;
+        }
+        return null;
+    }
+
+    /**
+     * Compute file path hash as the first 8 bytes of the MD5 digest of the path string.<br/>
+     * Same value is computed in database with <code>('x' || substr(md5(filepath), 1, 16))::bit(64)::bigint</code>.
+     * @param filePath file path
+     * @return hash or null if path is null
+     */
+    public static Long computeFilePathHash(Path filePath) {
+        if (filePath == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(filePath.toString()
+                    .getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            // MD5 is always available on Java platform
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
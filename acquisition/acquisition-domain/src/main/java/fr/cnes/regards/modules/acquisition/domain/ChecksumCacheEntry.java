@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.domain;
+
+import java.nio.file.Path;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+
+import fr.cnes.regards.framework.jpa.converters.PathAttributeConverter;
+
+/**
+ * Checksum of a file content with the file size and last modification time it was computed against. The checksum is
+ * reused as long as they do not change.
+ *
+ * @author REGARDS Team
+ */
+@Entity
+@Table(name = "t_acq_checksum_cache",
+        indexes = { @Index(name = "idx_acq_checksum_cache_access", columnList = "last_access") },
+        uniqueConstraints = { @UniqueConstraint(name = "uk_acq_checksum_cache_path",
+                columnNames = { "file_path_hash", "algorithm", "file_path" }) })
+public class ChecksumCacheEntry {
+
+    @Id
+    @SequenceGenerator(name = "AcqChecksumCacheSequence", initialValue = 1, sequenceName = "seq_acq_checksum_cache")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "AcqChecksumCacheSequence")
+    private Long id;
+
+    @NotNull
+    @Column(name = "file_path", length = 2048, nullable = false)
+    @Convert(converter = PathAttributeConverter.class)
+    private Path filePath;
+
+    /**
+     * See {@link AcquisitionFile#computeFilePathHash(Path)}
+     */
+    @NotNull
+    @Column(name = "file_path_hash", nullable = false)
+    private Long filePathHash;
+
+    @NotNull
+    @Column(name = "algorithm", length = 16, nullable = false)
+    private String algorithm;
+
+    @NotNull
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    /**
+     * File last modification time in milliseconds
+     */
+    @NotNull
+    @Column(name = "file_lmd", nullable = false)
+    private Long fileLastModified;
+
+    @NotNull
+    @Column(name = "checksum", length = 128, nullable = false)
+    private String checksum;
+
+    /**
+     * Last access time in milliseconds
+     */
+    @NotNull
+    @Column(name = "last_access", nullable = false)
+    private Long lastAccess;
+
+    public static ChecksumCacheEntry build(Path filePath, String algorithm, long fileSize, long fileLastModified,
+            String checksum) {
+        ChecksumCacheEntry entry = new ChecksumCacheEntry();
+        entry.filePath = filePath;
+        entry.filePathHash = AcquisitionFile.computeFilePathHash(filePath);
+        entry.algorithm = algorithm;
+        entry.fileSize = fileSize;
+        entry.fileLastModified = fileLastModified;
+        entry.checksum = checksum;
+        entry.lastAccess = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * @return true if checksum has been computed against the given file size and last modification time
+     */
+    public boolean matches(long fileSize, long fileLastModified) {
+        return (this.fileSize == fileSize) && (this.fileLastModified == fileLastModified);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    public Long getFilePathHash() {
+        return filePathHash;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public Long getFileLastModified() {
+        return fileLastModified;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public Long getLastAccess() {
+        return lastAccess;
+    }
+}
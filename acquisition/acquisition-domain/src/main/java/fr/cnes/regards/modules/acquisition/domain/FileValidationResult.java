@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.domain;
+
+import java.nio.file.Path;
+
+/**
+ * Validation result of one file with the reason of its rejection. Validation plugins reading file content may also
+ * give the checksum they computed so later stages do not read the file again.
+ *
+ * @author REGARDS Team
+ */
+public final class FileValidationResult {
+
+    private final Path path;
+
+    private final boolean valid;
+
+    private final String reason;
+
+    private final String checksumAlgorithm;
+
+    private final String checksum;
+
+    private final Long fileSize;
+
+    private final Long fileLastModified;
+
+    private FileValidationResult(Path path, boolean valid, String reason, String checksumAlgorithm, String checksum,
+            Long fileSize, Long fileLastModified) {
+        this.path = path;
+        this.valid = valid;
+        this.reason = reason;
+        this.checksumAlgorithm = checksumAlgorithm;
+        this.checksum = checksum;
+        this.fileSize = fileSize;
+        this.fileLastModified = fileLastModified;
+    }
+
+    /**
+     * @param path valid file
+     * @return {@link FileValidationResult}
+     */
+    public static FileValidationResult valid(Path path) {
+        return new FileValidationResult(path, true, null, null, null, null, null);
+    }
+
+    /**
+     * @param path valid file
+     * @param checksumAlgorithm algorithm of the computed checksum
+     * @param checksum hexadecimal checksum computed while validating
+     * @param fileSize file size when checksum was computed
+     * @param fileLastModified file last modification time in milliseconds when checksum was computed
+     * @return {@link FileValidationResult}
+     */
+    public static FileValidationResult valid(Path path, String checksumAlgorithm, String checksum, long fileSize,
+            long fileLastModified) {
+        return new FileValidationResult(path, true, null, checksumAlgorithm, checksum, fileSize, fileLastModified);
+    }
+
+    /**
+     * @param path invalid file
+     * @param reason why the file is rejected
+     * @return {@link FileValidationResult}
+     */
+    public static FileValidationResult invalid(Path path, String reason) {
+        return new FileValidationResult(path, false, reason, null, null, null, null);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return rejection reason, null if file is valid
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return algorithm of {@link #getChecksum()}, null if no checksum computed
+     */
+    public String getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    /**
+     * @return hexadecimal checksum computed while validating, null if none
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return file size when checksum was computed, null if no checksum computed
+     */
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * @return file last modification time in milliseconds when checksum was computed, null if no checksum computed
+     */
+    public Long getFileLastModified() {
+        return fileLastModified;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.domain;
+
+import java.nio.file.Path;
+
+/**
+ * Product name computed for one file or the reason why it cannot be computed
+ *
+ * @author REGARDS Team
+ */
+public final class ProductNameResult {
+
+    private final Path path;
+
+    private final String productName;
+
+    private final String error;
+
+    private final Exception cause;
+
+    private ProductNameResult(Path path, String productName, String error, Exception cause) {
+        this.path = path;
+        this.productName = productName;
+        this.error = error;
+        this.cause = cause;
+    }
+
+    /**
+     * @param path file
+     * @param productName product name of the file. A null or empty name is an error.
+     * @return {@link ProductNameResult}
+     */
+    public static ProductNameResult of(Path path, String productName) {
+        if ((productName == null) || productName.isEmpty()) {
+            return error(path, "Null or empty product name");
+        }
+        return new ProductNameResult(path, productName, null, null);
+    }
+
+    /**
+     * @param path file
+     * @param error why product name cannot be computed
+     * @return {@link ProductNameResult}
+     */
+    public static ProductNameResult error(Path path, String error) {
+        return new ProductNameResult(path, null, error, null);
+    }
+
+    /**
+     * @param path file
+     * @param cause exception thrown computing product name
+     * @return {@link ProductNameResult}
+     */
+    public static ProductNameResult error(Path path, Exception cause) {
+        return new ProductNameResult(path, null, cause.getMessage(), cause);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return product name, null if it cannot be computed
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    public boolean isError() {
+        return productName == null;
+    }
+
+    /**
+     * @return error, null if product name is computed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return exception thrown computing product name, if any
+     */
+    public Exception getCause() {
+        return cause;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.domain;
+
+import fr.cnes.regards.modules.ingest.domain.sip.ISipState;
+
+/**
+ * Lightweight view of a {@link Product} with only the properties required to compute its state.<br/>
+ * It allows to handle products without loading their files, jobs and SIP.
+ *
+ * @author REGARDS Team
+ */
+public class ProductSummary {
+
+    /**
+     * Product identifier, null if product is not persisted yet
+     */
+    private Long id;
+
+    private final String productName;
+
+    private ProductState state;
+
+    private ISipState sipState;
+
+    private String session;
+
+    /**
+     * Label of the product processing chain
+     */
+    private final String sessionOwner;
+
+    /**
+     * New error of the product if any
+     */
+    private String error;
+
+    /**
+     * Constructor used by JPQL projections
+     */
+    public ProductSummary(Long id, String productName, ProductState state, ISipState sipState, String session,
+            String sessionOwner) {
+        this.id = id;
+        this.productName = productName;
+        this.state = state;
+        this.sipState = sipState;
+        this.session = session;
+        this.sessionOwner = sessionOwner;
+    }
+
+    /**
+     * Build the summary of a new product
+     */
+    public static ProductSummary build(String productName, String session, String sessionOwner) {
+        return new ProductSummary(null, productName, null, ProductSIPState.NOT_SCHEDULED, session, sessionOwner);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public ProductState getState() {
+        return state;
+    }
+
+    public void setState(ProductState state) {
+        this.state = state;
+    }
+
+    public ISipState getSipState() {
+        return sipState;
+    }
+
+    public void setSipState(ISipState sipState) {
+        this.sipState = sipState;
+    }
+
+    public String getSession() {
+        return session;
+    }
+
+    public void setSession(String session) {
+        this.session = session;
+    }
+
+    public String getSessionOwner() {
+        return sessionOwner;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
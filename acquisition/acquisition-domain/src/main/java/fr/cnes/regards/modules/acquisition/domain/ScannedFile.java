@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.domain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * File detected by a scan plugin with the attributes read while scanning.<br/>
+ * Attributes are read once during the scan and reused all along the registration process so no more file system
+ * access is needed to sort or register scanned files.
+ *
+ * @author REGARDS Team
+ */
+public final class ScannedFile {
+
+    private final Path path;
+
+    private final BasicFileAttributes attributes;
+
+    private final OffsetDateTime lastModificationDate;
+
+    private ScannedFile(Path path, BasicFileAttributes attributes) {
+        this.path = path;
+        this.attributes = attributes;
+        this.lastModificationDate = OffsetDateTime.ofInstant(attributes.lastModifiedTime().toInstant(),
+                                                             ZoneOffset.UTC);
+    }
+
+    /**
+     * Build a {@link ScannedFile} from attributes already read while scanning
+     * @param path file path
+     * @param attributes file attributes
+     * @return {@link ScannedFile}
+     */
+    public static ScannedFile build(Path path, BasicFileAttributes attributes) {
+        return new ScannedFile(path, attributes);
+    }
+
+    /**
+     * Build a {@link ScannedFile} reading file attributes
+     * @param path file path
+     * @return {@link ScannedFile}
+     * @throws IOException if file attributes cannot be read
+     */
+    public static ScannedFile build(Path path) throws IOException {
+        return new ScannedFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+    /**
+     * Restore a {@link ScannedFile} of a regular file from its last modification time and size (i.e. after being
+     * stored out of memory). Other attributes are not available.
+     * @param path file path
+     * @param lastModifiedTime last modification time
+     * @param size file size
+     * @return {@link ScannedFile}
+     */
+    public static ScannedFile build(Path path, Instant lastModifiedTime, long size) {
+        return new ScannedFile(path, new RegularFileAttributes(FileTime.from(lastModifiedTime), size));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return last modification date in UTC
+     */
+    public OffsetDateTime getLastModificationDate() {
+        return lastModificationDate;
+    }
+
+    public long getSize() {
+        return attributes.size();
+    }
+
+    /**
+     * @return true if last modification date is equal or after the given date, or if no date is given
+     */
+    public boolean isModifiedSince(OffsetDateTime date) {
+        return (date == null) || !lastModificationDate.isBefore(date);
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    /**
+     * Minimal attributes of a regular file restored from last modification time and size
+     */
+    private static final class RegularFileAttributes implements BasicFileAttributes {
+
+        private final FileTime lastModifiedTime;
+
+        private final long size;
+
+        private RegularFileAttributes(FileTime lastModifiedTime, long size) {
+            this.lastModifiedTime = lastModifiedTime;
+            this.size = size;
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return lastModifiedTime;
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return lastModifiedTime;
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public Object fileKey() {
+            return null;
+        }
+    }
+}
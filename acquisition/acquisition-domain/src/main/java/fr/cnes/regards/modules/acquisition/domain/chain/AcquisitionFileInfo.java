@@ -82,6 +82,23 @@ public class AcquisitionFileInfo {
     @Convert(converter = OffsetDateTimeAttributeConverter.class)
     private OffsetDateTime lastModificationDate;
 
+    /**
+     * <code>true</code> to detect new files comparing each scan listing with the previous one, so that files with a
+     * last modification date older than {@link #lastModificationDate} (i.e. copied with preserved dates) are detected
+     */
+    @NotNull(message = "Snapshot scan state is required")
+    @Column(name = "snapshot_scan", nullable = false)
+    private Boolean snapshotScan = Boolean.FALSE;
+
+    /**
+     * <code>true</code> to register streamed files from the oldest to the most recent, sorting them with bounded memory
+     * (spilling to disk if needed). Otherwise streamed files are registered in scan order. Listed files are always
+     * sorted in memory.
+     */
+    @NotNull(message = "Sort scanned files state is required")
+    @Column(name = "sort_scanned_files", nullable = false)
+    private Boolean sortScannedFiles = Boolean.FALSE;
+
     /**
      * A {@link String} corresponding to the data file mime-type
      */
@@ -159,6 +176,22 @@ public class AcquisitionFileInfo {
         this.mandatory = mandatory;
     }
 
+    public Boolean getSnapshotScan() {
+        return snapshotScan;
+    }
+
+    public void setSnapshotScan(Boolean snapshotScan) {
+        this.snapshotScan = snapshotScan;
+    }
+
+    public Boolean getSortScannedFiles() {
+        return sortScannedFiles;
+    }
+
+    public void setSortScannedFiles(Boolean sortScannedFiles) {
+        this.sortScannedFiles = sortScannedFiles;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -86,7 +86,7 @@ import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
 public class AcquisitionProcessingChain {
 
     /**
-     * Fixed checksum algorithm
+     * Default checksum algorithm
      */
     public static final String CHECKSUM_ALGORITHM = "MD5";
 
@@ -142,6 +142,13 @@ public class AcquisitionProcessingChain {
     @Column(name = "ingest_chain")
     private String ingestChain;
 
+    /**
+     * Checksum algorithm of the files of the generated SIPs (i.e. MD5, SHA-256 or CRC32C)
+     */
+    @NotBlank(message = "Checksum algorithm is required")
+    @Column(name = "checksum_algorithm", length = 16, nullable = false)
+    private String checksumAlgorithm = CHECKSUM_ALGORITHM;
+
     @Valid
     @NotNull(message = "Storage metadata is required")
     @Column(columnDefinition = "jsonb")
@@ -303,6 +310,14 @@ public class AcquisitionProcessingChain {
         this.storages = storages;
     }
 
+    public String getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    public void setChecksumAlgorithm(String checksumAlgorithm) {
+        this.checksumAlgorithm = checksumAlgorithm;
+    }
+
     public Set<String> getCategories() {
         return categories;
     }
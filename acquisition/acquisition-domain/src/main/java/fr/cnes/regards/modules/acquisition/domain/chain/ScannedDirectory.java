@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.domain.chain;
+
+import java.nio.file.Path;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+import fr.cnes.regards.framework.jpa.converters.PathAttributeConverter;
+
+/**
+ * Directory seen during the last successful scan of an {@link AcquisitionFileInfo}. Used by scan plugins to skip
+ * directories which content has not changed since.
+ *
+ * @author REGARDS Team
+ */
+@Entity
+@Table(name = "t_acq_scan_directory",
+        indexes = { @Index(name = "idx_acq_scan_dir_file_info", columnList = "acq_file_info_id") })
+public class ScannedDirectory {
+
+    @Id
+    @SequenceGenerator(name = "AcqScanDirSequence", initialValue = 1, sequenceName = "seq_acq_scan_dir")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "AcqScanDirSequence")
+    private Long id;
+
+    @NotNull
+    @Column(name = "acq_file_info_id", nullable = false)
+    private Long fileInfoId;
+
+    @NotNull
+    @Column(name = "dir_path", length = 2048, nullable = false)
+    @Convert(converter = PathAttributeConverter.class)
+    private Path dirPath;
+
+    /**
+     * Directory last modification time in milliseconds when it was listed. Null if directory was modified too
+     * recently to be trusted at next scan.
+     */
+    @Column(name = "last_modified")
+    private Long lastModified;
+
+    public static ScannedDirectory build(Long fileInfoId, Path dirPath, Long lastModified) {
+        ScannedDirectory dir = new ScannedDirectory();
+        dir.fileInfoId = fileInfoId;
+        dir.dirPath = dirPath;
+        dir.lastModified = lastModified;
+        return dir;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getFileInfoId() {
+        return fileInfoId;
+    }
+
+    public Path getDirPath() {
+        return dirPath;
+    }
+
+    public Long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.plugins;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+
+/**
+ * Index of the directories seen during the last successful scan of a file info, provided by the system to scan
+ * plugins so they can skip listing directories that have not changed.<br/>
+ * A directory is unchanged if its last modification date is the same, i.e. no entry has been added, removed or
+ * renamed inside. <b>Files modified in place in an unchanged directory are not detected.</b><br/>
+ * Scan plugins using the index must declare all the directories they go through, listed or not, with
+ * {@link #visited(Path, BasicFileAttributes, boolean)}. Implementations are thread safe.
+ *
+ * @author REGARDS Team
+ */
+public interface IDirectoryIndex {
+
+    /**
+     * @param dir directory
+     * @param attributes directory attributes read before listing
+     * @return true if directory content has not changed since last successful scan so it does not have to be listed
+     */
+    boolean isUnchanged(Path dir, BasicFileAttributes attributes);
+
+    /**
+     * @param dir directory
+     * @return sub directories of the given directory seen during last successful scan
+     */
+    Collection<Path> getSubDirectories(Path dir);
+
+    /**
+     * Record a directory gone through by the current scan
+     * @param dir directory
+     * @param attributes directory attributes read before listing
+     * @param complete false if the directory or some of its entries could not be read, so it is listed again at next
+     *            scan
+     */
+    void visited(Path dir, BasicFileAttributes attributes, boolean complete);
+}
@@ -1,15 +1,18 @@
 package fr.cnes.regards.modules.acquisition.plugins;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.NotImplementedException;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginInterface;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
 
 /**
  * First <b>required</b> step of acquisition processing chain. This step is used to make disk scanning for file
@@ -27,4 +30,42 @@ public interface IFluxScanPlugin extends IScanPlugin {
     }
 
     List<Stream<Path>> stream(Optional<OffsetDateTime> lastModificationDate) throws ModuleException;
+
+    /**
+     * Same as {@link #stream(Optional)} but each detected file comes with the attributes read while scanning.<br/>
+     * Default implementation reads the attributes of the streamed files. Files which attributes cannot be read
+     * anymore are ignored.<br/>
+     * Plugins reading file attributes while scanning should override this method.
+     */
+    default List<Stream<ScannedFile>> streamFiles(Optional<OffsetDateTime> lastModificationDate)
+            throws ModuleException {
+        return stream(lastModificationDate).stream().map(s -> s.map(path -> {
+            try {
+                return ScannedFile.build(path);
+            } catch (IOException e) { // NOSONAR
+                // File not available anymore
+                return null;
+            }
+        }).filter(f -> f != null)).collect(Collectors.toList());
+    }
+
+    /**
+     * Same as {@link #streamFiles(Optional)} with the {@link IDirectoryIndex} of the last successful scan. Plugins
+     * supporting it may skip listing unchanged directories. Default implementation ignores the index.
+     */
+    default List<Stream<ScannedFile>> streamFiles(Optional<OffsetDateTime> lastModificationDate,
+            IDirectoryIndex index) throws ModuleException {
+        return streamFiles(lastModificationDate);
+    }
+
+    /**
+     * Called after registration of the files streamed by the last call to one of the <code>streamFiles</code>
+     * methods. Plugins buffering detected files may so forget them or detect them again at next run. Default
+     * implementation does nothing.
+     * @param registered true if all streamed files have been registered, false if registration failed or has been
+     *            interrupted
+     */
+    default void streamedFilesRegistered(boolean registered) {
+        // Nothing to do
+    }
 }
@@ -19,13 +19,18 @@
 package fr.cnes.regards.modules.acquisition.plugins;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginInterface;
+import fr.cnes.regards.modules.acquisition.domain.ProductNameResult;
 
 /**
  * Third <b>required</b> step of acquisition processing chain. This step is used to compute product name for a specified
- * file.
+ * file.<br/>
+ * Files may be linked to products by several workers at the same time so implementations must be thread safe and
+ * always compute the same product name for a file.
  *
  * @author Marc Sordi
  *
@@ -40,4 +45,23 @@ public interface IProductPlugin {
      * @throws ModuleException if error occurs!
      */
     String getProductName(Path filePath) throws ModuleException;
+
+    /**
+     * Compute product names for a batch of files at once. Override this method to share work between files (i.e.
+     * request an external catalog once). Default implementation computes product names one by one.
+     * @param filePaths file paths
+     * @return one result per file, in the same order
+     * @throws ModuleException if error occurs for the whole batch!
+     */
+    default List<ProductNameResult> getProductNames(List<Path> filePaths) throws ModuleException {
+        List<ProductNameResult> results = new ArrayList<>(filePaths.size());
+        for (Path filePath : filePaths) {
+            try {
+                results.add(ProductNameResult.of(filePath, getProductName(filePath)));
+            } catch (ModuleException e) {
+                results.add(ProductNameResult.error(filePath, e));
+            }
+        }
+        return results;
+    }
 }
@@ -18,17 +18,22 @@
  */
 package fr.cnes.regards.modules.acquisition.plugins;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginInterface;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
 
 /**
  * First <b>required</b> step of acquisition processing chain. This step is used to make disk scanning for file
- * detection.
+ * detection.<br/>
+ * <b>Implementations must be thread safe</b> : plugin instances are shared and the file infos of a chain are
+ * scanned concurrently, so scan methods must not keep any scanning state in instance fields.
  *
  * @author Marc Sordi
  *
@@ -49,4 +54,42 @@ public interface IScanPlugin {
      * @throws ModuleException if error occurs!
      */
     List<Path> scan(Optional<OffsetDateTime> lastModificationDate) throws ModuleException;
+
+    /**
+     * Same as {@link #scan(Optional)} but each detected file comes with the attributes read while scanning so the
+     * system does not have to access the file system again to sort and register it.<br/>
+     * Default implementation reads the attributes of the files returned by {@link #scan(Optional)}. Files which
+     * attributes cannot be read anymore (i.e. deleted since scan) are ignored.<br/>
+     * Plugins reading file attributes while scanning should override this method.
+     *
+     * @param lastModificationDate see {@link #scan(Optional)}
+     * @return list of detected files with their attributes
+     * @throws ModuleException if error occurs!
+     */
+    default List<ScannedFile> scanFiles(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
+        List<Path> paths = scan(lastModificationDate);
+        List<ScannedFile> scannedFiles = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            try {
+                scannedFiles.add(ScannedFile.build(path));
+            } catch (IOException e) { // NOSONAR
+                // File not available anymore
+            }
+        }
+        return scannedFiles;
+    }
+
+    /**
+     * Same as {@link #scanFiles(Optional)} with the {@link IDirectoryIndex} of the last successful scan. Plugins
+     * supporting it may skip listing unchanged directories. Default implementation ignores the index.
+     *
+     * @param lastModificationDate see {@link #scan(Optional)}
+     * @param index directory index
+     * @return list of detected files with their attributes
+     * @throws ModuleException if error occurs!
+     */
+    default List<ScannedFile> scanFiles(Optional<OffsetDateTime> lastModificationDate, IDirectoryIndex index)
+            throws ModuleException {
+        return scanFiles(lastModificationDate);
+    }
 }
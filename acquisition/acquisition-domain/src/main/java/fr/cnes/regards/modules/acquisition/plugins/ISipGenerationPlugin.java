@@ -40,4 +40,14 @@ public interface ISipGenerationPlugin {
      * @throws ModuleException if error occurs!
      */
     SIP generate(Product product) throws ModuleException;
+
+    /**
+     * Whether {@link #generate(Product)} can be called concurrently by several threads on the same plugin instance.<br/>
+     * If so, SIPs are generated on a pool shared by all SIP generation jobs, up to
+     * <code>regards.acquisition.sip.generation.parallelism</code> at a time. Otherwise products are handled one at a time.
+     * @return true if plugin is thread safe
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
@@ -19,12 +19,16 @@
 package fr.cnes.regards.modules.acquisition.plugins;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginInterface;
+import fr.cnes.regards.modules.acquisition.domain.FileValidationResult;
 
 /**
- * Second <b>optional</b> step of acquisition processing chain. This step is used to validate a file.
+ * Second <b>optional</b> step of acquisition processing chain. This step is used to validate a file.<br/>
+ * Files of a page are validated concurrently so implementations must be thread safe.
  *
  * @author Marc Sordi
  *
@@ -39,4 +43,21 @@ public interface IValidationPlugin {
      * @throws ModuleException if error occurs!
      */
     boolean validate(Path filePath) throws ModuleException;
+
+    /**
+     * Validate a batch of files at once. Override this method to share work between files (i.e. read a manifest or
+     * list a directory once). Default implementation validates files one by one.
+     * @param filePaths files to validate
+     * @return one result per file, in the same order. A null result means the file has not been validated (i.e. on
+     *         interruption) so it is validated again later.
+     * @throws ModuleException if error occurs!
+     */
+    default List<FileValidationResult> validate(List<Path> filePaths) throws ModuleException {
+        List<FileValidationResult> results = new ArrayList<>(filePaths.size());
+        for (Path filePath : filePaths) {
+            results.add(validate(filePath) ? FileValidationResult.valid(filePath)
+                    : FileValidationResult.invalid(filePath, "File rejected by validation plugin"));
+        }
+        return results;
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.domain.chain.StorageMetadataProvider;
+import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
+import fr.cnes.regards.modules.acquisition.plugins.ISipGenerationPlugin;
+import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
+import fr.cnes.regards.modules.ingest.dto.aip.StorageMetadata;
+
+/**
+ * Immutable facts derived once from an {@link AcquisitionProcessingChain} and used for each page of files or products
+ * : plugin instances, product completeness requirements and ingest metadata.
+ *
+ * @author REGARDS Team
+ */
+public final class AcquisitionChainDescriptor {
+
+    private final Long chainId;
+
+    private final IValidationPlugin validationPlugin;
+
+    private final IProductPlugin productPlugin;
+
+    private final ISipGenerationPlugin generateSipPlugin;
+
+    private final int nbMandatoryFileInfos;
+
+    private final int nbOptionalFileInfos;
+
+    private final Set<String> categories;
+
+    private final List<StorageMetadata> storages;
+
+    private AcquisitionChainDescriptor(Long chainId, IValidationPlugin validationPlugin,
+            IProductPlugin productPlugin, ISipGenerationPlugin generateSipPlugin, int nbMandatoryFileInfos,
+            int nbOptionalFileInfos, Set<String> categories, List<StorageMetadata> storages) {
+        this.chainId = chainId;
+        this.validationPlugin = validationPlugin;
+        this.productPlugin = productPlugin;
+        this.generateSipPlugin = generateSipPlugin;
+        this.nbMandatoryFileInfos = nbMandatoryFileInfos;
+        this.nbOptionalFileInfos = nbOptionalFileInfos;
+        this.categories = categories;
+        this.storages = storages;
+    }
+
+    /**
+     * Compile given chain with its plugin instances
+     */
+    public static AcquisitionChainDescriptor build(AcquisitionProcessingChain chain,
+            IValidationPlugin validationPlugin, IProductPlugin productPlugin, ISipGenerationPlugin generateSipPlugin) {
+        int nbMandatoryFileInfos = 0;
+        int nbOptionalFileInfos = 0;
+        for (AcquisitionFileInfo fileInfo : chain.getFileInfos()) {
+            if (fileInfo.isMandatory()) {
+                nbMandatoryFileInfos++;
+            } else {
+                nbOptionalFileInfos++;
+            }
+        }
+        List<StorageMetadata> storages = new ArrayList<>();
+        if (chain.getStorages() != null) {
+            for (StorageMetadataProvider storage : chain.getStorages()) {
+                storages.add(StorageMetadata.build(storage.getPluginBusinessId(), storage.getStorePath(),
+                                                   storage.getTargetTypes()));
+            }
+        }
+        Set<String> categories = chain.getCategories() == null ? Collections.emptySet()
+                : Collections.unmodifiableSet(new HashSet<>(chain.getCategories()));
+        return new AcquisitionChainDescriptor(chain.getId(), validationPlugin, productPlugin, generateSipPlugin,
+                nbMandatoryFileInfos, nbOptionalFileInfos, categories, Collections.unmodifiableList(storages));
+    }
+
+    public Long getChainId() {
+        return chainId;
+    }
+
+    public IValidationPlugin getValidationPlugin() {
+        return validationPlugin;
+    }
+
+    public IProductPlugin getProductPlugin() {
+        return productPlugin;
+    }
+
+    public ISipGenerationPlugin getGenerateSipPlugin() {
+        return generateSipPlugin;
+    }
+
+    /**
+     * @return number of mandatory files of a complete product
+     */
+    public int getNbMandatoryFileInfos() {
+        return nbMandatoryFileInfos;
+    }
+
+    /**
+     * @return number of optional files of a finished product
+     */
+    public int getNbOptionalFileInfos() {
+        return nbOptionalFileInfos;
+    }
+
+    public Set<String> getCategories() {
+        return categories;
+    }
+
+    /**
+     * @return storages of the submitted SIPs
+     */
+    public List<StorageMetadata> getStorages() {
+        return storages;
+    }
+}
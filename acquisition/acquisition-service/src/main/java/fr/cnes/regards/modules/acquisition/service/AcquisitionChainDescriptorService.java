@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import fr.cnes.regards.framework.jpa.multitenant.transactional.MultitenantTransactional;
+import fr.cnes.regards.framework.module.rest.exception.EntityNotFoundException;
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.service.IPluginService;
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
+import fr.cnes.regards.modules.acquisition.dao.IAcquisitionProcessingChainRepository;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
+import fr.cnes.regards.modules.acquisition.plugins.ISipGenerationPlugin;
+import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
+
+/**
+ * In memory {@link AcquisitionChainDescriptor}s by tenant and chain.<br/>
+ * Descriptors expire after <code>regards.acquisition.chain.descriptor.ttl.seconds</code> so chain changes made by
+ * another instance are eventually taken into account.<br/>
+ * On a cache miss, the chain is loaded again from database so a descriptor is never compiled from a detached or
+ * modified chain instance.
+ *
+ * @author REGARDS Team
+ */
+@Service
+public class AcquisitionChainDescriptorService implements IAcquisitionChainDescriptorService {
+
+    @Value("${regards.acquisition.chain.descriptor.ttl.seconds:60}")
+    private long ttl;
+
+    @Autowired
+    private IPluginService pluginService;
+
+    @Autowired
+    private IAcquisitionProcessingChainRepository acqChainRepository;
+
+    @Autowired
+    private IRuntimeTenantResolver runtimeTenantResolver;
+
+    private Cache<String, AcquisitionChainDescriptor> descriptors;
+
+    @PostConstruct
+    public void init() {
+        descriptors = CacheBuilder.newBuilder().expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+    }
+
+    @Override
+    @MultitenantTransactional(readOnly = true)
+    public AcquisitionChainDescriptor get(AcquisitionProcessingChain chain) throws ModuleException {
+        Long chainId = chain.getId();
+        try {
+            return descriptors.get(getKey(chainId), () -> compile(chainId));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof ModuleException) {
+                throw (ModuleException) e.getCause();
+            }
+            throw new ModuleException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void invalidate(Long chainId) {
+        String key = getKey(chainId);
+        descriptors.invalidate(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A descriptor compiled before commit may still be built from the previous chain state
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(int status) {
+                    descriptors.invalidate(key);
+                }
+            });
+        }
+    }
+
+    private AcquisitionChainDescriptor compile(Long chainId) throws ModuleException {
+        AcquisitionProcessingChain chain = acqChainRepository.findCompleteById(chainId);
+        if (chain == null) {
+            throw new EntityNotFoundException(chainId, AcquisitionProcessingChain.class);
+        }
+        try {
+            IValidationPlugin validationPlugin = pluginService
+                    .getPlugin(chain.getValidationPluginConf().getBusinessId());
+            IProductPlugin productPlugin = pluginService.getPlugin(chain.getProductPluginConf().getBusinessId());
+            ISipGenerationPlugin generateSipPlugin = pluginService
+                    .getPlugin(chain.getGenerateSipPluginConf().getBusinessId());
+            return AcquisitionChainDescriptor.build(chain, validationPlugin, productPlugin, generateSipPlugin);
+        } catch (NotAvailablePluginConfigurationException e) {
+            throw new ModuleException("Unable to run disabled acquisition chain.", e);
+        }
+    }
+
+    private String getKey(Long chainId) {
+        return runtimeTenantResolver.getTenant() + ":" + chainId;
+    }
+}
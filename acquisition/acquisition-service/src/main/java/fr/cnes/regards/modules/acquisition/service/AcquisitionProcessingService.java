@@ -19,19 +19,28 @@
 package fr.cnes.regards.modules.acquisition.service;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,6 +50,7 @@ import javax.transaction.Transactional.TxType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -51,6 +61,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.util.MimeTypeUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import fr.cnes.regards.framework.authentication.IAuthenticationResolver;
 import fr.cnes.regards.framework.jpa.multitenant.transactional.MultitenantTransactional;
 import fr.cnes.regards.framework.module.rest.exception.EntityInvalidException;
@@ -71,14 +83,18 @@ import fr.cnes.regards.framework.security.role.DefaultRole;
 import fr.cnes.regards.framework.utils.RsRuntimeException;
 import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
 import fr.cnes.regards.modules.acquisition.dao.AcquisitionProcessingChainSpecifications;
+import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileBulkRepository;
 import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileInfoRepository;
 import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileRepository;
 import fr.cnes.regards.modules.acquisition.dao.IAcquisitionProcessingChainRepository;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
 import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductNameResult;
 import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
 import fr.cnes.regards.modules.acquisition.domain.ProductsPage;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChainMode;
@@ -86,6 +102,7 @@ import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingCha
 import fr.cnes.regards.modules.acquisition.domain.payload.UpdateAcquisitionProcessingChain;
 import fr.cnes.regards.modules.acquisition.domain.payload.UpdateAcquisitionProcessingChains;
 import fr.cnes.regards.modules.acquisition.plugins.IFluxScanPlugin;
+import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
 import fr.cnes.regards.modules.acquisition.plugins.IScanPlugin;
 import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
 import fr.cnes.regards.modules.acquisition.service.job.AcquisitionJobPriority;
@@ -117,6 +134,9 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
     @Autowired
     private IAcquisitionFileRepository acqFileRepository;
 
+    @Autowired
+    private IAcquisitionFileBulkRepository acqFileBulkRepository;
+
     @Autowired
     private IAcquisitionFileInfoRepository fileInfoRepository;
 
@@ -150,6 +170,45 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
     @Autowired
     private SessionNotifier sessionNotifier;
 
+    @Autowired
+    private RegisteredFilesBloomFilter registeredFilesFilter;
+
+    @Autowired
+    private IDirectoryIndexService directoryIndexService;
+
+    @Autowired
+    private IListingSnapshotService listingSnapshotService;
+
+    @Autowired
+    private IFileValidationService fileValidationService;
+
+    @Autowired
+    private IChecksumEngine checksumEngine;
+
+    @Autowired
+    private IAcquisitionChainDescriptorService chainDescriptorService;
+
+    /**
+     * Maximum number of {@link AcquisitionFileInfo}s of a chain scanned at the same time
+     */
+    @Value("${regards.acquisition.scan.parallelism:4}")
+    private int scanParallelism;
+
+    /**
+     * Maximum number of streamed files kept in memory while sorting them before registration
+     */
+    @Value("${regards.acquisition.scan.sort.chunk.size:100000}")
+    private int sortChunkSize;
+
+    @Value("${regards.acquisition.scan.sort.workspace:}")
+    private String sortWorkspace;
+
+    /**
+     * Number of product partitions linked at the same time, each in its own transactions
+     */
+    @Value("${regards.acquisition.linking.parallelism:1}")
+    private int linkingParallelism;
+
     @Override
     public Page<AcquisitionProcessingChain> getAllChains(Pageable pageable) throws ModuleException {
         return acqChainRepository.findAll(pageable);
@@ -254,6 +313,7 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
 
         // Check mode
         checkProcessingChainMode(processingChain);
+        checkChecksumAlgorithm(processingChain);
 
         // Prevent bad values
         processingChain.setLocked(Boolean.FALSE);
@@ -272,7 +332,7 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
             fileInfo.setLastModificationDate(null);
             // Manage scan plugin conf
             createPluginConfiguration(fileInfo.getScanPlugin());
-            // Save file info
+            // Save file info (no registered files filter exists yet for a new file info)
             fileInfoRepository.save(fileInfo);
         }
 
@@ -307,6 +367,10 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
 
         // Check mode
         checkProcessingChainMode(processingChain);
+        checkChecksumAlgorithm(processingChain);
+
+        // Registered files filters of previous and new file infos are no longer relevant
+        Set<Long> fileInfoIds = new HashSet<>(acqChainRepository.findFileInfoIdsById(processingChain.getId()));
 
         List<Optional<PluginConfiguration>> confsToRemove = new ArrayList<>();
         Optional<PluginConfiguration> existing;
@@ -330,16 +394,19 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
                     PluginConfiguration exConf = existing.get();
                     for (IPluginParam param : fileInfo.getScanPlugin().getParameters()) {
                         if (!param.getValue().equals(exConf.getParameterValue(param.getName()))) {
-                            // Conf has changed, so reset the last scanning date
+                            // Conf has changed, so reset the last scanning date and the known directories
                             fileInfo.setLastModificationDate(null);
+                            directoryIndexService.reset(fileInfo.getId());
+                            listingSnapshotService.reset(fileInfo.getId());
                         }
                     }
                 }
             }
 
             // Save file info
-            fileInfoRepository.save(fileInfo);
+            fileInfoIds.add(fileInfoRepository.save(fileInfo).getId());
         }
+        registeredFilesFilter.evict(fileInfoIds);
 
         // Manage validation plugin conf
         existing = acqChainRepository.findOneValidationPlugin(processingChain.getId());
@@ -367,6 +434,8 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
             }
         }
 
+        // Plugins and requirements have to be compiled again
+        chainDescriptorService.invalidate(processingChain.getId());
         return processingChain;
     }
 
@@ -397,6 +466,7 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
         }
         checkProcessingChainMode(chain);
         chain = updateChain(chain);
+        chainDescriptorService.invalidate(chainId);
         return chain;
     }
 
@@ -460,6 +530,13 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
         }
     }
 
+    private void checkChecksumAlgorithm(AcquisitionProcessingChain processingChain) throws ModuleException {
+        if (!checksumEngine.isSupported(processingChain.getChecksumAlgorithm())) {
+            throw new EntityInvalidException(String.format("Unsupported checksum algorithm %s",
+                                                           processingChain.getChecksumAlgorithm()));
+        }
+    }
+
     @Override
     public void deleteChain(Long id) throws ModuleException {
         AcquisitionProcessingChain processingChain = getChain(id);
@@ -474,14 +551,20 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
 
         // Delete acquisition file infos and its plugin configurations
         for (AcquisitionFileInfo afi : processingChain.getFileInfos()) {
+            directoryIndexService.reset(afi.getId());
+            listingSnapshotService.reset(afi.getId());
             fileInfoRepository.delete(afi);
         }
+        registeredFilesFilter.evict(processingChain.getFileInfos().stream().map(AcquisitionFileInfo::getId)
+                .collect(Collectors.toList()));
+        fileValidationService.release(processingChain.getId());
 
         // Delete acquisition processing chain and its plugin configurations
         if (processingChain.getLastProductAcquisitionJobInfo() != null) {
             jobInfoService.unlock(processingChain.getLastProductAcquisitionJobInfo());
         }
         acqChainRepository.delete(processingChain);
+        chainDescriptorService.invalidate(id);
     }
 
     @Override
@@ -675,10 +758,9 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
     @MultitenantTransactional(propagation = Propagation.NOT_SUPPORTED)
     public void scanAndRegisterFiles(AcquisitionProcessingChain processingChain, String session)
             throws ModuleException {
-        // Launch file scanning for each file information
-        Iterator<AcquisitionFileInfo> fileInfoIter = processingChain.getFileInfos().iterator();
-        while (fileInfoIter.hasNext() && !Thread.currentThread().isInterrupted()) {
-            AcquisitionFileInfo fileInfo = fileInfoIter.next();
+        // Prepare file scanning for each file information
+        List<Callable<Void>> scans = new ArrayList<>();
+        for (AcquisitionFileInfo fileInfo : processingChain.getFileInfos()) {
             // Get plugin instance
             IScanPlugin scanPlugin;
             try {
@@ -695,30 +777,120 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
                         .of(OffsetDateTime.ofInstant(fileInfo.getLastModificationDate().toInstant(), ZoneOffset.UTC));
             }
 
-            if (scanPlugin instanceof IFluxScanPlugin) {
-                streamAndRegisterFiles(fileInfo, (IFluxScanPlugin) scanPlugin, scanningDate, session,
-                                       processingChain.getLabel());
-            } else {
-                scanAndRegisterFiles(fileInfo, scanPlugin, scanningDate, session, processingChain.getLabel());
+            Optional<OffsetDateTime> fileInfoScanningDate = scanningDate;
+            scans.add(() -> {
+                if (scanPlugin instanceof IFluxScanPlugin) {
+                    streamAndRegisterFiles(fileInfo, (IFluxScanPlugin) scanPlugin, fileInfoScanningDate, session,
+                                           processingChain.getLabel());
+                } else {
+                    scanAndRegisterFiles(fileInfo, scanPlugin, fileInfoScanningDate, session,
+                                         processingChain.getLabel());
+                }
+                return null;
+            });
+        }
+
+        // Launch file scanning
+        if ((scans.size() > 1) && (scanParallelism > 1)) {
+            runConcurrently(scans, scanParallelism, "acquisition-scan-%d");
+        } else {
+            Iterator<Callable<Void>> scanIter = scans.iterator();
+            while (scanIter.hasNext() && !Thread.currentThread().isInterrupted()) {
+                runScan(scanIter.next());
             }
         }
+    }
 
+    /**
+     * Run tasks (i.e. file info scans) on a bounded executor in the current tenant. If current thread is interrupted,
+     * all running tasks are interrupted.
+     * @throws ModuleException first error occurred once all tasks are over
+     */
+    private void runConcurrently(List<Callable<Void>> scans, int parallelism, String nameFormat)
+            throws ModuleException {
+        String tenant = runtimeTenantResolver.getTenant();
+        ExecutorService executor = Executors
+                .newFixedThreadPool(Math.min(parallelism, scans.size()),
+                                    new ThreadFactoryBuilder().setNameFormat(nameFormat).build());
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> scan : scans) {
+                futures.add(executor.submit(() -> {
+                    runtimeTenantResolver.forceTenant(tenant);
+                    try {
+                        runScan(scan);
+                        return null;
+                    } finally {
+                        runtimeTenantResolver.clearTenant();
+                    }
+                }));
+            }
+            ModuleException error = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = (e.getCause() instanceof ModuleException) ? (ModuleException) e.getCause()
+                                : new ModuleException(e.getCause().getMessage(), e.getCause());
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("{} thread has been interrupted", this.getClass().getName());
+            Thread.currentThread().interrupt();
+        } finally {
+            // Interrupt remaining scans if any
+            executor.shutdownNow();
+        }
+    }
+
+    private static void runScan(Callable<Void> scan) throws ModuleException {
+        try {
+            scan.call();
+        } catch (ModuleException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ModuleException(e.getMessage(), e);
+        }
     }
 
     private void scanAndRegisterFiles(AcquisitionFileInfo fileInfo, IScanPlugin scanPlugin,
             Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException {
-        // Do scan
-        List<Path> scannedFiles = scanPlugin.scan(scanningDate);
-
-        // Sort list according to last modification date
-        Collections.sort(scannedFiles, (file1, file2) -> {
-            try {
-                return Files.getLastModifiedTime(file1).compareTo(Files.getLastModifiedTime(file2));
+        if (Boolean.TRUE.equals(fileInfo.getSnapshotScan())) {
+            try (ListingSnapshot snapshot = listingSnapshotService.open(fileInfo)) {
+                // Do full scan to detect files with old modification dates
+                List<ScannedFile> scannedFiles = scanPlugin.scanFiles(Optional.empty()).stream()
+                        .filter(file -> snapshot.isNew(file, scanningDate)).collect(Collectors.toList());
+                registerScannedFiles(fileInfo, scannedFiles, scanningDate, session, sessionOwner);
+                // Keep listing only if all new files have been registered
+                if (!Thread.currentThread().isInterrupted()) {
+                    snapshot.commit();
+                }
             } catch (IOException e) {
-                LOGGER.warn("Cannot read last modification date", e);
-                return 0;
+                throw new ModuleException(e.getMessage(), e);
             }
-        });
+        } else {
+            // Previous listing is outdated as soon as a scan runs without snapshot
+            listingSnapshotService.reset(fileInfo.getId());
+            // Do scan
+            DirectoryIndex directoryIndex = directoryIndexService.load(fileInfo);
+            List<ScannedFile> scannedFiles = scanPlugin.scanFiles(scanningDate, directoryIndex);
+            registerScannedFiles(fileInfo, scannedFiles, scanningDate, session, sessionOwner);
+            // Keep directory index only if all scanned files have been registered
+            if (!Thread.currentThread().isInterrupted()) {
+                directoryIndexService.save(fileInfo, directoryIndex);
+            }
+        }
+    }
+
+    private void registerScannedFiles(AcquisitionFileInfo fileInfo, List<ScannedFile> scannedFiles,
+            Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException {
+        // Sort list according to last modification date read while scanning
+        scannedFiles.sort(Comparator.comparing(ScannedFile::getLastModificationDate));
         if (!scannedFiles.isEmpty()) {
             registerFiles(scannedFiles.iterator(), fileInfo, scanningDate, session, sessionOwner);
         }
@@ -733,17 +905,94 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
 
     private void streamAndRegisterFiles(AcquisitionFileInfo fileInfo, IFluxScanPlugin scanPlugin,
             Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException {
-        List<Stream<Path>> streams = scanPlugin.stream(scanningDate);
-        Iterator<Stream<Path>> streamsIt = streams.iterator();
-        while (streamsIt.hasNext() && !Thread.currentThread().isInterrupted()) {
-            try (Stream<Path> stream = streamsIt.next()) {
-                registerFiles(stream.iterator(), fileInfo, scanningDate, session, sessionOwner);
+        boolean registered = false;
+        try {
+            doStreamAndRegisterFiles(fileInfo, scanPlugin, scanningDate, session, sessionOwner);
+            registered = !Thread.currentThread().isInterrupted();
+        } finally {
+            // Let plugin know if streamed files have to be detected again
+            scanPlugin.streamedFilesRegistered(registered);
+        }
+    }
+
+    private void doStreamAndRegisterFiles(AcquisitionFileInfo fileInfo, IFluxScanPlugin scanPlugin,
+            Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException {
+        if (Boolean.TRUE.equals(fileInfo.getSnapshotScan())) {
+            try (ListingSnapshot snapshot = listingSnapshotService.open(fileInfo)) {
+                // Do full scan to detect files with old modification dates
+                List<Stream<ScannedFile>> streams = scanPlugin.streamFiles(Optional.empty()).stream()
+                        .map(stream -> stream.filter(file -> snapshot.isNew(file, scanningDate)))
+                        .collect(Collectors.toList());
+                registerStreamedFiles(fileInfo, streams, scanningDate, session, sessionOwner);
+                // Keep listing only if all new files have been registered
+                if (!Thread.currentThread().isInterrupted()) {
+                    snapshot.commit();
+                }
+            } catch (IOException e) {
+                throw new ModuleException(e.getMessage(), e);
+            }
+        } else {
+            // Previous listing is outdated as soon as a scan runs without snapshot
+            listingSnapshotService.reset(fileInfo.getId());
+            DirectoryIndex directoryIndex = directoryIndexService.load(fileInfo);
+            registerStreamedFiles(fileInfo, scanPlugin.streamFiles(scanningDate, directoryIndex), scanningDate,
+                                  session, sessionOwner);
+            // Keep directory index only if all scanned files have been registered
+            if (!Thread.currentThread().isInterrupted()) {
+                directoryIndexService.save(fileInfo, directoryIndex);
+            }
+        }
+    }
+
+    /**
+     * Streamed files are registered in scan order unless sorting is enabled for the file info. In that case, they are
+     * sorted with bounded memory, spilling to disk if needed, so they are registered from the oldest to the most
+     * recent whatever the number of files.
+     */
+    private void registerStreamedFiles(AcquisitionFileInfo fileInfo, List<Stream<ScannedFile>> streams,
+            Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException {
+        if (Boolean.TRUE.equals(fileInfo.getSortScannedFiles())) {
+            registerSortedStreamedFiles(fileInfo, streams, scanningDate, session, sessionOwner);
+        } else {
+            try (ScannedFilesIterator filesIt = new ScannedFilesIterator(streams)) {
+                if (filesIt.hasNext()) {
+                    registerFiles(filesIt, fileInfo, scanningDate, session, sessionOwner);
+                }
+                LOGGER.info("[{} - {}] Stream scan for files <{}> found {} files", sessionOwner, session,
+                            fileInfo.getComment(), filesIt.getCount());
             }
         }
     }
 
+    private void registerSortedStreamedFiles(AcquisitionFileInfo fileInfo, List<Stream<ScannedFile>> streams,
+            Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException {
+        Path workDir = sortWorkspace.isEmpty() ? Paths.get(System.getProperty("java.io.tmpdir"), "acquisition-sort")
+                : Paths.get(sortWorkspace);
+        try (ScannedFileSorter sorter = new ScannedFileSorter(workDir, sortChunkSize);
+                ScannedFilesIterator filesIt = new ScannedFilesIterator(streams)) {
+            while (filesIt.hasNext() && !Thread.currentThread().isInterrupted()) {
+                ScannedFile file;
+                // We catch general exception to avoid AccessDeniedException thrown by stream iterators
+                try {
+                    file = filesIt.next();
+                } catch (Exception e) { // NOSONAR
+                    LOGGER.error("Error parsing file. {}", e.getMessage());
+                    continue;
+                }
+                sorter.add(file);
+            }
+            if ((sorter.size() > 0) && !Thread.currentThread().isInterrupted()) {
+                registerFiles(sorter.sorted(), fileInfo, scanningDate, session, sessionOwner);
+            }
+            LOGGER.info("[{} - {}] Stream scan for files <{}> found {} files", sessionOwner, session,
+                        fileInfo.getComment(), sorter.size());
+        } catch (IOException | ScannedFileSorter.MergeException e) {
+            throw new ModuleException(String.format("Cannot sort scanned files of %s", fileInfo.getComment()), e);
+        }
+    }
+
     @Override
-    public long registerFiles(Iterator<Path> filePathsIt, AcquisitionFileInfo fileInfo,
+    public long registerFiles(Iterator<ScannedFile> filePathsIt, AcquisitionFileInfo fileInfo,
             Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException {
         RegisterFilesResponse response;
         long totalCount = 0;
@@ -753,75 +1002,82 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
             response = self.registerFilesBatch(filePathsIt, fileInfo, scanningDate, BATCH_SIZE, session, sessionOwner);
             totalCount += response.getNumberOfRegisteredFiles();
             // Calculate most recent file registered.
-            if ((lmd == null)
-                    || (lmd.isBefore(response.getLastUpdateDate()) && !Thread.currentThread().isInterrupted())) {
+            if ((response.getLastUpdateDate() != null) && ((lmd == null)
+                    || (lmd.isBefore(response.getLastUpdateDate()) && !Thread.currentThread().isInterrupted()))) {
                 lmd = response.getLastUpdateDate();
             }
             sessionNotifier.notifyFileAcquired(session, sessionOwner, response.getNumberOfRegisteredFiles());
             LOGGER.info("{} new file(s) registered in {} milliseconds", response.getNumberOfRegisteredFiles(),
                         System.currentTimeMillis() - startTime);
         } while (response.hasNext());
+        // Files registered in scan order may be more recent than the ones not registered yet on interruption
+        boolean keepLmd = !Thread.currentThread().isInterrupted()
+                || Boolean.TRUE.equals(fileInfo.getSortScannedFiles());
         // Update file info last update date with the most recent file registered.
-        if ((lmd != null)
+        if ((lmd != null) && keepLmd
                 && ((fileInfo.getLastModificationDate() == null) || lmd.isAfter(fileInfo.getLastModificationDate()))) {
             fileInfo.setLastModificationDate(lmd);
             fileInfoRepository.save(fileInfo);
+            registeredFilesFilter.scanningDateUpdated(fileInfo, scanningDate, lmd);
         }
         return totalCount;
     }
 
     @MultitenantTransactional(propagation = Propagation.REQUIRES_NEW)
     @Override
-    public RegisterFilesResponse registerFilesBatch(Iterator<Path> filePaths, AcquisitionFileInfo info,
+    public RegisterFilesResponse registerFilesBatch(Iterator<ScannedFile> filePaths, AcquisitionFileInfo info,
             Optional<OffsetDateTime> scanningDate, int limit, String session, String sessionOwner)
             throws ModuleException {
-        int countRegistered = 0;
-        OffsetDateTime lastUpdateDate = null;
+        List<ScannedFile> scannedFiles = new ArrayList<>();
         // We catch general exception to avoid AccessDeniedException thrown by FileTreeIterator provided to this method.
         boolean nextPath = true;
-        // First calculate
-        while (nextPath && (countRegistered < limit) && !Thread.currentThread().isInterrupted()) {
+        // First gather all files of the batch
+        while (nextPath && (scannedFiles.size() < limit) && !Thread.currentThread().isInterrupted()) {
             try {
-                Path filePath = filePaths.next();
-                if (registerFile(filePath, info, scanningDate)) {
-                    countRegistered++;
-                    OffsetDateTime lmd;
-                    try {
-                        lmd = OffsetDateTime.ofInstant(Files.getLastModifiedTime(filePath).toInstant(), ZoneOffset.UTC);
-                        if ((lastUpdateDate == null) || lmd.isAfter(lastUpdateDate)) {
-                            lastUpdateDate = lmd;
-                        }
-                    } catch (IOException e) {
-                        LOGGER.error("Error getting last update date for file {} cause : {}.", filePath.toString(),
-                                     e.getMessage());
-                    }
-                }
+                scannedFiles.add(filePaths.next());
+            } catch (ScannedFileSorter.MergeException e) {
+                // Remaining sorted files are lost so registration fails and file info date is not updated
+                throw e;
             } catch (Exception e) { // NOSONAR
                 LOGGER.error("Error parsing file. {}", e.getMessage());
             } finally {
                 nextPath = filePaths.hasNext();
             }
         }
+        // Then remove already registered ones with one request
+        Set<Path> alreadyRegistered = findAlreadyRegistered(scannedFiles, info, scanningDate);
+        List<AcquisitionFile> filesToRegister = new ArrayList<>(scannedFiles.size());
+        OffsetDateTime lastUpdateDate = null;
+        Set<Path> batchPaths = new HashSet<>();
+        for (ScannedFile scannedFile : scannedFiles) {
+            // Skip already registered files and duplicates inside the batch
+            if (!alreadyRegistered.contains(scannedFile.getPath()) && batchPaths.add(scannedFile.getPath())) {
+                filesToRegister.add(initAcquisitionFile(scannedFile.getPath(), info, session, sessionOwner));
+                if ((lastUpdateDate == null) || scannedFile.getLastModificationDate().isAfter(lastUpdateDate)) {
+                    lastUpdateDate = scannedFile.getLastModificationDate();
+                }
+            }
+        }
+        // And insert new ones all at once
+        int countRegistered = acqFileBulkRepository.insertAll(filesToRegister);
+        registeredFilesFilter.registered(info, scanningDate,
+                                         filesToRegister.stream().map(AcquisitionFile::getFilePath)
+                                                 .collect(Collectors.toList()));
         return RegisterFilesResponse.build(countRegistered, lastUpdateDate, filePaths.hasNext());
     }
 
     @Override
-    public boolean registerFile(Path filePath, AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate) {
-        OffsetDateTime lmd;
+    public boolean registerFile(Path filePath, AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate,
+            String session, String sessionOwner) {
         try {
-            // If new file to register date is exactly the same as the last scanning date, check if file is not already acquired.
-            lmd = OffsetDateTime.ofInstant(Files.getLastModifiedTime(filePath).toInstant(), ZoneOffset.UTC);
-            if (scanningDate.isPresent() && lmd.equals(scanningDate.get())
-                    && acqFileRepository.findOneByFilePathIn(filePath).isPresent()) {
+            ScannedFile scannedFile = ScannedFile.build(filePath);
+            if (!findAlreadyRegistered(Collections.singletonList(scannedFile), info, scanningDate).isEmpty()) {
                 return false;
             } else {
-                // Initialize new file
-                AcquisitionFile scannedFile = new AcquisitionFile();
-                scannedFile.setAcqDate(OffsetDateTime.now());
-                scannedFile.setFileInfo(info);
-                scannedFile.setFilePath(filePath);
-                scannedFile.setState(AcquisitionFileState.IN_PROGRESS);
-                acqFileRepository.save(scannedFile);
+                // Same insertion way as batch registration so identifiers are always reserved the same way
+                acqFileBulkRepository
+                        .insertAll(Collections.singletonList(initAcquisitionFile(filePath, info, session, sessionOwner)));
+                registeredFilesFilter.registered(info, scanningDate, Collections.singletonList(filePath));
                 return true;
             }
         } catch (IOException e) {
@@ -830,9 +1086,60 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
         }
     }
 
+    /**
+     * If new file to register date is exactly the same as the last scanning date, the file may already be
+     * registered. All these files are checked with a single request on file path hashes, except the ones the
+     * {@link RegisteredFilesBloomFilter} knows for sure they have never been registered.<br/>
+     * Older files (only detected by snapshot scan) are always checked.
+     * @param scannedFiles scanned files with their last modification date
+     * @return already registered file paths
+     */
+    private Set<Path> findAlreadyRegistered(Collection<ScannedFile> scannedFiles, AcquisitionFileInfo info,
+            Optional<OffsetDateTime> scanningDate) {
+        if (!scanningDate.isPresent()) {
+            return Collections.emptySet();
+        }
+        Map<Long, Path> candidates = new HashMap<>();
+        Set<Path> collisions = new HashSet<>();
+        for (ScannedFile scannedFile : scannedFiles) {
+            Path filePath = scannedFile.getPath();
+            OffsetDateTime lmd = scannedFile.getLastModificationDate();
+            boolean mayBeRegistered = lmd.isBefore(scanningDate.get()) || (lmd.equals(scanningDate.get())
+                    && !registeredFilesFilter.isNeverRegistered(info, scanningDate, filePath));
+            if (mayBeRegistered) {
+                Path previous = candidates.put(AcquisitionFile.computeFilePathHash(filePath), filePath);
+                if (previous != null) {
+                    collisions.add(previous);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Path> expected = new HashSet<>(candidates.values());
+        expected.addAll(collisions);
+        return acqFileRepository.findFilePathByFileInfoAndFilePathHashIn(info, candidates.keySet()).stream()
+                .filter(expected::contains).collect(Collectors.toSet());
+    }
+
+    private AcquisitionFile initAcquisitionFile(Path filePath, AcquisitionFileInfo info, String session,
+            String sessionOwner) {
+        AcquisitionFile scannedFile = new AcquisitionFile();
+        scannedFile.setAcqDate(OffsetDateTime.now());
+        scannedFile.setFileInfo(info);
+        scannedFile.setFilePath(filePath);
+        scannedFile.setState(AcquisitionFileState.IN_PROGRESS);
+        scannedFile.setSession(session);
+        scannedFile.setSessionOwner(sessionOwner);
+        return scannedFile;
+    }
+
     @Override
     public long manageRegisteredFiles(AcquisitionProcessingChain processingChain, String session)
             throws ModuleException {
+        if (linkingParallelism > 1) {
+            return manageRegisteredFilesConcurrently(processingChain, session);
+        }
         long nbProductsScheduled = 0L;
         boolean stop = false;
         while (!Thread.currentThread().isInterrupted() && !stop) {
@@ -848,6 +1155,92 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
         return nbProductsScheduled;
     }
 
+    /**
+     * Link registered files by partitions of product names. Each partition is handled by its own worker so workers
+     * never update the same product.
+     * @return number of scheduled products
+     */
+    private long manageRegisteredFilesConcurrently(AcquisitionProcessingChain processingChain, String session)
+            throws ModuleException {
+        AtomicLong nbProductsScheduled = new AtomicLong();
+        // Set if some files could not be validated in time, they are left for next run
+        AtomicBoolean pending = new AtomicBoolean();
+        boolean stop = false;
+        while (!Thread.currentThread().isInterrupted() && !stop) {
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (Map<Long, ProductNameResult> partition : self.partitionRegisteredFiles(processingChain,
+                                                                                        linkingParallelism)) {
+                if (!partition.isEmpty()) {
+                    workers.add(() -> {
+                        ProductsPage resp = self.manageRegisteredFilesByIds(processingChain, session, partition);
+                        nbProductsScheduled.addAndGet(resp.getScheduled());
+                        if (!resp.hasNext()) {
+                            pending.set(true);
+                        }
+                        return null;
+                    });
+                }
+            }
+            // Works as long as there are registered files left
+            stop = workers.isEmpty();
+            if (!stop) {
+                runConcurrently(workers, linkingParallelism, "acquisition-linking-%d");
+                stop = pending.get();
+            }
+        }
+        // Just trace interruption
+        if (Thread.currentThread().isInterrupted()) {
+            LOGGER.debug("{} thread has been interrupted", this.getClass().getName());
+        }
+        return nbProductsScheduled.get();
+    }
+
+    @MultitenantTransactional(readOnly = true)
+    @Override
+    public List<Map<Long, ProductNameResult>> partitionRegisteredFiles(AcquisitionProcessingChain processingChain,
+            int nbPartitions) throws ModuleException {
+        List<Map<Long, ProductNameResult>> partitions = new ArrayList<>(nbPartitions);
+        for (int i = 0; i < nbPartitions; i++) {
+            partitions.add(new HashMap<>());
+        }
+        // Each partition is about the size of a page
+        Page<AcquisitionFile> page = acqFileRepository
+                .findByStateAndFileInfoInOrderByAcqDateAsc(AcquisitionFileState.IN_PROGRESS,
+                                                           processingChain.getFileInfos(),
+                                                           PageRequest.of(0, AcquisitionProperties.WORKING_UNIT
+                                                                   * nbPartitions));
+        if (page.hasContent()) {
+            IProductPlugin productPlugin = chainDescriptorService.get(processingChain).getProductPlugin();
+            List<AcquisitionFile> files = page.getContent();
+            List<ProductNameResult> productNames = productPlugin
+                    .getProductNames(files.stream().map(AcquisitionFile::getFilePath).collect(Collectors.toList()));
+            if (productNames.size() != files.size()) {
+                throw new ModuleException(String.format("Product plugin returned %d product names for %d files",
+                                                        productNames.size(), files.size()));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                // Files without product name are spread by path, their error is registered while linking
+                ProductNameResult productName = productNames.get(i);
+                String key = !productName.isError() ? productName.getProductName()
+                        : files.get(i).getFilePath().toString();
+                partitions.get(Math.floorMod(key.hashCode(), nbPartitions)).put(files.get(i).getId(), productName);
+            }
+        }
+        return partitions;
+    }
+
+    @MultitenantTransactional(propagation = Propagation.REQUIRES_NEW)
+    @Override
+    public ProductsPage manageRegisteredFilesByIds(AcquisitionProcessingChain processingChain, String session,
+            Map<Long, ProductNameResult> productNames) throws ModuleException {
+        List<AcquisitionFile> files = acqFileRepository.findAllById(productNames.keySet()).stream()
+                .filter(file -> file.getState() == AcquisitionFileState.IN_PROGRESS)
+                .sorted(Comparator.comparing(AcquisitionFile::getAcqDate)).collect(Collectors.toList());
+        LOGGER.debug("Managing {} registered files of a product partition", files.size());
+        // Other partitions may remain, no next page means that some files could not be validated
+        return manageRegisteredFiles(processingChain, session, files, true, productNames);
+    }
+
     @MultitenantTransactional(propagation = Propagation.REQUIRES_NEW)
     @Override
     public ProductsPage manageRegisteredFilesByPage(AcquisitionProcessingChain processingChain, String session)
@@ -860,29 +1253,46 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
                                                            PageRequest.of(0, AcquisitionProperties.WORKING_UNIT));
         LOGGER.debug("Managing next new {} registered files (of {})", page.getNumberOfElements(),
                      page.getTotalElements());
+        return manageRegisteredFiles(processingChain, session, page.getContent(), page.hasNext(),
+                                     Collections.emptyMap());
+    }
+
+    /**
+     * Validate registered files then build and schedule their products
+     * @param files registered files
+     * @param hasNext whether other registered files remain
+     * @param productNames product names already computed by file identifier
+     */
+    private ProductsPage manageRegisteredFiles(AcquisitionProcessingChain processingChain, String session,
+            List<AcquisitionFile> files, boolean hasNext, Map<Long, ProductNameResult> productNames)
+            throws ModuleException {
         long startTime = System.currentTimeMillis();
 
         // Get validation plugin
-        IValidationPlugin validationPlugin;
-        try {
-            validationPlugin = pluginService.getPlugin(processingChain.getValidationPluginConf().getBusinessId());
-        } catch (NotAvailablePluginConfigurationException e1) {
-            throw new ModuleException("Unable to run disabled acquisition chain.", e1);
+        IValidationPlugin validationPlugin = chainDescriptorService.get(processingChain).getValidationPlugin();
+        // Validate files concurrently. Once results are applied, files must be linked even if interrupted meanwhile
+        // otherwise they would be saved as VALID or INVALID without product.
+        if (!fileValidationService.validate(processingChain, validationPlugin, files)) {
+            // Files are not updated, they will be validated at next run
+            return ProductsPage.build(false, 0, 0);
         }
         List<AcquisitionFile> validFiles = new ArrayList<>();
         List<AcquisitionFile> invalidFiles = new ArrayList<>();
-        for (AcquisitionFile inProgressFile : page.getContent()) {
-            // Validate files
-            if (validationPlugin.validate(inProgressFile.getFilePath())) {
-                inProgressFile.setState(AcquisitionFileState.VALID);
+        int notValidated = 0;
+        for (AcquisitionFile inProgressFile : files) {
+            if (inProgressFile.getState() == AcquisitionFileState.VALID) {
                 validFiles.add(inProgressFile);
-            } else {
-                // FIXME move invalid files? Might be delegated to validation plugin!
-                inProgressFile.setState(AcquisitionFileState.INVALID);
-                acqFileRepository.save(inProgressFile);
+            } else if (inProgressFile.getState() == AcquisitionFileState.INVALID) {
                 invalidFiles.add(inProgressFile);
+            } else {
+                notValidated++;
             }
         }
+        if (notValidated > 0) {
+            // Files not validated in time are handled at next run rather than fetched again in this one
+            LOGGER.warn("{} file(s) not validated in time, they will be validated at next run", notValidated);
+        }
+        acqFileRepository.saveAll(invalidFiles);
 
         // Send Notification for invalid files
         if (!invalidFiles.isEmpty()) {
@@ -899,19 +1309,20 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
             }
         }
 
-        LOGGER.debug("Validation of {} file(s) finished with {} valid and {} invalid.", page.getNumberOfElements(),
-                     validFiles.size(), page.getNumberOfElements() - validFiles.size());
+        LOGGER.debug("Validation of {} file(s) finished with {} valid and {} invalid.", files.size(),
+                     validFiles.size(), invalidFiles.size());
 
         // Build and schedule products, for a subset of the current file page
-        Set<Product> products = productService.linkAcquisitionFilesToProducts(processingChain, session, validFiles);
+        Collection<ProductSummary> products = productService
+                .linkAcquisitionFilesToProducts(processingChain, session, validFiles, productNames);
         LOGGER.debug("{} file(s) handles, {} product(s) created or updated in {} milliseconds",
-                     page.getNumberOfElements(), products.size(), System.currentTimeMillis() - startTime);
+                     files.size(), products.size(), System.currentTimeMillis() - startTime);
 
         int scheduledProducts = 0;
         int notScheduledProducts = 0;
 
         // Statistics
-        for (Product product : products) {
+        for (ProductSummary product : products) {
             if (product.getSipState() == ProductSIPState.SCHEDULED) {
                 scheduledProducts++;
             } else {
@@ -919,7 +1330,7 @@ public class AcquisitionProcessingService implements IAcquisitionProcessingServi
             }
         }
         LOGGER.debug("{} product(s) scheduled and {} not.", scheduledProducts, notScheduledProducts);
-        return ProductsPage.build(page.hasNext(), scheduledProducts, notScheduledProducts);
+        return ProductsPage.build(hasNext && (notValidated == 0), scheduledProducts, notScheduledProducts);
     }
 
     @MultitenantTransactional(propagation = Propagation.SUPPORTS)
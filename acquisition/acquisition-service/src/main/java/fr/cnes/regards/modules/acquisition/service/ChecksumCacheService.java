@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+
+import fr.cnes.regards.framework.jpa.converters.PathAttributeConverter;
+import fr.cnes.regards.framework.jpa.multitenant.transactional.MultitenantTransactional;
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.modules.acquisition.dao.IChecksumCacheRepository;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.ChecksumCacheEntry;
+
+/**
+ * Checksum cache service. Checksums are computed by the {@link IChecksumEngine} out of any transaction, database is
+ * only requested for lookups and updates.
+ *
+ * @author REGARDS Team
+ */
+@Service
+public class ChecksumCacheService implements IChecksumCacheService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChecksumCacheService.class);
+
+    /**
+     * Maximum number of entries whose last access is updated with one request
+     */
+    private static final int ACCESS_UPDATE_SIZE = 1000;
+
+    /**
+     * Maximum number of checksums kept in memory, least recently used ones are evicted first
+     */
+    @Value("${regards.acquisition.checksum.cache.size:100000}")
+    private long cacheSize;
+
+    /**
+     * Number of days after which a checksum not accessed anymore is removed from database
+     */
+    @Value("${regards.acquisition.checksum.cache.retention.days:30}")
+    private int retentionDays;
+
+    @Autowired
+    private IChecksumCacheRepository checksumCacheRepository;
+
+    @Autowired
+    private IRuntimeTenantResolver runtimeTenantResolver;
+
+    @Autowired
+    private IChecksumEngine checksumEngine;
+
+    @Autowired
+    private IChecksumCacheService self;
+
+    private Cache<String, ChecksumCacheEntry> cache;
+
+    /**
+     * Identifiers of the entries accessed since last eviction by tenant. Their last access is only written at eviction
+     * time so lookups remain read only.
+     */
+    private final Map<String, Set<Long>> accessedIds = new ConcurrentHashMap<>();
+
+    private final PathAttributeConverter pathConverter = new PathAttributeConverter();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+
+    private final AtomicLong databaseHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    @Override
+    public String getChecksum(Path filePath, String algorithm) throws ModuleException {
+        return getChecksums(Collections.singletonList(filePath), algorithm).get(filePath);
+    }
+
+    @Override
+    public Map<Path, String> getChecksums(Collection<Path> filePaths, String algorithm) throws ModuleException {
+        Map<Path, String> checksums = new LinkedHashMap<>();
+        Map<Path, BasicFileAttributes> missing = new LinkedHashMap<>();
+        for (Path filePath : filePaths) {
+            BasicFileAttributes attributes = readAttributes(filePath);
+            long fileSize = attributes.size();
+            long fileLastModified = attributes.lastModifiedTime().toMillis();
+            ChecksumCacheEntry entry = cache.getIfPresent(getKey(filePath, algorithm));
+            Optional<String> checksum;
+            if ((entry != null) && entry.matches(fileSize, fileLastModified)) {
+                accessed(entry);
+                memoryHits.incrementAndGet();
+                checksum = Optional.of(entry.getChecksum());
+            } else {
+                checksum = self.findChecksum(filePath, algorithm, fileSize, fileLastModified);
+                if (checksum.isPresent()) {
+                    databaseHits.incrementAndGet();
+                } else {
+                    misses.incrementAndGet();
+                    missing.put(filePath, attributes);
+                }
+            }
+            // Keep given order
+            checksums.put(filePath, checksum.orElse(null));
+        }
+        if (!missing.isEmpty()) {
+            // Compute missing checksums in parallel
+            for (Map.Entry<Path, String> computed : checksumEngine.computeChecksums(missing.keySet(), algorithm)
+                    .entrySet()) {
+                Path filePath = computed.getKey();
+                BasicFileAttributes before = missing.get(filePath);
+                BasicFileAttributes after = readAttributes(filePath);
+                // Only keep checksum if file has not changed while it was read
+                if ((after.size() == before.size())
+                        && (after.lastModifiedTime().toMillis() == before.lastModifiedTime().toMillis())) {
+                    self.put(filePath, algorithm, before.size(), before.lastModifiedTime().toMillis(),
+                             computed.getValue());
+                }
+                checksums.put(filePath, computed.getValue());
+            }
+            LOGGER.debug("Checksum cache statistics : {} memory hits, {} database hits, {} misses", memoryHits.get(),
+                         databaseHits.get(), misses.get());
+        }
+        return checksums;
+    }
+
+    private static BasicFileAttributes readAttributes(Path filePath) throws ModuleException {
+        try {
+            return Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new ModuleException(String.format("Error calculating file checksum. Cause %s", e.getMessage()), e);
+        }
+    }
+
+    @Override
+    @MultitenantTransactional(readOnly = true)
+    public Optional<String> findChecksum(Path filePath, String algorithm, long fileSize, long fileLastModified) {
+        Optional<ChecksumCacheEntry> entry = findEntry(filePath, algorithm);
+        if (entry.isPresent()) {
+            cache.put(getKey(filePath, algorithm), entry.get());
+            if (entry.get().matches(fileSize, fileLastModified)) {
+                accessed(entry.get());
+                return Optional.of(entry.get().getChecksum());
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    @MultitenantTransactional
+    public void put(Path filePath, String algorithm, long fileSize, long fileLastModified, String checksum) {
+        checksumCacheRepository.upsert(pathConverter.convertToDatabaseColumn(filePath),
+                                       AcquisitionFile.computeFilePathHash(filePath), algorithm, fileSize,
+                                       fileLastModified, checksum, System.currentTimeMillis());
+        // Read the entry back to know its identifier
+        findEntry(filePath, algorithm).ifPresent(entry -> cache.put(getKey(filePath, algorithm), entry));
+    }
+
+    @Override
+    @MultitenantTransactional
+    public int evictUnusedChecksums() {
+        long now = System.currentTimeMillis();
+        Set<Long> ids = accessedIds.remove(runtimeTenantResolver.getTenant());
+        if (ids != null) {
+            for (List<Long> page : Iterables.partition(new ArrayList<>(ids), ACCESS_UPDATE_SIZE)) {
+                checksumCacheRepository.updateLastAccess(page, now);
+            }
+        }
+        int evicted = checksumCacheRepository.deleteByLastAccessBefore(now - TimeUnit.DAYS.toMillis(retentionDays));
+        if (evicted > 0) {
+            LOGGER.info("{} checksums not accessed for {} days removed from cache", evicted, retentionDays);
+        }
+        return evicted;
+    }
+
+    @Override
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    @Override
+    public long getDatabaseHitCount() {
+        return databaseHits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private void accessed(ChecksumCacheEntry entry) {
+        accessedIds.computeIfAbsent(runtimeTenantResolver.getTenant(), t -> ConcurrentHashMap.newKeySet())
+                .add(entry.getId());
+    }
+
+    private Optional<ChecksumCacheEntry> findEntry(Path filePath, String algorithm) {
+        return checksumCacheRepository
+                .findByFilePathHashAndAlgorithm(AcquisitionFile.computeFilePathHash(filePath), algorithm).stream()
+                .filter(e -> filePath.equals(e.getFilePath())).findFirst();
+    }
+
+    private String getKey(Path filePath, String algorithm) {
+        return runtimeTenantResolver.getTenant() + ":" + algorithm + ":" + filePath;
+    }
+}
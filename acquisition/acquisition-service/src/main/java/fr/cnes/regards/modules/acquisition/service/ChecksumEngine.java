@@ -0,0 +1,336 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Checksum;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+
+/**
+ * Checksum engine reading files with {@link FileChannel}s into direct buffers.<br/>
+ * Direct buffers are taken from a pool bounded by the engine parallelism, whatever the number of calling threads.<br/>
+ * CRC32C uses <code>java.util.zip.CRC32C</code> (JVM intrinsic) when running on Java 9 or later, Guava otherwise.
+ *
+ * @author REGARDS Team
+ */
+@Service
+public class ChecksumEngine implements IChecksumEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChecksumEngine.class);
+
+    /**
+     * Size of the heap chunks used to feed Guava CRC32C from direct buffers
+     */
+    private static final int HEAP_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * <code>java.util.zip.CRC32C</code> constructor and <code>update(ByteBuffer)</code>, null before Java 9
+     */
+    private static final MethodHandle CRC32C_CONSTRUCTOR;
+
+    private static final MethodHandle CRC32C_UPDATE;
+
+    static {
+        MethodHandle constructor = null;
+        MethodHandle update = null;
+        try {
+            Class<?> crc32c = Class.forName("java.util.zip.CRC32C");
+            constructor = MethodHandles.publicLookup().findConstructor(crc32c, MethodType.methodType(void.class));
+            update = MethodHandles.publicLookup()
+                    .findVirtual(Checksum.class, "update", MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("JVM CRC32C not available, using Guava implementation");
+        }
+        CRC32C_CONSTRUCTOR = constructor;
+        CRC32C_UPDATE = update;
+    }
+
+    @Value("${regards.acquisition.checksum.parallelism:4}")
+    private int parallelism;
+
+    @Value("${regards.acquisition.checksum.buffer.size:4194304}")
+    private int bufferSize;
+
+    private ExecutorService executor;
+
+    /**
+     * Released read buffers, at most {@link #maxBuffers} are allocated
+     */
+    private final BlockingQueue<ReadBuffers> bufferPool = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger allocatedBuffers = new AtomicInteger();
+
+    private int maxBuffers;
+
+    /**
+     * Use <code>java.util.zip.CRC32C</code> if available
+     */
+    private boolean jvmCrc32c = CRC32C_CONSTRUCTOR != null;
+
+    @PostConstruct
+    public void init() {
+        maxBuffers = Math.max(1, parallelism);
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("acquisition-checksum-%d").build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isSupported(String algorithm) {
+        if ((algorithm == null) || algorithm.isEmpty()) {
+            return false;
+        }
+        try {
+            newDigester(algorithm, null);
+            return true;
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String computeChecksum(Path filePath, String algorithm) throws ModuleException {
+        try {
+            ReadBuffers buffers = acquireBuffers();
+            try {
+                Digester digester = newDigester(algorithm, buffers);
+                ByteBuffer buffer = buffers.direct;
+                try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                    buffer.clear();
+                    while (channel.read(buffer) != -1) {
+                        buffer.flip();
+                        digester.update(buffer);
+                        buffer.clear();
+                    }
+                }
+                return digester.getHexValue();
+            } finally {
+                bufferPool.offer(buffers);
+            }
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new ModuleException(String.format("Error calculating file checksum. Cause %s", e.getMessage()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModuleException("Checksum computation interrupted", e);
+        }
+    }
+
+    /**
+     * Take released buffers, allocate new ones if the pool is not full or wait for buffers to be released
+     */
+    private ReadBuffers acquireBuffers() throws InterruptedException {
+        ReadBuffers buffers = bufferPool.poll();
+        if (buffers != null) {
+            return buffers;
+        }
+        int allocated = allocatedBuffers.get();
+        while (allocated < maxBuffers) {
+            if (allocatedBuffers.compareAndSet(allocated, allocated + 1)) {
+                return new ReadBuffers(ByteBuffer.allocateDirect(bufferSize));
+            }
+            allocated = allocatedBuffers.get();
+        }
+        return bufferPool.take();
+    }
+
+    @Override
+    public Map<Path, String> computeChecksums(Collection<Path> filePaths, String algorithm) throws ModuleException {
+        Map<Path, String> checksums = new LinkedHashMap<>();
+        if ((filePaths.size() <= 1) || (parallelism <= 1)) {
+            for (Path filePath : filePaths) {
+                checksums.put(filePath, computeChecksum(filePath, algorithm));
+            }
+            return checksums;
+        }
+        List<Future<String>> futures = new ArrayList<>(filePaths.size());
+        try {
+            for (Path filePath : filePaths) {
+                futures.add(executor.submit(() -> computeChecksum(filePath, algorithm)));
+            }
+            int i = 0;
+            for (Path filePath : filePaths) {
+                checksums.put(filePath, futures.get(i++).get());
+            }
+            return checksums;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ModuleException) {
+                throw (ModuleException) e.getCause();
+            }
+            throw new ModuleException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModuleException("Checksum computation interrupted", e);
+        } finally {
+            // Cancel remaining computations, if any
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Digester newDigester(String algorithm, ReadBuffers buffers) throws NoSuchAlgorithmException {
+        if (CRC32C.equalsIgnoreCase(algorithm)) {
+            return jvmCrc32c ? new JvmCrc32cDigester() : new GuavaCrc32cDigester(buffers);
+        }
+        return new MessageDigestDigester(MessageDigest.getInstance(algorithm));
+    }
+
+    /**
+     * Direct buffer files are read into and heap chunk used to feed Guava CRC32C, allocated on first use
+     */
+    private static class ReadBuffers {
+
+        private final ByteBuffer direct;
+
+        private byte[] heapChunk;
+
+        private ReadBuffers(ByteBuffer direct) {
+            this.direct = direct;
+        }
+
+        private byte[] getHeapChunk() {
+            if (heapChunk == null) {
+                heapChunk = new byte[HEAP_CHUNK_SIZE];
+            }
+            return heapChunk;
+        }
+    }
+
+    /**
+     * Incremental checksum fed with buffers
+     */
+    private interface Digester {
+
+        /**
+         * Consume all remaining bytes of the buffer
+         */
+        void update(ByteBuffer buffer);
+
+        String getHexValue();
+    }
+
+    private static class MessageDigestDigester implements Digester {
+
+        private final MessageDigest digest;
+
+        private MessageDigestDigester(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            digest.update(buffer);
+        }
+
+        @Override
+        public String getHexValue() {
+            return BaseEncoding.base16().lowerCase().encode(digest.digest());
+        }
+    }
+
+    private static class JvmCrc32cDigester implements Digester {
+
+        private final Checksum checksum;
+
+        private JvmCrc32cDigester() {
+            try {
+                checksum = (Checksum) CRC32C_CONSTRUCTOR.invoke();
+            } catch (Throwable e) { // NOSONAR
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            try {
+                CRC32C_UPDATE.invoke(checksum, buffer);
+            } catch (Throwable e) { // NOSONAR
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String getHexValue() {
+            return String.format("%08x", checksum.getValue());
+        }
+    }
+
+    private static class GuavaCrc32cDigester implements Digester {
+
+        private final Hasher hasher = Hashing.crc32c().newHasher();
+
+        private final ReadBuffers buffers;
+
+        private GuavaCrc32cDigester(ReadBuffers buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            byte[] chunk = buffers.getHeapChunk();
+            while (buffer.hasRemaining()) {
+                int length = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, length);
+                hasher.putBytes(chunk, 0, length);
+            }
+        }
+
+        @Override
+        public String getHexValue() {
+            return String.format("%08x", hasher.hash().asInt() & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+import fr.cnes.regards.modules.acquisition.domain.chain.ScannedDirectory;
+import fr.cnes.regards.modules.acquisition.plugins.IDirectoryIndex;
+
+/**
+ * {@link IDirectoryIndex} built from the {@link ScannedDirectory}s of the last successful scan of a file info.<br/>
+ * Directories modified less than {@link #STABILITY_DELAY_MS} before the scan are recorded without modification date
+ * as new entries may still be added within the same file system time unit. They will be listed again at next scan,
+ * as well as directories which could not be fully read.
+ *
+ * @author REGARDS Team
+ */
+public class DirectoryIndex implements IDirectoryIndex {
+
+    private static final long STABILITY_DELAY_MS = 2000;
+
+    private final Long fileInfoId;
+
+    private final long scanStart;
+
+    private final Map<Path, Long> previousModifications = new HashMap<>();
+
+    private final Multimap<Path, Path> previousSubDirectories = ArrayListMultimap.create();
+
+    private final Map<Path, ScannedDirectory> visitedDirectories = new ConcurrentHashMap<>();
+
+    public DirectoryIndex(Long fileInfoId, List<ScannedDirectory> previousScan) {
+        this.fileInfoId = fileInfoId;
+        this.scanStart = System.currentTimeMillis();
+        for (ScannedDirectory dir : previousScan) {
+            if (dir.getLastModified() != null) {
+                previousModifications.put(dir.getDirPath(), dir.getLastModified());
+            }
+            if (dir.getDirPath().getParent() != null) {
+                previousSubDirectories.put(dir.getDirPath().getParent(), dir.getDirPath());
+            }
+        }
+    }
+
+    @Override
+    public boolean isUnchanged(Path dir, BasicFileAttributes attributes) {
+        Long previous = previousModifications.get(dir);
+        return (previous != null) && (previous == attributes.lastModifiedTime().toMillis());
+    }
+
+    @Override
+    public Collection<Path> getSubDirectories(Path dir) {
+        return previousSubDirectories.get(dir);
+    }
+
+    @Override
+    public void visited(Path dir, BasicFileAttributes attributes, boolean complete) {
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        boolean trusted = complete && (lastModified < (scanStart - STABILITY_DELAY_MS));
+        visitedDirectories.put(dir, ScannedDirectory.build(fileInfoId, dir, trusted ? lastModified : null));
+    }
+
+    /**
+     * @return true if scan plugin has used the index
+     */
+    public boolean isUsed() {
+        return !visitedDirectories.isEmpty();
+    }
+
+    public Collection<ScannedDirectory> getVisitedDirectories() {
+        return visitedDirectories.values();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import fr.cnes.regards.framework.jpa.multitenant.transactional.MultitenantTransactional;
+import fr.cnes.regards.modules.acquisition.dao.IScannedDirectoryRepository;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+
+/**
+ * Directory index service
+ *
+ * @author REGARDS Team
+ */
+@Service
+@MultitenantTransactional
+public class DirectoryIndexService implements IDirectoryIndexService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryIndexService.class);
+
+    @Autowired
+    private IScannedDirectoryRepository scannedDirRepository;
+
+    @Override
+    public DirectoryIndex load(AcquisitionFileInfo fileInfo) {
+        return new DirectoryIndex(fileInfo.getId(), scannedDirRepository.findByFileInfoId(fileInfo.getId()));
+    }
+
+    @Override
+    public void save(AcquisitionFileInfo fileInfo, DirectoryIndex index) {
+        if (index.isUsed()) {
+            scannedDirRepository.deleteByFileInfoId(fileInfo.getId());
+            scannedDirRepository.saveAll(index.getVisitedDirectories());
+            LOGGER.debug("Directory index of file info <{}> updated with {} directories", fileInfo.getComment(),
+                         index.getVisitedDirectories().size());
+        }
+    }
+
+    @Override
+    public void reset(Long fileInfoId) {
+        scannedDirRepository.deleteByFileInfoId(fileInfoId);
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
+import fr.cnes.regards.modules.acquisition.domain.FileValidationResult;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
+
+/**
+ * Validate files on a bounded executor per chain so slow validations (i.e. file reading on network file systems) run
+ * concurrently. Files are split in contiguous batches, one per worker. Each worker gives its whole batch to the
+ * validation plugin so it can share work between files, within the timeout of all its files. A batch exceeding it is
+ * validated again one file after the other, each file being given its own timeout, so the file blocking the batch is
+ * isolated. Results are always applied in file order.
+ *
+ * @author REGARDS Team
+ */
+@Service
+public class FileValidationService implements IFileValidationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileValidationService.class);
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_S = 60;
+
+    @Value("${regards.acquisition.validation.parallelism:4}")
+    private int validationParallelism;
+
+    /**
+     * Maximum duration of one file validation. A batch is given this duration for each of its files.
+     */
+    @Value("${regards.acquisition.validation.timeout.ms:60000}")
+    private long validationTimeout;
+
+    @Autowired
+    private IRuntimeTenantResolver runtimeTenantResolver;
+
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean validate(AcquisitionProcessingChain processingChain, IValidationPlugin validationPlugin,
+            List<AcquisitionFile> files) throws ModuleException {
+        if ((validationParallelism <= 1) || (files.size() <= 1)) {
+            // Collect results before updating files so an interrupted validation leaves all files unchanged
+            List<FileValidationResult> results = validationPlugin.validate(getFilePaths(files));
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            setValidationResults(files, results);
+            return true;
+        }
+        // Split files in contiguous batches, one per worker
+        String tenant = runtimeTenantResolver.getTenant();
+        ExecutorService executor = getExecutor(tenant, processingChain);
+        int batchSize = ((files.size() + validationParallelism) - 1) / validationParallelism;
+        List<ValidationTask> tasks = new ArrayList<>();
+        for (int from = 0; from < files.size(); from += batchSize) {
+            ValidationTask task = new ValidationTask(files.subList(from, Math.min(from + batchSize, files.size())),
+                    validationPlugin, tenant, false);
+            task.future = executor.submit(task::call);
+            tasks.add(task);
+        }
+        try {
+            // Collect all results before updating files so an interrupted validation leaves all files unchanged
+            List<List<FileValidationResult>> results = new ArrayList<>(tasks.size());
+            for (ValidationTask task : tasks) {
+                results.add(waitFor(task, executor));
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                setValidationResults(tasks.get(i).files, results.get(i));
+            }
+            return true;
+        } catch (InterruptedException e) {
+            LOGGER.debug("{} thread has been interrupted", this.getClass().getName());
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            // Cancel remaining validations, if any
+            tasks.forEach(task -> task.future.cancel(true));
+        }
+    }
+
+    /**
+     * Wait for the validation results of the given task.<br/>
+     * Once a batch task is started, it is given the configured timeout for each of its files. If it exceeds it, the
+     * task is cancelled and its files are validated again one by one.<br/>
+     * Once a file by file task is started, each file is given the configured timeout. If a file exceeds it, the task is
+     * cancelled : this file is invalid and the following ones are not validated.<br/>
+     * Before a task starts, it is given the timeout of all its files from its submission so a task that never gets a
+     * worker is not waited for forever.
+     * @return validation results of the task files, null for files not validated
+     */
+    private List<FileValidationResult> waitFor(ValidationTask task, ExecutorService executor)
+            throws InterruptedException, ModuleException {
+        while (true) {
+            long wait;
+            int current = task.current;
+            if (current < 0) {
+                wait = (task.submitTime + (validationTimeout * task.files.size())) - System.currentTimeMillis();
+            } else if (task.perFile) {
+                wait = (task.currentStartTime + validationTimeout) - System.currentTimeMillis();
+            } else {
+                wait = (task.currentStartTime + (validationTimeout * task.files.size())) - System.currentTimeMillis();
+            }
+            try {
+                return task.future.get(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Check the file in progress did not change while waiting
+                if (current == task.current) {
+                    task.future.cancel(true);
+                    if ((current >= 0) && !task.perFile) {
+                        return validatePerFile(task, executor);
+                    }
+                    return timedOut(task, current);
+                }
+            } catch (CancellationException e) {
+                return task.getResults();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ModuleException) {
+                    throw (ModuleException) e.getCause();
+                }
+                throw new ModuleException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Validate again the files of a timed out batch one after the other to isolate the file(s) blocking it
+     */
+    private List<FileValidationResult> validatePerFile(ValidationTask batch, ExecutorService executor)
+            throws InterruptedException, ModuleException {
+        LOGGER.warn("Validation of a batch of {} file(s) timed out after {} milliseconds, its files are validated "
+                + "again one by one", batch.files.size(), validationTimeout * batch.files.size());
+        ValidationTask task = new ValidationTask(batch.files, batch.validationPlugin, batch.tenant, true);
+        task.future = executor.submit(task::call);
+        try {
+            return waitFor(task, executor);
+        } finally {
+            task.future.cancel(true);
+        }
+    }
+
+    /**
+     * @param current index of the file in progress, negative if task has not started
+     * @return results of the files validated before the timeout
+     */
+    private List<FileValidationResult> timedOut(ValidationTask task, int current) {
+        List<FileValidationResult> results = task.getResults();
+        if (current < 0) {
+            LOGGER.warn("Validation of {} file(s) not started after {} milliseconds, they will be validated later",
+                        task.files.size(), validationTimeout * task.files.size());
+        } else if (results.get(current) == null) {
+            Path filePath = task.files.get(current).getFilePath();
+            LOGGER.warn("Validation of file {} timed out after {} milliseconds, {} following file(s) will be "
+                    + "validated later", filePath, validationTimeout, task.files.size() - current - 1);
+            results.set(current, FileValidationResult
+                    .invalid(filePath, String.format("Validation timed out after %d ms", validationTimeout)));
+        }
+        return results;
+    }
+
+    private static List<Path> getFilePaths(List<AcquisitionFile> files) {
+        return files.stream().map(AcquisitionFile::getFilePath).collect(Collectors.toList());
+    }
+
+    private static void setValidationResults(List<AcquisitionFile> files, List<FileValidationResult> results)
+            throws ModuleException {
+        if (results.size() != files.size()) {
+            throw new ModuleException(String.format("Validation plugin returned %d result(s) for %d file(s)",
+                                                    results.size(), files.size()));
+        }
+        for (int i = 0; i < files.size(); i++) {
+            AcquisitionFile file = files.get(i);
+            FileValidationResult result = results.get(i);
+            if (result == null) {
+                // Not validated, file stays in progress
+                continue;
+            }
+            if (result.isValid()) {
+                file.setState(AcquisitionFileState.VALID);
+                if (result.getChecksum() != null) {
+                    // Keep checksum so SIP generation does not read the file again
+                    file.setChecksum(result.getChecksumAlgorithm(), result.getChecksum(), result.getFileSize(),
+                                     result.getFileLastModified());
+                }
+            } else {
+                // FIXME move invalid files? Might be delegated to validation plugin!
+                file.setState(AcquisitionFileState.INVALID);
+                file.setError(result.getReason());
+            }
+        }
+    }
+
+    /**
+     * Executors are kept per chain so a chain cannot starve the others. Their idle threads stop after
+     * {@link #IDLE_THREAD_KEEP_ALIVE_S} seconds so chains that are not running do not hold any thread.
+     */
+    private ExecutorService getExecutor(String tenant, AcquisitionProcessingChain processingChain) {
+        return executors.computeIfAbsent(getKey(tenant, processingChain.getId()), key -> {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(validationParallelism, validationParallelism,
+                    IDLE_THREAD_KEEP_ALIVE_S, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat("acquisition-validation-" + processingChain.getId() + "-%d").build());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    @Override
+    public void release(Long processingChainId) {
+        ExecutorService executor = executors.remove(getKey(runtimeTenantResolver.getTenant(), processingChainId));
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executors.values().forEach(ExecutorService::shutdownNow);
+        executors.clear();
+    }
+
+    private static String getKey(String tenant, Long processingChainId) {
+        return tenant + ":" + processingChainId;
+    }
+
+    /**
+     * Validation of a batch of files, at once or one file after the other recording the file in progress
+     */
+    private class ValidationTask {
+
+        private final List<AcquisitionFile> files;
+
+        private final IValidationPlugin validationPlugin;
+
+        private final String tenant;
+
+        /**
+         * Whether files are validated one after the other, each with its own timeout
+         */
+        private final boolean perFile;
+
+        private final long submitTime = System.currentTimeMillis();
+
+        private final AtomicReferenceArray<FileValidationResult> results;
+
+        /**
+         * Index of the file in progress, negative before the task starts. Always 0 once a batch task is started.
+         */
+        private volatile int current = -1;
+
+        private volatile long currentStartTime = 0;
+
+        private Future<List<FileValidationResult>> future;
+
+        private ValidationTask(List<AcquisitionFile> files, IValidationPlugin validationPlugin, String tenant,
+                boolean perFile) {
+            this.files = files;
+            this.validationPlugin = validationPlugin;
+            this.tenant = tenant;
+            this.perFile = perFile;
+            this.results = new AtomicReferenceArray<>(files.size());
+        }
+
+        private List<FileValidationResult> call() throws ModuleException {
+            runtimeTenantResolver.forceTenant(tenant);
+            try {
+                if (!perFile) {
+                    currentStartTime = System.currentTimeMillis();
+                    current = 0;
+                    List<FileValidationResult> batchResults = validationPlugin.validate(getFilePaths(files));
+                    if (batchResults.size() != files.size()) {
+                        throw new ModuleException(String
+                                .format("Validation plugin returned %d result(s) for %d file(s)", batchResults.size(),
+                                        files.size()));
+                    }
+                    for (int i = 0; i < files.size(); i++) {
+                        results.set(i, batchResults.get(i));
+                    }
+                    return getResults();
+                }
+                for (int i = 0; (i < files.size()) && !Thread.currentThread().isInterrupted(); i++) {
+                    currentStartTime = System.currentTimeMillis();
+                    current = i;
+                    List<FileValidationResult> fileResults = validationPlugin
+                            .validate(Collections.singletonList(files.get(i).getFilePath()));
+                    if (fileResults.size() != 1) {
+                        throw new ModuleException(String.format("Validation plugin returned %d result(s) for 1 file",
+                                                                fileResults.size()));
+                    }
+                    results.set(i, fileResults.get(0));
+                }
+                return getResults();
+            } finally {
+                runtimeTenantResolver.clearTenant();
+            }
+        }
+
+        /**
+         * @return results of the validated files, null for others
+         */
+        private List<FileValidationResult> getResults() {
+            List<FileValidationResult> list = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                list.add(results.get(i));
+            }
+            return list;
+        }
+    }
+}
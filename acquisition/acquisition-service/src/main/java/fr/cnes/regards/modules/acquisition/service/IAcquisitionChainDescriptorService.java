@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+
+/**
+ * Cache of {@link AcquisitionChainDescriptor}s so plugins and chain requirements are not loaded again for each page
+ * of files or products.
+ *
+ * @author REGARDS Team
+ */
+public interface IAcquisitionChainDescriptorService {
+
+    /**
+     * Get the descriptor of the given chain, compiling it from the chain loaded from database if not cached
+     * @param chain chain (only its identifier is used)
+     * @return {@link AcquisitionChainDescriptor}
+     * @throws ModuleException if a plugin of the chain cannot be instantiated
+     */
+    AcquisitionChainDescriptor get(AcquisitionProcessingChain chain) throws ModuleException;
+
+    /**
+     * Forget the descriptor of a chain. Must be called each time the chain or its plugin configurations change.<br/>
+     * Within a transaction, the descriptor is forgotten again once the transaction completes so a descriptor compiled
+     * meanwhile from the previous chain state is not kept.
+     */
+    void invalidate(Long chainId);
+}
@@ -23,6 +23,7 @@ import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
@@ -31,8 +32,10 @@ import org.springframework.data.domain.Pageable;
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.jobs.domain.JobInfo;
 import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductNameResult;
 import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
 import fr.cnes.regards.modules.acquisition.domain.ProductsPage;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChainMode;
@@ -210,8 +213,9 @@ public interface IAcquisitionProcessingService {
     void scanAndRegisterFiles(AcquisitionProcessingChain processingChain, String session) throws ModuleException;
 
     /**
-     * Register multiple files in one transaction
-     * @param filePaths paths of the files to register
+     * Register multiple files in one transaction. New files are inserted all at once at the end of the batch using
+     * JDBC batching.
+     * @param filePaths files to register with the attributes read while scanning
      * @param info related file info
      * @param scanningDate reference date used to launch scan plugin
      * @param updateFileInfo does the fileInfo last modification date should be updated
@@ -219,13 +223,13 @@ public interface IAcquisitionProcessingService {
      * @param limit maximum number of files to register
      * @return number of registered files
      */
-    RegisterFilesResponse registerFilesBatch(Iterator<Path> filePaths, AcquisitionFileInfo info,
+    RegisterFilesResponse registerFilesBatch(Iterator<ScannedFile> filePaths, AcquisitionFileInfo info,
             Optional<OffsetDateTime> scanningDate, int limit, String session, String sessionOwner)
             throws ModuleException;
 
     /**
      * Register multiple files by creating multiple transactions by batch
-     * @param filePathsIt
+     * @param filePathsIt files to register with the attributes read while scanning
      * @param fileInfo
      * @param scanningDate
      * @param session
@@ -233,7 +237,7 @@ public interface IAcquisitionProcessingService {
      * @return
      * @throws ModuleException
      */
-    public long registerFiles(Iterator<Path> filePathsIt, AcquisitionFileInfo fileInfo,
+    public long registerFiles(Iterator<ScannedFile> filePathsIt, AcquisitionFileInfo fileInfo,
             Optional<OffsetDateTime> scanningDate, String session, String sessionOwner) throws ModuleException;
 
     /**
@@ -241,10 +245,12 @@ public interface IAcquisitionProcessingService {
      * @param filePath path of the file to register
      * @param info related file info
      * @param scanningDate reference date used to launch scan plugin
+     * @param session session of the registered file
+     * @param sessionOwner session owner of the registered file
      * @return true if really registered
      */
-    boolean registerFile(Path filePath, AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate)
-            throws ModuleException;
+    boolean registerFile(Path filePath, AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate,
+            String session, String sessionOwner) throws ModuleException;
 
     /**
      * Manage new registered file : prepare or fulfill products and schedule SIP generation as soon as possible
@@ -258,6 +264,26 @@ public interface IAcquisitionProcessingService {
     ProductsPage manageRegisteredFilesByPage(AcquisitionProcessingChain processingChain, String session)
             throws ModuleException;
 
+    /**
+     * Split the next registered files of the chain by hash of their product name so files of a product always fall
+     * in the same partition
+     * @param nbPartitions number of partitions
+     * @return product name computed for each file by file identifier, for each partition. All partitions are empty if
+     *         no registered file remains.
+     */
+    List<Map<Long, ProductNameResult>> partitionRegisteredFiles(AcquisitionProcessingChain processingChain,
+            int nbPartitions) throws ModuleException;
+
+    /**
+     * Same action as {@link #manageRegisteredFilesByPage(AcquisitionProcessingChain, String)} for the given registered
+     * files, in a new transaction
+     * @param productNames product names computed by {@link #partitionRegisteredFiles(AcquisitionProcessingChain, int)}
+     *            by identifier of the files to handle
+     * @return page without next one if some files could not be validated in time and are left for next run
+     */
+    ProductsPage manageRegisteredFilesByIds(AcquisitionProcessingChain processingChain, String session,
+            Map<Long, ProductNameResult> productNames) throws ModuleException;
+
     /**
      * Restart jobs in {@link ProductSIPState#SCHEDULED_INTERRUPTED} for processing chain
      */
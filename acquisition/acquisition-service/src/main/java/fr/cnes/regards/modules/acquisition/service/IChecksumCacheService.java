@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.modules.acquisition.domain.ChecksumCacheEntry;
+
+/**
+ * Cache of file checksums keyed by file path, size, last modification time and algorithm so unchanged files are not
+ * read again when SIPs are generated again.<br/>
+ * Most recently used checksums are kept in memory, all checksums are persisted as {@link ChecksumCacheEntry} until
+ * they are not accessed anymore during the configured retention.
+ *
+ * @author REGARDS Team
+ */
+public interface IChecksumCacheService {
+
+    /**
+     * Get the checksum of the given file, computing it only if file has changed since the last computation
+     * @param filePath file
+     * @param algorithm checksum algorithm
+     * @return hexadecimal checksum
+     * @throws ModuleException if file cannot be read or algorithm is unknown
+     */
+    String getChecksum(Path filePath, String algorithm) throws ModuleException;
+
+    /**
+     * Same as {@link #getChecksum(Path, String)} for several files. Missing checksums are computed in parallel.
+     * @return hexadecimal checksum of each file, in the given order
+     */
+    Map<Path, String> getChecksums(Collection<Path> filePaths, String algorithm) throws ModuleException;
+
+    /**
+     * Look for a checksum computed against the given file size and last modification time
+     * @return checksum if known
+     */
+    Optional<String> findChecksum(Path filePath, String algorithm, long fileSize, long fileLastModified);
+
+    /**
+     * Record a checksum computed against the given file size and last modification time
+     */
+    void put(Path filePath, String algorithm, long fileSize, long fileLastModified, String checksum);
+
+    /**
+     * Record the last access of checksums found since the previous call and remove checksums not accessed during the
+     * retention period from database
+     * @return number of removed checksums
+     */
+    int evictUnusedChecksums();
+
+    /**
+     * @return number of checksums found in memory since startup
+     */
+    long getMemoryHitCount();
+
+    /**
+     * @return number of checksums found in database since startup
+     */
+    long getDatabaseHitCount();
+
+    /**
+     * @return number of checksums computed since startup
+     */
+    long getMissCount();
+}
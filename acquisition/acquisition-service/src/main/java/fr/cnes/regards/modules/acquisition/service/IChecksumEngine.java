@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+
+/**
+ * Compute file checksums reading files through reusable direct buffers. Several files are hashed in parallel on a
+ * bounded pool shared by all chains.
+ *
+ * @author REGARDS Team
+ */
+public interface IChecksumEngine {
+
+    /**
+     * CRC32C algorithm name, computed with the JVM intrinsic when available
+     */
+    String CRC32C = "CRC32C";
+
+    /**
+     * @return true if the given algorithm is {@link #CRC32C} or a {@link java.security.MessageDigest} algorithm
+     */
+    boolean isSupported(String algorithm);
+
+    /**
+     * Compute the checksum of a file in the calling thread
+     * @param filePath file
+     * @param algorithm checksum algorithm
+     * @return hexadecimal checksum
+     * @throws ModuleException if file cannot be read or algorithm is not supported
+     */
+    String computeChecksum(Path filePath, String algorithm) throws ModuleException;
+
+    /**
+     * Compute the checksums of several files in parallel
+     * @param filePaths files
+     * @param algorithm checksum algorithm
+     * @return hexadecimal checksum of each file, in the given order
+     * @throws ModuleException if a file cannot be read, algorithm is not supported or current thread is interrupted
+     */
+    Map<Path, String> computeChecksums(Collection<Path> filePaths, String algorithm) throws ModuleException;
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+
+/**
+ * Persistence of the {@link DirectoryIndex} of each {@link AcquisitionFileInfo}
+ *
+ * @author REGARDS Team
+ */
+public interface IDirectoryIndexService {
+
+    /**
+     * @return index of the directories seen during last successful scan of the given file info
+     */
+    DirectoryIndex load(AcquisitionFileInfo fileInfo);
+
+    /**
+     * Replace the index of the given file info after a successful scan. Nothing is done if the index has not been
+     * used by the scan plugin.
+     */
+    void save(AcquisitionFileInfo fileInfo, DirectoryIndex index);
+
+    /**
+     * Remove the index of the given file info so next scan lists all directories
+     */
+    void reset(Long fileInfoId);
+}
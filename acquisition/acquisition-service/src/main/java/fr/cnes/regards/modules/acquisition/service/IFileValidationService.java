@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.util.List;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
+
+/**
+ * Validation stage of the registered {@link AcquisitionFile}s
+ *
+ * @author REGARDS Team
+ */
+public interface IFileValidationService {
+
+    /**
+     * Validate the given files concurrently, by batches, with the validation executor of the chain.<br/>
+     * Each file state is set to VALID or INVALID (with the rejection reason as error) in the order of the given list.
+     * A file whose validation exceeds the configured timeout is INVALID and the following files of its batch are left
+     * IN_PROGRESS, as well as the files of a batch that could not be started in time. If current thread is
+     * interrupted, files are left unchanged.
+     * @param processingChain chain of the files
+     * @param validationPlugin validation plugin of the chain, must be thread safe
+     * @param files files to validate
+     * @return false if current thread has been interrupted, files are then left unchanged
+     * @throws ModuleException if validation plugin fails
+     */
+    boolean validate(AcquisitionProcessingChain processingChain, IValidationPlugin validationPlugin,
+            List<AcquisitionFile> files) throws ModuleException;
+
+    /**
+     * Release the validation executor of the given chain
+     */
+    void release(Long processingChainId);
+}
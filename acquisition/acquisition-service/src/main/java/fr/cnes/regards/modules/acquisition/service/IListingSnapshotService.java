@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+
+/**
+ * Persistence of the {@link ListingSnapshot} of each {@link AcquisitionFileInfo} using snapshot scan
+ *
+ * @author REGARDS Team
+ */
+public interface IListingSnapshotService {
+
+    /**
+     * Open the snapshot of the given file info
+     */
+    ListingSnapshot open(AcquisitionFileInfo fileInfo) throws ModuleException;
+
+    /**
+     * Remove the snapshot of the given file info so next scan starts from scratch
+     */
+    void reset(Long fileInfoId);
+}
@@ -21,6 +21,7 @@ package fr.cnes.regards.modules.acquisition.service;
 import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -31,8 +32,10 @@ import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.jobs.domain.JobInfo;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
 import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductNameResult;
 import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
 import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
 import fr.cnes.regards.modules.acquisition.domain.ProductsPage;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
 import fr.cnes.regards.modules.acquisition.exception.SIPGenerationException;
@@ -162,12 +165,23 @@ public interface IProductService {
      * Link acquired files to theirs products creating or updating them.<br/>
      * If product is completed or finished, a SIP generation job is scheduled.
      *
+     * Products are handled through their {@link ProductSummary} so their files, jobs and SIP are never loaded.
+     *
      * @param processingChain the related {@link AcquisitionProcessingChain}
      * @param session job session
-     * @return the existing {@link Product} corresponding to the product name
+     * @return the {@link ProductSummary} of each created or updated {@link Product}
+     */
+    Collection<ProductSummary> linkAcquisitionFilesToProducts(AcquisitionProcessingChain processingChain,
+            String session, List<AcquisitionFile> validFiles) throws ModuleException;
+
+    /**
+     * Same as {@link #linkAcquisitionFilesToProducts(AcquisitionProcessingChain, String, List)} reusing product names
+     * already computed for some files
+     * @param productNames product names by file identifier, names of other files are computed
      */
-    Set<Product> linkAcquisitionFilesToProducts(AcquisitionProcessingChain processingChain, String session,
-            List<AcquisitionFile> validFiles) throws ModuleException;
+    Collection<ProductSummary> linkAcquisitionFilesToProducts(AcquisitionProcessingChain processingChain,
+            String session, List<AcquisitionFile> validFiles, Map<Long, ProductNameResult> productNames)
+            throws ModuleException;
 
     /**
      * Handle product {@link fr.cnes.regards.modules.acquisition.service.job.SIPGenerationJob} failure
@@ -256,16 +270,18 @@ public interface IProductService {
      * Manage product state of updated products and schedule them for SIP generation as soon as possible
      * @return Number of scheduled products
      */
-    long manageUpdatedProducts(AcquisitionProcessingChain processingChain);
+    long manageUpdatedProducts(AcquisitionProcessingChain processingChain) throws ModuleException;
 
     /**
      * Same action as {@link #manageUpdatedProducts(AcquisitionProcessingChain)} but in a new transaction and by page
      * @return whether there is a product page remaining to managed
      */
-    ProductsPage manageUpdatedProductsByPage(AcquisitionProcessingChain processingChain);
+    ProductsPage manageUpdatedProductsByPage(AcquisitionProcessingChain processingChain) throws ModuleException;
 
     /**
-     * Save success and errors products in DB and submit success ones to ingest microservice for ingestion
+     * Save success and errors products in DB and submit success ones to ingest microservice for ingestion.<br/>
+     * Success products are submitted by bulk of products sharing the same chain, session and ingest chain, and all
+     * SIP states are written at once.
      * @param processingChain
      * @param success
      * @param errors
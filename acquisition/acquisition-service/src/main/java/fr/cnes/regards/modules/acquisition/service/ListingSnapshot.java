@@ -0,0 +1,297 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+
+/**
+ * Compact snapshot of a scan listing : sorted file path hashes (see {@link AcquisitionFile#computeFilePathHash(Path)})
+ * stored in a file.<br/>
+ * Previous snapshot is memory mapped and looked up by binary search while the new listing is streamed. Hashes of the
+ * new listing are buffered by runs of bounded size, each run is sorted and spilled to a work file. Runs are merged
+ * into the new snapshot, which only replaces the previous one on {@link #commit()}.<br/>
+ * Thread safe.
+ *
+ * @author REGARDS Team
+ */
+public class ListingSnapshot implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListingSnapshot.class);
+
+    /**
+     * Default maximum number of hashes kept in memory before spilling a sorted run (8 MB)
+     */
+    public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final Path snapshotFile;
+
+    private final LongBuffer previous;
+
+    private final int runSize;
+
+    private final List<Path> runs = new ArrayList<>();
+
+    private long[] buffer;
+
+    private int buffered = 0;
+
+    private boolean closed = false;
+
+    /**
+     * True if new listing could not be fully recorded. Previous snapshot is kept in that case.
+     */
+    private boolean failed = false;
+
+    public ListingSnapshot(Path snapshotFile) throws IOException {
+        this(snapshotFile, DEFAULT_RUN_SIZE);
+    }
+
+    /**
+     * @param snapshotFile snapshot file, replaced on commit
+     * @param runSize maximum number of hashes kept in memory
+     */
+    public ListingSnapshot(Path snapshotFile, int runSize) throws IOException {
+        this.snapshotFile = snapshotFile;
+        this.runSize = Math.max(1, runSize);
+        this.buffer = new long[Math.min(INITIAL_BUFFER_SIZE, this.runSize)];
+        Files.createDirectories(snapshotFile.getParent());
+        if (Files.exists(snapshotFile)) {
+            // Mapping remains valid after channel is closed
+            try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+                previous = channel.map(MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+            }
+        } else {
+            previous = LongBuffer.allocate(0);
+        }
+    }
+
+    /**
+     * Record the given file in the new listing and tell if it has to be registered
+     * @param file scanned file
+     * @param scanningDate last modification date of the most recent registered file
+     * @return true if file is more recent than scanning date or was not in the previous listing
+     */
+    public boolean isNew(ScannedFile file, Optional<OffsetDateTime> scanningDate) {
+        long hash = AcquisitionFile.computeFilePathHash(file.getPath());
+        record(hash);
+        return !scanningDate.isPresent() || file.isModifiedSince(scanningDate.get()) || !previouslyListed(hash);
+    }
+
+    private synchronized void record(long hash) {
+        if (!failed && !closed) {
+            if (buffered == buffer.length) {
+                if (buffered < runSize) {
+                    buffer = Arrays.copyOf(buffer, Math.min(runSize, buffered * 2));
+                } else {
+                    try {
+                        spillRun();
+                    } catch (IOException e) {
+                        LOGGER.error(String.format("Cannot record listing of %s, previous snapshot is kept",
+                                                   snapshotFile),
+                                     e);
+                        failed = true;
+                        return;
+                    }
+                }
+            }
+            buffer[buffered++] = hash;
+        }
+    }
+
+    /**
+     * Write buffered hashes sorted and without duplicates in a new run file
+     */
+    private void spillRun() throws IOException {
+        Path run = Files.createTempFile(snapshotFile.getParent(), snapshotFile.getFileName().toString(), ".run");
+        runs.add(run);
+        Arrays.sort(buffer, 0, buffered);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (int i = 0; i < buffered; i++) {
+                if ((i == 0) || (buffer[i] != buffer[i - 1])) {
+                    out.writeLong(buffer[i]);
+                }
+            }
+        }
+        buffered = 0;
+    }
+
+    private boolean previouslyListed(long hash) {
+        int low = 0;
+        int high = previous.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            // Absolute get does not change buffer state so concurrent lookups are safe
+            long midHash = previous.get(mid);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace previous snapshot with the new listing. To call once all listed files are registered.
+     */
+    public synchronized void commit() throws IOException {
+        if (failed || closed) {
+            close();
+            return;
+        }
+        try {
+            if ((buffered > 0) || runs.isEmpty()) {
+                spillRun();
+            }
+            Path workFile = Files.createTempFile(snapshotFile.getParent(), snapshotFile.getFileName().toString(),
+                                                 ".tmp");
+            try {
+                merge(workFile);
+                Files.move(workFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(workFile);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Merge all sorted runs into the given file, only keeping one value of each hash.
+     * Only one buffered value per run is kept in memory.
+     */
+    private void merge(Path workFile) throws IOException {
+        PriorityQueue<RunReader> readers = new PriorityQueue<>(Math.max(1, runs.size()),
+                Comparator.comparingLong(RunReader::current));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files
+                .newOutputStream(workFile, StandardOpenOption.TRUNCATE_EXISTING)))) {
+            try {
+                for (Path run : runs) {
+                    RunReader reader = new RunReader(run);
+                    if (reader.advance()) {
+                        readers.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+                boolean first = true;
+                long last = 0;
+                while (!readers.isEmpty()) {
+                    RunReader reader = readers.poll();
+                    long hash = reader.current();
+                    if (first || (hash != last)) {
+                        out.writeLong(hash);
+                        first = false;
+                        last = hash;
+                    }
+                    if (reader.advance()) {
+                        readers.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+            } finally {
+                for (RunReader reader : readers) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the new listing if not committed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            buffer = null;
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+        }
+    }
+
+    /**
+     * Sequential reader of a sorted run
+     */
+    private static class RunReader implements Closeable {
+
+        private final DataInputStream in;
+
+        private long current;
+
+        private RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+        }
+
+        private long current() {
+            return current;
+        }
+
+        /**
+         * @return false if run end is reached
+         */
+        private boolean advance() throws IOException {
+            try {
+                current = in.readLong();
+                return true;
+            } catch (EOFException e) { // NOSONAR
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+
+/**
+ * Manage {@link ListingSnapshot} files of the {@link AcquisitionFileInfo}s using snapshot scan.<br/>
+ * Snapshots are stored on local disk, under the application working directory unless
+ * <code>regards.acquisition.snapshot.workspace</code> is set. If a snapshot is lost (i.e. scan run by another
+ * instance), all listed files are checked against already registered ones in database.
+ *
+ * @author REGARDS Team
+ */
+@Service
+public class ListingSnapshotService implements IListingSnapshotService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListingSnapshotService.class);
+
+    @Value("${regards.acquisition.snapshot.workspace:acquisition-snapshots}")
+    private String workspace;
+
+    @Autowired
+    private IRuntimeTenantResolver runtimeTenantResolver;
+
+    @Override
+    public ListingSnapshot open(AcquisitionFileInfo fileInfo) throws ModuleException {
+        try {
+            return new ListingSnapshot(getSnapshotFile(fileInfo.getId()));
+        } catch (IOException e) {
+            throw new ModuleException(String.format("Cannot open listing snapshot of file info %s",
+                                                    fileInfo.getComment()),
+                    e);
+        }
+    }
+
+    @Override
+    public void reset(Long fileInfoId) {
+        try {
+            Files.deleteIfExists(getSnapshotFile(fileInfoId));
+        } catch (IOException e) {
+            LOGGER.error(String.format("Cannot delete listing snapshot of file info %s", fileInfoId), e);
+        }
+    }
+
+    private Path getSnapshotFile(Long fileInfoId) {
+        return Paths.get(workspace).toAbsolutePath().resolve(runtimeTenantResolver.getTenant())
+                .resolve(fileInfoId + ".snapshot");
+    }
+}
@@ -18,18 +18,23 @@
  */
 package fr.cnes.regards.modules.acquisition.service;
 
+import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,7 +47,10 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.util.Assert;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Table;
 
 import fr.cnes.regards.framework.authentication.IAuthenticationResolver;
 import fr.cnes.regards.framework.jpa.multitenant.transactional.MultitenantTransactional;
@@ -52,21 +60,23 @@ import fr.cnes.regards.framework.modules.jobs.domain.JobInfo;
 import fr.cnes.regards.framework.modules.jobs.domain.JobParameter;
 import fr.cnes.regards.framework.modules.jobs.domain.JobStatus;
 import fr.cnes.regards.framework.modules.jobs.service.IJobInfoService;
-import fr.cnes.regards.framework.modules.plugins.service.IPluginService;
-import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
+import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileBulkRepository;
 import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileRepository;
 import fr.cnes.regards.modules.acquisition.dao.IAcquisitionProcessingChainRepository;
+import fr.cnes.regards.modules.acquisition.dao.IProductBulkRepository;
 import fr.cnes.regards.modules.acquisition.dao.IProductRepository;
 import fr.cnes.regards.modules.acquisition.dao.ProductSpecifications;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
 import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductNameResult;
 import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
 import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
 import fr.cnes.regards.modules.acquisition.domain.ProductsPage;
+import fr.cnes.regards.modules.acquisition.domain.SipStateManager;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
-import fr.cnes.regards.modules.acquisition.domain.chain.StorageMetadataProvider;
 import fr.cnes.regards.modules.acquisition.exception.SIPGenerationException;
 import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
 import fr.cnes.regards.modules.acquisition.service.job.AcquisitionJobPriority;
@@ -80,7 +90,6 @@ import fr.cnes.regards.modules.ingest.client.IngestClientException;
 import fr.cnes.regards.modules.ingest.client.RequestInfo;
 import fr.cnes.regards.modules.ingest.domain.sip.ISipState;
 import fr.cnes.regards.modules.ingest.domain.sip.SIPState;
-import fr.cnes.regards.modules.ingest.dto.aip.StorageMetadata;
 import fr.cnes.regards.modules.ingest.dto.sip.IngestMetadataDto;
 
 /**
@@ -94,9 +103,6 @@ public class ProductService implements IProductService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ProductService.class);
 
-    @Autowired
-    private IPluginService pluginService;
-
     @Autowired
     private IProductRepository productRepository;
 
@@ -109,9 +115,18 @@ public class ProductService implements IProductService {
     @Autowired
     private IJobInfoService jobInfoService;
 
+    @Autowired
+    private IAcquisitionFileBulkRepository acqFileBulkRepository;
+
     @Autowired
     private IAcquisitionFileRepository acqFileRepository;
 
+    @Autowired
+    private IProductBulkRepository productBulkRepository;
+
+    @Autowired
+    private IAcquisitionChainDescriptorService chainDescriptorService;
+
     @Autowired
     private IIngestClient ingestClient;
 
@@ -127,6 +142,12 @@ public class ProductService implements IProductService {
     @Value("${spring.application.name}")
     private String appName;
 
+    @PostConstruct
+    public void init() {
+        Assert.isTrue((bulkRequestLimit != null) && (bulkRequestLimit > 0),
+                      "regards.acquisition.sip.bulk.request.limit must be greater than 0");
+    }
+
     @Override
     public Product save(Product product) {
         LOGGER.trace("Saving product \"{}\" with IP ID \"{}\" and SIP state \"{}\"", product.getProductName(),
@@ -146,24 +167,30 @@ public class ProductService implements IProductService {
             throws SIPGenerationException {
         LOGGER.trace("Saving and submitting product \"{}\" with IP ID \"{}\" and SIP state \"{}\"",
                      product.getProductName(), product.getIpId(), product.getSipState());
-
-        List<StorageMetadata> storageList = new ArrayList<>();
-        for (StorageMetadataProvider storage : acquisitionChain.getStorages()) {
-            storageList.add(StorageMetadata.build(storage.getPluginBusinessId(), storage.getStorePath(),
-                                                  storage.getTargetTypes()));
-        }
-
-        IngestMetadataDto ingestMetadata = IngestMetadataDto
-                .build(product.getProcessingChain().getLabel(), product.getSession(),
-                       product.getProcessingChain().getIngestChain(), acquisitionChain.getCategories(), storageList);
         try {
-            ingestClient.ingest(ingestMetadata, product.getSip());
+            ingestClient.ingest(buildIngestMetadata(product, acquisitionChain), product.getSip());
             return save(product);
         } catch (IngestClientException e) {
             throw new SIPGenerationException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Build ingest metadata of the given product SIP
+     */
+    private IngestMetadataDto buildIngestMetadata(Product product, AcquisitionProcessingChain acquisitionChain)
+            throws SIPGenerationException {
+        AcquisitionChainDescriptor descriptor;
+        try {
+            descriptor = chainDescriptorService.get(acquisitionChain);
+        } catch (ModuleException e) {
+            throw new SIPGenerationException(e.getMessage(), e);
+        }
+        return IngestMetadataDto.build(product.getProcessingChain().getLabel(), product.getSession(),
+                                       product.getProcessingChain().getIngestChain(), descriptor.getCategories(),
+                                       descriptor.getStorages());
+    }
+
     @Override
     public Product loadProduct(Long id) throws ModuleException {
         Product product = productRepository.findOneById(id);
@@ -252,13 +279,7 @@ public class ProductService implements IProductService {
         Set<String> productNames = products.stream().map(Product::getProductName).collect(Collectors.toSet());
 
         // Schedule job
-        JobInfo jobInfo = new JobInfo(true);
-        jobInfo.setPriority(AcquisitionJobPriority.SIP_GENERATION_JOB_PRIORITY.getPriority());
-        jobInfo.setParameters(new JobParameter(SIPGenerationJob.CHAIN_PARAMETER_ID, chain.getId()),
-                              new JobParameter(SIPGenerationJob.PRODUCT_NAMES, productNames));
-        jobInfo.setClassName(SIPGenerationJob.class.getName());
-        jobInfo.setOwner(authResolver.getUser());
-        jobInfo = jobInfoService.createAsPending(jobInfo);
+        JobInfo jobInfo = createSIPGenerationJob(productNames, chain);
 
         // Release lock
         for (Product product : products) {
@@ -278,6 +299,47 @@ public class ProductService implements IProductService {
         return jobInfo;
     }
 
+    /**
+     * Same as {@link #scheduleProductSIPGenerations(Set, AcquisitionProcessingChain)} for persisted products only known
+     * by their {@link ProductSummary}. Products are updated with a bulk statement.
+     */
+    private JobInfo scheduleProductSummarySIPGenerations(Collection<ProductSummary> products,
+            AcquisitionProcessingChain chain) {
+
+        Set<String> productNames = products.stream().map(ProductSummary::getProductName).collect(Collectors.toSet());
+        Set<Long> productIds = products.stream().map(ProductSummary::getId).collect(Collectors.toSet());
+
+        // Schedule job
+        JobInfo jobInfo = createSIPGenerationJob(productNames, chain);
+
+        // Release lock
+        for (JobInfo lastJobInfo : productRepository.findDistinctLastSIPGenerationJobInfoByIdIn(productIds)) {
+            jobInfoService.unlock(lastJobInfo);
+        }
+        for (ProductSummary product : products) {
+            sessionNotifier.notifyChangeProductState(product, ProductSIPState.SCHEDULED);
+            product.setSipState(ProductSIPState.SCHEDULED);
+        }
+        // Change product SIP state
+        productRepository.updateSipStateAndLastSIPGenerationJobInfoByIdIn(ProductSIPState.SCHEDULED, jobInfo,
+                                                                          productIds);
+
+        jobInfo.updateStatus(JobStatus.QUEUED);
+        jobInfoService.save(jobInfo);
+
+        return jobInfo;
+    }
+
+    private JobInfo createSIPGenerationJob(Set<String> productNames, AcquisitionProcessingChain chain) {
+        JobInfo jobInfo = new JobInfo(true);
+        jobInfo.setPriority(AcquisitionJobPriority.SIP_GENERATION_JOB_PRIORITY.getPriority());
+        jobInfo.setParameters(new JobParameter(SIPGenerationJob.CHAIN_PARAMETER_ID, chain.getId()),
+                              new JobParameter(SIPGenerationJob.PRODUCT_NAMES, productNames));
+        jobInfo.setClassName(SIPGenerationJob.class.getName());
+        jobInfo.setOwner(authResolver.getUser());
+        return jobInfoService.createAsPending(jobInfo);
+    }
+
     /**
      * Update the new product state.
      * <ul>
@@ -287,14 +349,18 @@ public class ProductService implements IProductService {
      *   <li> INVALID   : If there is too many files acquired. In this case the sipState is set to NOT_SCHEDULED_INVALID</li>
      * </ul>
      * @param product product to calculate new state
+     * @param descriptor descriptor of the product chain
+     * @param nbActualMandatory number of mandatory files acquired by the product including the new ones
+     * @param nbActualOptional number of optional files acquired by the product including the new ones
      */
-    private void computeProductStateWhenNewFile(Product product) {
+    private void computeProductStateWhenNewFile(ProductSummary product, AcquisitionChainDescriptor descriptor,
+            long nbActualMandatory, long nbActualOptional) {
         // We have two cases to handle:
         // 1. Product has not yet been finished or completed
         if ((product.getState() != ProductState.FINISHED) && (product.getState() != ProductState.COMPLETED)) {
             // At least one mandatory file is VALID
             product.setState(ProductState.ACQUIRING);
-            computeProductState(product);
+            computeProductState(product, descriptor, nbActualMandatory, nbActualOptional);
         } else {
             // 2. product has already been completed or finished so we have to use UPDATED state
             // to handle only once all file pages have been analysed to avoid generating multiple SIPs
@@ -303,39 +369,22 @@ public class ProductService implements IProductService {
     }
 
     /**
-     * Calculate state of the given product by checking if all files needed are acquired.
+     * Calculate state of the given product according to the number of files acquired.
      * <ul>
      *   <li> COMPLETED : If all files needed are acquired</li>
      *   <li> FINISHED  : If all files needed are acquired including the optional ones</li>
      *   <li> INVALID   : If there is too many files acquired. In this case the sipState is set to NOT_SCHEDULED_INVALID</li>
      * </ul>
      * @param product product to calculate new state
+     * @param descriptor descriptor of the product chain
+     * @param nbActualMandatory number of mandatory files acquired by the product
+     * @param nbActualOptional number of optional files acquired by the product
      */
-    private void computeProductState(Product product) {
-        int nbExpectedMandatory = 0;
-        int nbExpectedOptional = 0;
-        int nbActualMandatory = 0;
-        int nbActualOptional = 0;
-
-        // Compute product requirements
-        for (AcquisitionFileInfo fileInfo : product.getProcessingChain().getFileInfos()) {
-            if (fileInfo.isMandatory()) {
-                nbExpectedMandatory++;
-            } else {
-                nbExpectedOptional++;
-            }
-        }
-
-        // Compute product state
-        for (AcquisitionFile file : product.getAcquisitionFiles()) {
-            if (AcquisitionFileState.ACQUIRED.equals(file.getState())) {
-                if (file.getFileInfo().isMandatory()) {
-                    nbActualMandatory++;
-                } else {
-                    nbActualOptional++;
-                }
-            }
-        }
+    private void computeProductState(ProductSummary product, AcquisitionChainDescriptor descriptor,
+            long nbActualMandatory, long nbActualOptional) {
+        // Product requirements
+        int nbExpectedMandatory = descriptor.getNbMandatoryFileInfos();
+        int nbExpectedOptional = descriptor.getNbOptionalFileInfos();
 
         if (nbExpectedMandatory == nbActualMandatory) {
             // ProductStatus is COMPLETED if mandatory files is acquired
@@ -362,66 +411,80 @@ public class ProductService implements IProductService {
     }
 
     @Override
-    public Set<Product> linkAcquisitionFilesToProducts(AcquisitionProcessingChain processingChain, String session,
-            List<AcquisitionFile> validFiles) throws ModuleException {
+    public Collection<ProductSummary> linkAcquisitionFilesToProducts(AcquisitionProcessingChain processingChain,
+            String session, List<AcquisitionFile> validFiles) throws ModuleException {
+        return linkAcquisitionFilesToProducts(processingChain, session, validFiles, Collections.emptyMap());
+    }
+
+    @Override
+    public Collection<ProductSummary> linkAcquisitionFilesToProducts(AcquisitionProcessingChain processingChain,
+            String session, List<AcquisitionFile> validFiles, Map<Long, ProductNameResult> productNames)
+            throws ModuleException {
 
         // Get product plugin
-        IProductPlugin productPlugin;
-        try {
-            productPlugin = pluginService.getPlugin(processingChain.getProductPluginConf().getBusinessId());
-        } catch (NotAvailablePluginConfigurationException e1) {
-            throw new ModuleException("Unable to run product generation for disabled acquisition chain.", e1);
+        AcquisitionChainDescriptor descriptor = chainDescriptorService.get(processingChain);
+        IProductPlugin productPlugin = descriptor.getProductPlugin();
+
+        // Compute the list of products to create or update, only for files without known product name
+        List<Path> filePaths = validFiles.stream().filter(file -> !productNames.containsKey(file.getId()))
+                .map(AcquisitionFile::getFilePath).collect(Collectors.toList());
+        List<ProductNameResult> computedNames = filePaths.isEmpty() ? Collections.emptyList()
+                : productPlugin.getProductNames(filePaths);
+        if (computedNames.size() != filePaths.size()) {
+            throw new ModuleException(String.format("Product plugin returned %d product names for %d files",
+                                                    computedNames.size(), filePaths.size()));
         }
-
-        // Compute the  list of products to create or update
         Multimap<String, AcquisitionFile> validFilesByProductName = ArrayListMultimap.create();
+        // All file state transitions of the page, written at once
+        List<AcquisitionFile> updatedFiles = new ArrayList<>();
+        Iterator<ProductNameResult> computedNameIt = computedNames.iterator();
         for (AcquisitionFile validFile : validFiles) {
-
-            try {
-                String productName = productPlugin.getProductName(validFile.getFilePath());
-                if ((productName != null) && !productName.isEmpty()) {
-                    validFilesByProductName.put(productName, validFile);
-                } else {
-                    // Continue silently but register error in database
-                    String errorMessage = String.format("Error computing product name for file %s : %s",
-                                                        validFile.getFilePath().toString(),
-                                                        "Null or empty product name");
-                    LOGGER.error(errorMessage);
-                    validFile.setError(errorMessage);
-                    validFile.setState(AcquisitionFileState.ERROR);
-                    acqFileRepository.save(validFile);
-                }
-            } catch (ModuleException e) {
+            ProductNameResult productName = productNames.get(validFile.getId());
+            if (productName == null) {
+                productName = computedNameIt.next();
+            }
+            if (!productName.isError()) {
+                validFilesByProductName.put(productName.getProductName(), validFile);
+            } else {
                 // Continue silently but register error in database
                 String errorMessage = String.format("Error computing product name for file %s : %s",
-                                                    validFile.getFilePath().toString(), e.getMessage());
-                LOGGER.error(errorMessage, e);
+                                                    validFile.getFilePath().toString(), productName.getError());
+                LOGGER.error(errorMessage, productName.getCause());
                 validFile.setError(errorMessage);
                 validFile.setState(AcquisitionFileState.ERROR);
-                acqFileRepository.save(validFile);
+                updatedFiles.add(validFile);
             }
-
         }
 
-        // Find all existing product by using one database request
-        Set<Product> products = productRepository.findByProductNameIn(validFilesByProductName.keys());
-        Map<String, Product> productMap = products.stream()
-                .collect(Collectors.toMap(Product::getProductName, Function.identity()));
-        Set<Product> productsToSchedule = new HashSet<>();
+        // Find all existing product summaries and their acquired files by using two database requests
+        Map<String, ProductSummary> productMap = new HashMap<>();
+        productRepository.findSummariesByProductNameIn(validFilesByProductName.keySet())
+                .forEach(product -> productMap.put(product.getProductName(), product));
+        Set<Long> mandatoryFileInfoIds = new HashSet<>();
+        Table<Long, Long, Long> acquiredFiles = countAcquiredFiles(productMap.values(), mandatoryFileInfoIds);
+
+        List<ProductSummary> newProducts = new ArrayList<>();
+        Map<Long, Set<Long>> supersededFileInfoIds = new HashMap<>();
+        Map<ProductSummary, Collection<AcquisitionFile>> productFiles = new HashMap<>();
+        List<ProductSummary> productsToSchedule = new ArrayList<>();
+        List<SessionChangingStateProbe> changingStateProbes = new ArrayList<>();
 
         // Build all current products
         for (String productName : validFilesByProductName.keySet()) {
             Collection<AcquisitionFile> productNewValidFiles = validFilesByProductName.get(productName);
             // Get product
-            Product currentProduct = productMap.get(productName);
-            SessionChangingStateProbe changingStateProbe = SessionChangingStateProbe.build(currentProduct);
+            ProductSummary currentProduct = productMap.get(productName);
+            // Number of acquired files by file info
+            Map<Long, Long> productAcquiredFiles = new HashMap<>();
+            if (currentProduct != null) {
+                productAcquiredFiles.putAll(acquiredFiles.row(currentProduct.getId()));
+            }
+            SessionChangingStateProbe changingStateProbe = SessionChangingStateProbe
+                    .build(currentProduct, productAcquiredFiles.values().stream().mapToLong(Long::longValue).sum());
             if (currentProduct == null) {
                 // It is a new Product, create it
-                currentProduct = new Product();
-                currentProduct.setProductName(productName);
-                currentProduct.setProcessingChain(processingChain);
-                currentProduct.setSession(session);
-                productMap.put(productName, currentProduct);
+                currentProduct = ProductSummary.build(productName, session, processingChain.getLabel());
+                newProducts.add(currentProduct);
             } else if (!currentProduct.getSession().equals(session)) {
                 // The product is now managed by another session
                 currentProduct.setSession(session);
@@ -435,7 +498,13 @@ public class ProductService implements IProductService {
             //                COMPLETED : If product is complete (without optional)
             //                FINISHED  : If product is complete (with optional included)
             //                UPDATED   : If product was complete before the new file acquired.
-            fulfillProduct(productNewValidFiles, currentProduct);
+            Set<Long> newFileInfoIds = fulfillProduct(productNewValidFiles, currentProduct, productAcquiredFiles,
+                                                      mandatoryFileInfoIds, descriptor, changingStateProbe,
+                                                      updatedFiles);
+            if (currentProduct.getId() != null) {
+                supersededFileInfoIds.put(currentProduct.getId(), newFileInfoIds);
+            }
+            productFiles.put(currentProduct, productNewValidFiles);
 
             // Store for scheduling
             if ((currentProduct.getSipState() == ProductSIPState.NOT_SCHEDULED)
@@ -445,17 +514,65 @@ public class ProductService implements IProductService {
                 productsToSchedule.add(currentProduct);
             }
             changingStateProbe.addUpdatedProduct(currentProduct);
-            // Notify about the product state change
-            sessionNotifier.notifyChangeProductState(changingStateProbe);
+            changingStateProbes.add(changingStateProbe);
+        }
+
+        // Apply all state transitions
+        OffsetDateTime lastUpdate = OffsetDateTime.now();
+        for (ProductSummary newProduct : newProducts) {
+            newProduct.setId(createProduct(newProduct, processingChain, lastUpdate).getId());
         }
+        acqFileBulkRepository.supersedeAll(supersededFileInfoIds);
+        acqFileBulkRepository.updateAll(updatedFiles);
+        acqFileBulkRepository.linkAll(productFiles.entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().getId(), Map.Entry::getValue)));
+        productBulkRepository.updateAll(productMap.values(), lastUpdate);
+
+        // Notify about the product state changes
+        changingStateProbes.forEach(sessionNotifier::notifyChangeProductState);
 
         // Schedule SIP generation
         if (!productsToSchedule.isEmpty()) {
             LOGGER.debug("Scheduling SIP generation for {} product(s)", productsToSchedule.size());
-            scheduleProductSIPGenerations(productsToSchedule, processingChain);
+            scheduleProductSummarySIPGenerations(productsToSchedule, processingChain);
         }
 
-        return new HashSet<>(productMap.values());
+        return productFiles.keySet();
+    }
+
+    /**
+     * Count files acquired by the given products
+     * @param products {@link ProductSummary}s of persisted products
+     * @param mandatoryFileInfoIds filled with identifiers of mandatory file infos found
+     * @return number of acquired files by product identifier and file info identifier
+     */
+    private Table<Long, Long, Long> countAcquiredFiles(Collection<ProductSummary> products,
+            Set<Long> mandatoryFileInfoIds) {
+        Table<Long, Long, Long> acquiredFiles = HashBasedTable.create();
+        if (!products.isEmpty()) {
+            Set<Long> productIds = products.stream().map(ProductSummary::getId).collect(Collectors.toSet());
+            for (Object[] row : acqFileRepository
+                    .countByProductIdInAndStateGroupByFileInfo(productIds, AcquisitionFileState.ACQUIRED)) {
+                acquiredFiles.put((Long) row[0], (Long) row[1], (Long) row[3]);
+                if (Boolean.TRUE.equals(row[2])) {
+                    mandatoryFileInfoIds.add((Long) row[1]);
+                }
+            }
+        }
+        return acquiredFiles;
+    }
+
+    private Product createProduct(ProductSummary summary, AcquisitionProcessingChain processingChain,
+            OffsetDateTime lastUpdate) {
+        Product product = new Product();
+        product.setProductName(summary.getProductName());
+        product.setProcessingChain(processingChain);
+        product.setSession(summary.getSession());
+        product.setState(summary.getState());
+        product.setSipState(summary.getSipState());
+        product.setError(summary.getError());
+        product.setLastUpdate(lastUpdate);
+        return productRepository.save(product);
     }
 
     /**
@@ -472,46 +589,58 @@ public class ProductService implements IProductService {
      *       </ul>
      *   </li>
      *  </ul>
+     * State transitions are only computed in memory, updated files are added to <code>updatedFiles</code> and the
+     * product is not saved. Previous files of the returned file infos have to be superseded.
      *  @param validFiles new files acquired for the product to handle
      *  @param currentProduct product to handle
+     *  @param acquiredFiles number of files acquired by the product by file info, updated with the new files
+     *  @param mandatoryFileInfoIds identifiers of mandatory file infos, updated with the new files
+     *  @param descriptor descriptor of the product chain
+     *  @param changingStateProbe probe recording session changes of the product
+     *  @param updatedFiles files to write
+     *  @return identifiers of the file infos of the new files
      */
-    private Product fulfillProduct(Collection<AcquisitionFile> validFiles, Product currentProduct) {
+    private Set<Long> fulfillProduct(Collection<AcquisitionFile> validFiles, ProductSummary currentProduct,
+            Map<Long, Long> acquiredFiles, Set<Long> mandatoryFileInfoIds, AcquisitionChainDescriptor descriptor,
+            SessionChangingStateProbe changingStateProbe, List<AcquisitionFile> updatedFiles) {
+
+        // File and product session owner and session must be the same! Synchronize them!
+        String productSessionOwner = currentProduct.getSessionOwner();
+        String productSession = currentProduct.getSession();
+        Map<Long, Long> newAcquiredFiles = new HashMap<>();
         for (AcquisitionFile validFile : validFiles) {
-
-            // File and product session owner and session must be the same! Synchronize them!
-            String productSessionOwner = currentProduct.getProcessingChain().getLabel();
-            String productSession = currentProduct.getSession();
-            for (AcquisitionFile f : validFiles) {
-                if (!(productSessionOwner.equals(f.getSessionOwner()) && productSession.equals(f.getSession()))) {
-                    changingStateProbe.addFileSessionSwitch(f.getSessionOwner(), f.getSession());
-                }
-                // Synchronize with current product
-                f.setSessionOwner(productSessionOwner);
-                f.setSession(productSession);
+            if (!(productSessionOwner.equals(validFile.getSessionOwner())
+                    && productSession.equals(validFile.getSession()))) {
+                changingStateProbe.addFileSessionSwitch(validFile.getSessionOwner(), validFile.getSession());
             }
+            validFile.setSessionOwner(productSessionOwner);
+            validFile.setSession(productSession);
+            // Mark files as acquired
+            validFile.setState(AcquisitionFileState.ACQUIRED);
+            updatedFiles.add(validFile);
+            AcquisitionFileInfo fileInfo = validFile.getFileInfo();
+            newAcquiredFiles.merge(fileInfo.getId(), 1L, Long::sum);
+            if (fileInfo.isMandatory()) {
+                mandatoryFileInfoIds.add(fileInfo.getId());
+            }
+        }
 
-            // Mark old file as superseded
-            for (AcquisitionFile existing : currentProduct.getAcquisitionFiles()) {
-                if (existing.getFileInfo().equals(validFile.getFileInfo())) {
-                    if (AcquisitionFileState.ACQUIRED.equals(existing.getState())) {
-                        existing.setState(AcquisitionFileState.SUPERSEDED);
-                        acqFileRepository.save(existing);
-                    }
-                    if (AcquisitionFileState.ERROR.equals(existing.getState())) {
-                        existing.setState(AcquisitionFileState.SUPERSEDED_AFTER_ERROR);
-                        acqFileRepository.save(existing);
-                    }
-                }
+        // Old files of the same file infos are superseded
+        acquiredFiles.putAll(newAcquiredFiles);
+        long nbActualMandatory = 0;
+        long nbActualOptional = 0;
+        for (Map.Entry<Long, Long> entry : acquiredFiles.entrySet()) {
+            if (mandatoryFileInfoIds.contains(entry.getKey())) {
+                nbActualMandatory += entry.getValue();
+            } else {
+                nbActualOptional += entry.getValue();
             }
-            // Mark file as acquired
-            validFile.setState(AcquisitionFileState.ACQUIRED);
-            acqFileRepository.save(validFile);
         }
+
         // valid product
         currentProduct.setSipState(ProductSIPState.NOT_SCHEDULED); // Required to be re-integrated in SIP workflow
-        currentProduct.addAcquisitionFiles(validFiles);
-        computeProductStateWhenNewFile(currentProduct);
-        return save(currentProduct);
+        computeProductStateWhenNewFile(currentProduct, descriptor, nbActualMandatory, nbActualOptional);
+        return newAcquiredFiles.keySet();
     }
 
     @Override
@@ -555,8 +684,8 @@ public class ProductService implements IProductService {
 
     @Override
     public void handleIngestedSIPSuccess(Collection<RequestInfo> infos) {
-        Set<Product> products = productRepository
-                .findByProductNameIn(infos.stream().map(RequestInfo::getProviderId).collect(Collectors.toSet()));
+        Set<Product> products = productRepository.findWithJobsByProductNameIn(infos.stream()
+                .map(RequestInfo::getProviderId).collect(Collectors.toSet()));
         for (RequestInfo info : infos) {
             Optional<Product> oProduct = products.stream().filter(p -> p.getProductName().equals(info.getProviderId()))
                     .findFirst();
@@ -592,8 +721,8 @@ public class ProductService implements IProductService {
 
     @Override
     public void handleIngestedSIPFailed(Collection<RequestInfo> infos) {
-        Set<Product> products = productRepository
-                .findByProductNameIn(infos.stream().map(RequestInfo::getProviderId).collect(Collectors.toSet()));
+        Set<Product> products = productRepository.findWithJobsByProductNameIn(infos.stream()
+                .map(RequestInfo::getProviderId).collect(Collectors.toSet()));
         for (RequestInfo info : infos) {
             Optional<Product> oProduct = products.stream().filter(p -> p.getProductName().equals(info.getProviderId()))
                     .findFirst();
@@ -750,7 +879,7 @@ public class ProductService implements IProductService {
     }
 
     @Override
-    public long manageUpdatedProducts(AcquisitionProcessingChain processingChain) {
+    public long manageUpdatedProducts(AcquisitionProcessingChain processingChain) throws ModuleException {
         ProductsPage page;
         long totalProductScheduled = 0L;
         do {
@@ -766,14 +895,26 @@ public class ProductService implements IProductService {
 
     @MultitenantTransactional(propagation = Propagation.REQUIRES_NEW)
     @Override
-    public ProductsPage manageUpdatedProductsByPage(AcquisitionProcessingChain processingChain) {
-        // - Retrieve first page
-        Page<Product> page = productRepository
-                .findByProcessingChainAndStateOrderByIdAsc(processingChain, ProductState.UPDATED,
-                                                           PageRequest.of(0, AcquisitionProperties.WORKING_UNIT));
-        Set<Product> productsToSchedule = new HashSet<>();
-        for (Product currentProduct : page.getContent()) {
-            computeProductState(currentProduct);
+    public ProductsPage manageUpdatedProductsByPage(AcquisitionProcessingChain processingChain)
+            throws ModuleException {
+        AcquisitionChainDescriptor descriptor = chainDescriptorService.get(processingChain);
+        // - Retrieve first page with the number of acquired files of each product
+        // One more product is read to know if there is a next page
+        List<Object[]> rows = productRepository
+                .computeCompletenessWithLockByProcessingChainAndState(processingChain.getId(),
+                                                                      ProductState.UPDATED.toString(),
+                                                                      AcquisitionProperties.WORKING_UNIT + 1);
+        boolean hasNext = rows.size() > AcquisitionProperties.WORKING_UNIT;
+        List<Object[]> page = hasNext ? rows.subList(0, AcquisitionProperties.WORKING_UNIT) : rows;
+        List<ProductSummary> products = new ArrayList<>(page.size());
+        List<ProductSummary> productsToSchedule = new ArrayList<>();
+        for (Object[] row : page) {
+            ProductSummary currentProduct = new ProductSummary(((Number) row[0]).longValue(), (String) row[1],
+                    ProductState.valueOf((String) row[2]), SipStateManager.fromName((String) row[3]),
+                    (String) row[4], processingChain.getLabel());
+            computeProductState(currentProduct, descriptor, ((Number) row[5]).longValue(),
+                                ((Number) row[6]).longValue());
+            products.add(currentProduct);
             // Store for scheduling
             if ((currentProduct.getSipState() == ProductSIPState.NOT_SCHEDULED)
                     && ((currentProduct.getState() == ProductState.COMPLETED)
@@ -783,34 +924,73 @@ public class ProductService implements IProductService {
             }
         }
 
+        // Apply all state transitions
+        productBulkRepository.updateAll(products, OffsetDateTime.now());
+
         // Schedule SIP generation
         if (!productsToSchedule.isEmpty()) {
             LOGGER.debug("Scheduling SIP generation for {} product(s)", productsToSchedule.size());
-            scheduleProductSIPGenerations(productsToSchedule, processingChain);
+            scheduleProductSummarySIPGenerations(productsToSchedule, processingChain);
         }
 
-        productRepository.saveAll(page.getContent());
-        return ProductsPage.build(page.hasNext(), productsToSchedule.size(),
-                                  page.getNumberOfElements() - productsToSchedule.size());
+        return ProductsPage.build(hasNext, productsToSchedule.size(), page.size() - productsToSchedule.size());
     }
 
     @Override
     public void handleGeneratedProducts(AcquisitionProcessingChain processingChain, Set<Product> success,
             Set<Product> errors) {
+        // Submit SIPs by bulk of products sharing the same ingest metadata, i.e. the same chain and session
+        Table<Long, String, List<Product>> submissions = HashBasedTable.create();
         for (Product product : success) {
-            try {
-                saveAndSubmitSIP(product, processingChain);
-            } catch (SIPGenerationException e) {
-                LOGGER.error(e.getMessage(), e);
-                sessionNotifier.notifyChangeProductState(product, ProductSIPState.INGESTION_FAILED);
-                product.setSipState(ProductSIPState.INGESTION_FAILED);
-                product.setError(e.getMessage());
-                save(product);
+            Long chainId = product.getProcessingChain().getId();
+            List<Product> products = submissions.get(chainId, product.getSession());
+            if (products == null) {
+                products = new ArrayList<>();
+                submissions.put(chainId, product.getSession(), products);
             }
+            products.add(product);
         }
-        for (Product product : errors) {
-            save(product);
+        for (List<Product> products : submissions.values()) {
+            for (List<Product> bulk : Lists.partition(products, bulkRequestLimit)) {
+                submitSIPs(processingChain, bulk);
+            }
         }
+
+        // Write all SIP states at once
+        List<Product> products = new ArrayList<>(success.size() + errors.size());
+        products.addAll(success);
+        products.addAll(errors);
+        LOGGER.trace("Saving {} generated products", products.size());
+        productBulkRepository.updateSips(products, OffsetDateTime.now());
+    }
+
+    /**
+     * Submit SIPs of products sharing the same ingest metadata. Products whose submission fails are marked as
+     * INGESTION_FAILED, none is saved.
+     */
+    private void submitSIPs(AcquisitionProcessingChain processingChain, List<Product> products) {
+        LOGGER.debug("Submitting {} SIP(s) of session {}", products.size(), products.get(0).getSession());
+        IngestMetadataDto ingestMetadata;
+        try {
+            ingestMetadata = buildIngestMetadata(products.get(0), processingChain);
+        } catch (SIPGenerationException e) {
+            products.forEach(product -> handleSubmissionError(product, e));
+            return;
+        }
+        for (Product product : products) {
+            try {
+                ingestClient.ingest(ingestMetadata, product.getSip());
+            } catch (IngestClientException e) {
+                handleSubmissionError(product, e);
+            }
+        }
+    }
+
+    private void handleSubmissionError(Product product, Exception e) {
+        LOGGER.error(e.getMessage(), e);
+        sessionNotifier.notifyChangeProductState(product, ProductSIPState.INGESTION_FAILED);
+        product.setSipState(ProductSIPState.INGESTION_FAILED);
+        product.setError(e.getMessage());
     }
 
     @Override
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+
+/**
+ * In memory Bloom filter of the file paths registered by this instance for each {@link AcquisitionFileInfo}.<br/>
+ * It allows to skip database duplicate check for files that have never been registered.<br/>
+ * The filter is only trusted for a scan if it has seen all registrations that may produce a duplicate, i.e. all
+ * registrations of files whose last modification date is equal to the scanning date :
+ * <ul>
+ * <li>filter must have been created during a full scan (no scanning date) or before the scanning date was reached,</li>
+ * <li>scanning date must be the one the filter observed at the end of the last registration (otherwise files have
+ * been registered elsewhere, i.e. by another instance, or the file info has been reset).</li>
+ * </ul>
+ * In all other cases, filter is rebuilt and database is requested.
+ *
+ * @author REGARDS Team
+ */
+@Service
+public class RegisteredFilesBloomFilter {
+
+    @Value("${regards.acquisition.file.bloom.filter.enabled:false}")
+    private boolean enabled;
+
+    @Value("${regards.acquisition.file.bloom.filter.expected.insertions:1000000}")
+    private int expectedInsertions;
+
+    @Value("${regards.acquisition.file.bloom.filter.fpp:0.01}")
+    private double fpp;
+
+    @Autowired
+    private IRuntimeTenantResolver runtimeTenantResolver;
+
+    private final Map<String, PathFilter> filters = new ConcurrentHashMap<>();
+
+    /**
+     * @param info {@link AcquisitionFileInfo}
+     * @param scanningDate scanning date used for the current scan
+     * @param filePath scanned file
+     * @return true if file path has definitely never been registered for the given {@link AcquisitionFileInfo}
+     */
+    public boolean isNeverRegistered(AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate, Path filePath) {
+        if (!enabled) {
+            return false;
+        }
+        return getFilter(info, scanningDate).isNeverRegistered(scanningDate, filePath);
+    }
+
+    /**
+     * Record new registered file paths
+     */
+    public void registered(AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate, Collection<Path> filePaths) {
+        if (enabled && !filePaths.isEmpty()) {
+            getFilter(info, scanningDate).put(filePaths);
+        }
+    }
+
+    /**
+     * Record the scanning date computed at the end of a registration process
+     */
+    public void scanningDateUpdated(AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate,
+            OffsetDateTime newScanningDate) {
+        if (enabled) {
+            getFilter(info, scanningDate).lastScanningDate = newScanningDate;
+        }
+    }
+
+    /**
+     * Forget filters of the given {@link AcquisitionFileInfo}s, i.e. on chain update or deletion
+     * @param fileInfoIds {@link AcquisitionFileInfo} identifiers
+     */
+    public void evict(Collection<Long> fileInfoIds) {
+        String tenant = runtimeTenantResolver.getTenant();
+        for (Long fileInfoId : fileInfoIds) {
+            filters.remove(getKey(tenant, fileInfoId));
+        }
+    }
+
+    private PathFilter getFilter(AcquisitionFileInfo info, Optional<OffsetDateTime> scanningDate) {
+        OffsetDateTime date = scanningDate.orElse(null);
+        return filters.compute(getKey(runtimeTenantResolver.getTenant(), info.getId()), (key, filter) -> {
+            if ((filter == null) || !Objects.equals(filter.lastScanningDate, date)) {
+                return new PathFilter(date, expectedInsertions, fpp);
+            }
+            return filter;
+        });
+    }
+
+    private static String getKey(String tenant, Long fileInfoId) {
+        return tenant + ":" + fileInfoId;
+    }
+
+    private static class PathFilter {
+
+        private final BloomFilter<CharSequence> filter;
+
+        /**
+         * Scanning date at filter creation
+         */
+        private final OffsetDateTime creationScanningDate;
+
+        private volatile OffsetDateTime lastScanningDate;
+
+        private PathFilter(OffsetDateTime creationScanningDate, int expectedInsertions, double fpp) {
+            this.filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, fpp);
+            this.creationScanningDate = creationScanningDate;
+            this.lastScanningDate = creationScanningDate;
+        }
+
+        private synchronized boolean isNeverRegistered(Optional<OffsetDateTime> scanningDate, Path filePath) {
+            boolean trusted = (creationScanningDate == null)
+                    || (scanningDate.isPresent() && scanningDate.get().isAfter(creationScanningDate));
+            return trusted && !filter.mightContain(filePath.toString());
+        }
+
+        private synchronized void put(Collection<Path> filePaths) {
+            for (Path filePath : filePaths) {
+                filter.put(filePath.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.modules.acquisition.domain.Product;
+
+/**
+ * Executor shared by all SIP generation jobs of this instance to generate SIPs concurrently with thread safe
+ * generation plugins. At most <code>regards.acquisition.sip.generation.parallelism</code> SIPs are generated at a time
+ * whatever the number of running jobs.
+ *
+ * @author REGARDS Team
+ */
+@Service
+public class SIPGenerationExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SIPGenerationExecutor.class);
+
+    /**
+     * Maximum number of SIPs generated at a time for thread safe generation plugins
+     */
+    @Value("${regards.acquisition.sip.generation.parallelism:1}")
+    private int parallelism;
+
+    @Autowired
+    private IRuntimeTenantResolver runtimeTenantResolver;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("sip-generation-%d").build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Run the generation of each product in the current tenant and wait for all of them.<br/>
+     * If current thread is interrupted, products not handled yet are skipped, running generations are interrupted and
+     * this method still returns only once they are over. Thread interruption status is kept.
+     * @param products products to generate
+     * @param generation generation of one product
+     */
+    public void generate(Collection<Product> products, Consumer<Product> generation) {
+        String tenant = runtimeTenantResolver.getTenant();
+        CountDownLatch over = new CountDownLatch(products.size());
+        List<GenerationTask> tasks = new ArrayList<>(products.size());
+        for (Product product : products) {
+            GenerationTask task = new GenerationTask(() -> {
+                runtimeTenantResolver.forceTenant(tenant);
+                try {
+                    generation.accept(product);
+                } finally {
+                    runtimeTenantResolver.clearTenant();
+                }
+            }, over);
+            tasks.add(task);
+            executor.execute(task);
+        }
+        try {
+            over.await();
+        } catch (InterruptedException e) {
+            LOGGER.debug("{} thread has been interrupted", this.getClass().getName());
+            tasks.forEach(GenerationTask::stop);
+            // Wait for interrupted generations so no product is modified once this method returns
+            Uninterruptibles.awaitUninterruptibly(over);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Generation of one product. A stopped task is skipped if not started yet, otherwise its thread is interrupted.
+     * Interruption never leaks to the next task run by the same pool thread.
+     */
+    private static class GenerationTask implements Runnable {
+
+        private final Runnable generation;
+
+        private final CountDownLatch over;
+
+        private Thread runner;
+
+        private boolean stopped;
+
+        GenerationTask(Runnable generation, CountDownLatch over) {
+            this.generation = generation;
+            this.over = over;
+        }
+
+        @Override
+        public void run() {
+            try {
+                synchronized (this) {
+                    if (stopped) {
+                        return;
+                    }
+                    runner = Thread.currentThread();
+                }
+                try {
+                    generation.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error(e.getMessage(), e);
+                } finally {
+                    synchronized (this) {
+                        runner = null;
+                        // Clear interruption of this generation
+                        Thread.interrupted();
+                    }
+                }
+            } finally {
+                over.countDown();
+            }
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
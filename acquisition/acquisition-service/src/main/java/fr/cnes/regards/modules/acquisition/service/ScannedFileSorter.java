@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+
+/**
+ * Bounded memory sort of {@link ScannedFile}s by last modification date.<br/>
+ * Files are buffered in memory up to the chunk size. Each full chunk is sorted and spilled to a temporary file. Sorted
+ * chunks are then merged while iterating so heap use only depends on the chunk size, not on the number of files.<br/>
+ * Restored files only keep their last modification date and size (see {@link ScannedFile#build(Path, Instant, long)}).
+ * <br/>
+ * Not thread safe.
+ *
+ * @author REGARDS Team
+ */
+public class ScannedFileSorter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScannedFileSorter.class);
+
+    private static final Comparator<ScannedFile> BY_DATE = Comparator.comparing(ScannedFile::getLastModificationDate);
+
+    private final Path workDir;
+
+    private final int chunkSize;
+
+    private final List<ScannedFile> buffer = new ArrayList<>();
+
+    private final List<Path> chunks = new ArrayList<>();
+
+    private final List<ChunkReader> readers = new ArrayList<>();
+
+    private long count = 0;
+
+    /**
+     * @param workDir directory of temporary chunk files
+     * @param chunkSize maximum number of files kept in memory
+     */
+    public ScannedFileSorter(Path workDir, int chunkSize) {
+        this.workDir = workDir;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Add a file to sort
+     * @throws IOException if a full chunk cannot be spilled
+     */
+    public void add(ScannedFile file) throws IOException {
+        buffer.add(file);
+        count++;
+        if (buffer.size() >= chunkSize) {
+            spill();
+        }
+    }
+
+    /**
+     * @return number of added files
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return all added files from the oldest to the most recent. Must be called once, after all files are added.
+     * @throws IOException if last chunk cannot be spilled or chunks cannot be opened
+     */
+    public Iterator<ScannedFile> sorted() throws IOException {
+        if (chunks.isEmpty()) {
+            // Everything fits in memory
+            buffer.sort(BY_DATE);
+            return buffer.iterator();
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        LOGGER.debug("Merging {} sorted chunks of scanned files", chunks.size());
+        PriorityQueue<ChunkReader> queue = new PriorityQueue<>(chunks.size(),
+                Comparator.comparing(ChunkReader::getHead, BY_DATE));
+        for (Path chunk : chunks) {
+            ChunkReader reader = new ChunkReader(chunk);
+            readers.add(reader);
+            if (reader.getHead() != null) {
+                queue.add(reader);
+            }
+        }
+        return new Iterator<ScannedFile>() {
+
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public ScannedFile next() {
+                ChunkReader reader = queue.poll();
+                if (reader == null) {
+                    throw new NoSuchElementException();
+                }
+                ScannedFile file = reader.getHead();
+                try {
+                    reader.advance();
+                } catch (IOException e) {
+                    // Remaining files of the chunk are lost for this scan
+                    throw new MergeException(e);
+                }
+                if (reader.getHead() != null) {
+                    queue.add(reader);
+                }
+                return file;
+            }
+        };
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(BY_DATE);
+        Files.createDirectories(workDir);
+        Path chunk = Files.createTempFile(workDir, "scan-", ".chunk");
+        chunks.add(chunk);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(chunk)))) {
+            for (ScannedFile file : buffer) {
+                Instant lastModifiedTime = file.getAttributes().lastModifiedTime().toInstant();
+                out.writeUTF(file.getPath().toString());
+                out.writeLong(lastModifiedTime.getEpochSecond());
+                out.writeInt(lastModifiedTime.getNano());
+                out.writeLong(file.getSize());
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Close chunk readers and delete temporary files
+     */
+    @Override
+    public void close() {
+        for (ChunkReader reader : readers) {
+            reader.close();
+        }
+        for (Path chunk : chunks) {
+            try {
+                Files.deleteIfExists(chunk);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot delete temporary file {} : {}", chunk, e.getMessage());
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Thrown while iterating over sorted files if a chunk cannot be read anymore. As remaining files of the chunk are
+     * lost, registration must fail.
+     */
+    public static class MergeException extends UncheckedIOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public MergeException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Sequential reader of a sorted chunk exposing its next file
+     */
+    private static class ChunkReader {
+
+        private final DataInputStream in;
+
+        private ScannedFile head;
+
+        private ChunkReader(Path chunk) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(chunk)));
+            advance();
+        }
+
+        private ScannedFile getHead() {
+            return head;
+        }
+
+        private void advance() throws IOException {
+            head = null;
+            String path;
+            try {
+                path = in.readUTF();
+            } catch (EOFException e) {
+                close();
+                return;
+            }
+            Instant lastModifiedTime = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            head = ScannedFile.build(Paths.get(path), lastModifiedTime, in.readLong());
+        }
+
+        private void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                LOGGER.debug("Cannot close chunk reader : {}", e.getMessage());
+            }
+        }
+    }
+}
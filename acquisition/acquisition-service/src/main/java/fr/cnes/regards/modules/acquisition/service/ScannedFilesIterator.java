@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+
+/**
+ * Lazy iterator over the files of several streams, consumed one after the other in scan order.<br/>
+ * Each stream is closed as soon as it is exhausted. {@link #close()} closes all the streams, i.e. if registration is
+ * stopped before the end.<br/>
+ * Not thread safe.
+ *
+ * @author REGARDS Team
+ */
+public class ScannedFilesIterator implements Iterator<ScannedFile>, AutoCloseable {
+
+    private final List<Stream<ScannedFile>> streams;
+
+    private final Iterator<Stream<ScannedFile>> streamsIt;
+
+    private Stream<ScannedFile> currentStream;
+
+    private Iterator<ScannedFile> currentIt;
+
+    private long count = 0;
+
+    public ScannedFilesIterator(List<Stream<ScannedFile>> streams) {
+        this.streams = streams;
+        this.streamsIt = streams.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ((currentIt == null) || !currentIt.hasNext()) {
+            if (currentStream != null) {
+                currentStream.close();
+                currentStream = null;
+                currentIt = null;
+            }
+            if (!streamsIt.hasNext()) {
+                return false;
+            }
+            currentStream = streamsIt.next();
+            currentIt = currentStream.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public ScannedFile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        // Count files even if their reading fails
+        count++;
+        return currentIt.next();
+    }
+
+    /**
+     * @return number of files pulled from the streams
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() {
+        for (Stream<ScannedFile> stream : streams) {
+            stream.close();
+        }
+    }
+}
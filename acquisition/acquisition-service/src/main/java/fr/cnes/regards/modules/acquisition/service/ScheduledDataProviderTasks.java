@@ -54,6 +54,9 @@ public class ScheduledDataProviderTasks {
     @Autowired
     private IAcquisitionProcessingService chainService;
 
+    @Autowired
+    private IChecksumCacheService checksumCacheService;
+
     @Bean
     public TaskScheduler taskScheduler() {
         return new ConcurrentTaskScheduler();
@@ -72,4 +75,18 @@ public class ScheduledDataProviderTasks {
             }
         }
     }
+
+    // Run every hours
+    @Scheduled(cron = "0 30 * * * *")
+    public void evictUnusedChecksums() {
+        LOGGER.trace("Evict unused checksums");
+        for (String tenant : tenantResolver.getAllActiveTenants()) {
+            try {
+                runtimeTenantResolver.forceTenant(tenant);
+                checksumCacheService.evictUnusedChecksums();
+            } finally {
+                runtimeTenantResolver.clearTenant();
+            }
+        }
+    }
 }
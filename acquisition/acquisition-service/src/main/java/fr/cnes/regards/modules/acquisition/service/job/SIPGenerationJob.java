@@ -19,27 +19,27 @@
 
 package fr.cnes.regards.modules.acquisition.service.job;
 
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.google.common.collect.Sets;
-
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.jobs.domain.AbstractJob;
 import fr.cnes.regards.framework.modules.jobs.domain.JobParameter;
 import fr.cnes.regards.framework.modules.jobs.domain.exception.JobParameterInvalidException;
 import fr.cnes.regards.framework.modules.jobs.domain.exception.JobParameterMissingException;
 import fr.cnes.regards.framework.modules.jobs.domain.exception.JobRuntimeException;
-import fr.cnes.regards.framework.modules.plugins.service.IPluginService;
-import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
 import fr.cnes.regards.modules.acquisition.domain.Product;
 import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
 import fr.cnes.regards.modules.acquisition.plugins.ISipGenerationPlugin;
+import fr.cnes.regards.modules.acquisition.service.IAcquisitionChainDescriptorService;
 import fr.cnes.regards.modules.acquisition.service.IAcquisitionProcessingService;
 import fr.cnes.regards.modules.acquisition.service.IProductService;
+import fr.cnes.regards.modules.acquisition.service.SIPGenerationExecutor;
 import fr.cnes.regards.modules.acquisition.service.session.SessionNotifier;
 import fr.cnes.regards.modules.ingest.dto.sip.SIP;
 
@@ -63,11 +63,14 @@ public class SIPGenerationJob extends AbstractJob<Void> {
     private SessionNotifier sessionNotifier;
 
     @Autowired
-    private IPluginService pluginService;
+    private IAcquisitionChainDescriptorService chainDescriptorService;
 
     @Autowired
     private IAcquisitionProcessingService processingService;
 
+    @Autowired
+    private SIPGenerationExecutor sipGenerationExecutor;
+
     /**
      * The current chain to work with!
      */
@@ -97,56 +100,72 @@ public class SIPGenerationJob extends AbstractJob<Void> {
     public void run() {
         logger.info("[{}] : starting SIP generation job of {} product(s)", processingChain.getLabel(), products.size());
         long startTime = System.currentTimeMillis();
-        int generatedCount = 0; // Effectively count generated products in case of interruption
         String debugInterruption = "";
 
         ISipGenerationPlugin generateSipPlugin;
         try {
             // Get an instance of the plugin
-            generateSipPlugin = pluginService.getPlugin(processingChain.getGenerateSipPluginConf().getBusinessId());
-        } catch (ModuleException | NotAvailablePluginConfigurationException e) {
+            generateSipPlugin = chainDescriptorService.get(processingChain).getGenerateSipPlugin();
+        } catch (ModuleException e) {
             // Throw a global job error, do not iterate on products
             logger.error(e.getMessage(), e);
             throw new JobRuntimeException(e.getMessage());
         }
 
-        Set<Product> success = Sets.newHashSet();
-        Set<Product> errors = Sets.newHashSet();
-
-        for (Product product : products) {
-            if (Thread.currentThread().isInterrupted()) {
-                debugInterruption = "before thread interruption";
-                sessionNotifier.notifyEndingChain(processingChain.getLabel(), product.getSession());
-                break;
-            }
-            logger.trace("Generating SIP for product {}", product.getProductName());
-            try {
-                // Launch generation plugin
-                SIP sip = generateSipPlugin.generate(product);
-                // Update product
-                sessionNotifier.notifyChangeProductState(product, ProductSIPState.SUBMITTED);
-                product.setSip(sip);
-                product.setSipState(ProductSIPState.SUBMITTED);
-                success.add(product);
-                generatedCount++;
-            } catch (Exception e) {
-                if (!Thread.currentThread().isInterrupted()) {
-                    String message = String.format("Error while generating product \"%s\"", product.getProductName());
-                    logger.error(message, e);
-                    sessionNotifier.notifyChangeProductState(product, ProductSIPState.GENERATION_ERROR);
-                    product.setSipState(ProductSIPState.GENERATION_ERROR);
-                    product.setError(e.getMessage());
-                    errors.add(product);
+        // Products may be handled concurrently
+        Set<Product> success = ConcurrentHashMap.newKeySet();
+        Set<Product> errors = ConcurrentHashMap.newKeySet();
+
+        if (generateSipPlugin.isThreadSafe() && (sipGenerationExecutor.getParallelism() > 1) && (products.size() > 1)) {
+            // Returns once all generations are over, even if interrupted
+            sipGenerationExecutor.generate(products, product -> generate(generateSipPlugin, product, success, errors));
+        } else {
+            for (Product product : products) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
                 }
+                generate(generateSipPlugin, product, success, errors);
             }
         }
 
-        productService.handleGeneratedProducts(processingChain, success, errors);
+        Set<Product> generated = new HashSet<>(success);
+        Set<Product> failed = new HashSet<>(errors);
+        if (Thread.currentThread().isInterrupted()) {
+            debugInterruption = "before thread interruption";
+            products.stream().filter(p -> !generated.contains(p) && !failed.contains(p)).map(Product::getSession)
+                    .distinct()
+                    .forEach(session -> sessionNotifier.notifyEndingChain(processingChain.getLabel(), session));
+        }
+
+        productService.handleGeneratedProducts(processingChain, generated, failed);
         success.clear();
         errors.clear();
 
-        logger.info("[{}] : {} SIP(s) generated in {} milliseconds {}", processingChain.getLabel(), generatedCount,
+        logger.info("[{}] : {} SIP(s) generated in {} milliseconds {}", processingChain.getLabel(), generated.size(),
                     System.currentTimeMillis() - startTime, debugInterruption);
         products.clear();
     }
+
+    private void generate(ISipGenerationPlugin generateSipPlugin, Product product, Set<Product> success,
+            Set<Product> errors) {
+        logger.trace("Generating SIP for product {}", product.getProductName());
+        try {
+            // Launch generation plugin
+            SIP sip = generateSipPlugin.generate(product);
+            // Update product
+            sessionNotifier.notifyChangeProductState(product, ProductSIPState.SUBMITTED);
+            product.setSip(sip);
+            product.setSipState(ProductSIPState.SUBMITTED);
+            success.add(product);
+        } catch (Exception e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                String message = String.format("Error while generating product \"%s\"", product.getProductName());
+                logger.error(message, e);
+                sessionNotifier.notifyChangeProductState(product, ProductSIPState.GENERATION_ERROR);
+                product.setSipState(ProductSIPState.GENERATION_ERROR);
+                product.setError(e.getMessage());
+                errors.add(product);
+            }
+        }
+    }
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.io.BaseEncoding;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginInit;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
+import fr.cnes.regards.framework.utils.plugins.PluginUtilsRuntimeException;
+import fr.cnes.regards.modules.acquisition.domain.FileValidationResult;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
+
+/**
+ * Validate file size, header signature and checksum given by an optional sidecar file (<code>file.md5</code> or
+ * <code>file.sha256</code>).<br/>
+ * File content is read once, by memory mapped regions, to check the header and compute all needed digests at the same
+ * time. The checksum computed with the configured algorithm is given in the validation result. Files are not validated
+ * once the validating thread is interrupted.
+ *
+ * @author REGARDS Team
+ */
+@Plugin(id = "ContentFileValidation", version = "1.0.0-SNAPSHOT",
+        description = "Validate file size, header signature and sidecar checksum",
+        markdown = "ContentFileValidation.md", author = "REGARDS Team", contact = "regards@c-s.fr", license = "GPLv3", owner = "CSSI",
+        url = "https://github.com/RegardsOss")
+public class ContentFileValidation implements IValidationPlugin {
+
+    public static final String FIELD_MIN_SIZE = "minSize";
+
+    public static final String FIELD_MAX_SIZE = "maxSize";
+
+    public static final String FIELD_MAGIC_BYTES = "magicBytes";
+
+    public static final String FIELD_CHECK_SIDECAR = "checkSidecar";
+
+    public static final String FIELD_CHECKSUM_ALGORITHM = "checksumAlgorithm";
+
+    /**
+     * Size of the file regions mapped at once
+     */
+    private static final long REGION_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Sidecar file extensions with their checksum algorithm, in lookup order
+     */
+    private static final Map<String, String> SIDECARS = new LinkedHashMap<>();
+
+    static {
+        SIDECARS.put(".md5", "MD5");
+        SIDECARS.put(".sha256", "SHA-256");
+    }
+
+    @PluginParameter(name = FIELD_MIN_SIZE, label = "Minimum file size in bytes", defaultValue = "0",
+            optional = true)
+    private Long minSize;
+
+    @PluginParameter(name = FIELD_MAX_SIZE, label = "Maximum file size in bytes", optional = true)
+    private Long maxSize;
+
+    @PluginParameter(name = FIELD_MAGIC_BYTES, label = "Expected file header as hexadecimal bytes (i.e. 89504E47)",
+            optional = true)
+    private String magicBytes;
+
+    @PluginParameter(name = FIELD_CHECK_SIDECAR, label = "Check checksum given by sidecar file if any",
+            defaultValue = "true", optional = true)
+    private Boolean checkSidecar;
+
+    @PluginParameter(name = FIELD_CHECKSUM_ALGORITHM, label = "Algorithm of the computed checksum (empty for none)",
+            defaultValue = AcquisitionProcessingChain.CHECKSUM_ALGORITHM, optional = true)
+    private String checksumAlgorithm;
+
+    private byte[] header;
+
+    @PluginInit
+    public void init() {
+        header = (magicBytes == null) || magicBytes.trim().isEmpty() ? new byte[0]
+                : BaseEncoding.base16().decode(magicBytes.trim().toUpperCase());
+        if (hasChecksumAlgorithm()) {
+            try {
+                MessageDigest.getInstance(checksumAlgorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new PluginUtilsRuntimeException(String.format("Unknown checksum algorithm %s", checksumAlgorithm),
+                        e);
+            }
+        }
+    }
+
+    @Override
+    public boolean validate(Path filePath) throws ModuleException {
+        FileValidationResult result = check(filePath);
+        if (result == null) {
+            throw new ModuleException(String.format("Validation of file %s interrupted", filePath));
+        }
+        return result.isValid();
+    }
+
+    @Override
+    public List<FileValidationResult> validate(List<Path> filePaths) throws ModuleException {
+        List<FileValidationResult> results = new ArrayList<>(filePaths.size());
+        for (Path filePath : filePaths) {
+            // Once interrupted, check returns null so following files are not validated either
+            results.add(Thread.currentThread().isInterrupted() ? null : check(filePath));
+        }
+        return results;
+    }
+
+    /**
+     * @return validation result or null if current thread has been interrupted while reading the file
+     */
+    private FileValidationResult check(Path filePath) throws ModuleException {
+        if (filePath == null) {
+            return FileValidationResult.invalid(filePath, "No file path");
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return FileValidationResult.invalid(filePath, String.format("File not accessible : %s", e.getMessage()));
+        }
+        if (!attributes.isRegularFile()) {
+            return FileValidationResult.invalid(filePath, "Not a regular file");
+        }
+        long size = attributes.size();
+        if ((minSize != null) && (size < minSize)) {
+            return FileValidationResult.invalid(filePath,
+                                                String.format("File size %d lower than minimum %d", size, minSize));
+        }
+        if ((maxSize != null) && (size > maxSize)) {
+            return FileValidationResult.invalid(filePath,
+                                                String.format("File size %d greater than maximum %d", size, maxSize));
+        }
+        if (size < header.length) {
+            return FileValidationResult.invalid(filePath, "File smaller than expected header");
+        }
+
+        // Collect digests to compute in the same pass
+        Map<String, MessageDigest> digests = new LinkedHashMap<>();
+        String sidecarAlgorithm = null;
+        String sidecarChecksum = null;
+        try {
+            if (hasChecksumAlgorithm()) {
+                digests.put(checksumAlgorithm, MessageDigest.getInstance(checksumAlgorithm));
+            }
+            if (Boolean.TRUE.equals(checkSidecar)) {
+                for (Map.Entry<String, String> sidecar : SIDECARS.entrySet()) {
+                    Path sidecarPath = Paths.get(filePath.toString() + sidecar.getKey());
+                    if (Files.isRegularFile(sidecarPath)) {
+                        sidecarAlgorithm = sidecar.getValue();
+                        sidecarChecksum = readSidecar(sidecarPath);
+                        if (!digests.containsKey(sidecarAlgorithm)) {
+                            digests.put(sidecarAlgorithm, MessageDigest.getInstance(sidecarAlgorithm));
+                        }
+                        break;
+                    }
+                }
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new ModuleException(e.getMessage(), e);
+        } catch (IOException e) {
+            return FileValidationResult.invalid(filePath,
+                                                String.format("Cannot read sidecar file : %s", e.getMessage()));
+        }
+        if ((sidecarAlgorithm != null) && (sidecarChecksum == null)) {
+            return FileValidationResult.invalid(filePath, "Empty sidecar file");
+        }
+        if ((header.length == 0) && digests.isEmpty()) {
+            return FileValidationResult.valid(filePath);
+        }
+
+        // Read file content once
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (long position = 0; position < size; position += REGION_SIZE) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+                MappedByteBuffer region = channel.map(MapMode.READ_ONLY, position,
+                                                      Math.min(REGION_SIZE, size - position));
+                if ((position == 0) && !hasHeader(region)) {
+                    return FileValidationResult.invalid(filePath, "File header does not match expected signature");
+                }
+                for (MessageDigest digest : digests.values()) {
+                    digest.update(region.duplicate());
+                }
+            }
+        } catch (ClosedByInterruptException e) {
+            // Interrupted while reading, file is not validated
+            return null;
+        } catch (IOException e) {
+            return FileValidationResult.invalid(filePath, String.format("Cannot read file : %s", e.getMessage()));
+        }
+
+        Map<String, String> checksums = new LinkedHashMap<>();
+        digests.forEach((algorithm, digest) -> checksums
+                .put(algorithm, BaseEncoding.base16().lowerCase().encode(digest.digest())));
+        if ((sidecarAlgorithm != null) && !sidecarChecksum.equalsIgnoreCase(checksums.get(sidecarAlgorithm))) {
+            return FileValidationResult.invalid(filePath,
+                                                String.format("%s checksum does not match sidecar file",
+                                                              sidecarAlgorithm));
+        }
+        if (hasChecksumAlgorithm()) {
+            // Checksum is bound to the attributes read before the content so any concurrent change invalidates it
+            return FileValidationResult.valid(filePath, checksumAlgorithm, checksums.get(checksumAlgorithm), size,
+                                              attributes.lastModifiedTime().toMillis());
+        }
+        return FileValidationResult.valid(filePath);
+    }
+
+    private boolean hasHeader(MappedByteBuffer region) {
+        for (int i = 0; i < header.length; i++) {
+            if (region.get(i) != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sidecar files contain the checksum, optionally followed by the file name (i.e. md5sum output)
+     * @return checksum or null if sidecar is empty
+     */
+    private static String readSidecar(Path sidecarPath) throws IOException {
+        String content = new String(Files.readAllBytes(sidecarPath), StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? null : content.split("\\s+")[0];
+    }
+
+    private boolean hasChecksumAlgorithm() {
+        return (checksumAlgorithm != null) && !checksumAlgorithm.trim().isEmpty();
+    }
+}
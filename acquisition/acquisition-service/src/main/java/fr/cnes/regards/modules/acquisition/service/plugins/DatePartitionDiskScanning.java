@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginInit;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
+import fr.cnes.regards.framework.notification.NotificationLevel;
+import fr.cnes.regards.framework.notification.client.INotificationClient;
+import fr.cnes.regards.framework.security.role.DefaultRole;
+import fr.cnes.regards.framework.utils.plugins.PluginUtilsRuntimeException;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.plugins.IScanPlugin;
+
+/**
+ * Scan date partitioned directories (i.e. <code>/data/mission/2020/01/31/12</code>) described by a path template.<br/>
+ * Only the partitions that may still receive new files are listed : from the partition of the last modification date
+ * minus a look back window to the current partition. Each partition is walked recursively. At first scan (no last
+ * modification date) or when more partitions than the configured maximum would be listed, all directories are
+ * scanned.
+ *
+ * @author REGARDS Team
+ */
+@Plugin(id = "DatePartitionDiskScanning", version = "1.0.0-SNAPSHOT",
+        description = "Scan date partitioned directories described by a path template filtering with a glob pattern",
+        markdown = "DatePartitionDiskScanning.md", author = "REGARDS Team", contact = "regards@c-s.fr",
+        license = "GPLv3", owner = "CSSI", url = "https://github.com/RegardsOss")
+public class DatePartitionDiskScanning implements IScanPlugin {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatePartitionDiskScanning.class);
+
+    public static final String FIELD_DIRS = "directories";
+
+    public static final String FIELD_TEMPLATE = "pathTemplate";
+
+    public static final String FIELD_LOOK_BACK = "lookBack";
+
+    public static final String FIELD_GLOB = "glob";
+
+    public static final String FIELD_MAX_PARTITIONS = "maxPartitions";
+
+    /**
+     * Maximum number of partitions listed by an incremental scan when not configured
+     */
+    public static final int DEFAULT_MAX_PARTITIONS = 1000;
+
+    @PluginParameter(name = FIELD_DIRS, label = "List of root directories to scan")
+    private List<String> directories;
+
+    @PluginParameter(name = FIELD_TEMPLATE, label = "Partition path template relative to root directories",
+            markdown = "DatePartitionDiskScanning.md")
+    private String pathTemplate;
+
+    @PluginParameter(name = FIELD_LOOK_BACK,
+            label = "Look back window before last modification date (ISO 8601 duration)", defaultValue = "P1D",
+            optional = true)
+    private String lookBack;
+
+    @PluginParameter(name = FIELD_GLOB, label = "Glob pattern", markdown = "glob_pattern.md", defaultValue = "*",
+            optional = true)
+    private String glob;
+
+    @PluginParameter(name = FIELD_MAX_PARTITIONS,
+            label = "Maximum number of partitions listed before falling back to a full scan",
+            markdown = "DatePartitionDiskScanning.md", defaultValue = "" + DEFAULT_MAX_PARTITIONS, optional = true)
+    private Integer maxPartitions;
+
+    @Autowired
+    private INotificationClient notifClient;
+
+    private DateTimeFormatter formatter;
+
+    private ChronoUnit partitionUnit;
+
+    private Duration lookBackDuration;
+
+    @PluginInit
+    public void init() {
+        formatter = DateTimeFormatter.ofPattern(pathTemplate).withZone(ZoneOffset.UTC);
+        partitionUnit = getPartitionUnit(pathTemplate);
+        lookBackDuration = Duration.parse(lookBack);
+        if ((maxPartitions == null) || (maxPartitions < 1)) {
+            maxPartitions = DEFAULT_MAX_PARTITIONS;
+        }
+    }
+
+    @Override
+    public List<Path> scan(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
+        return scanFiles(lastModificationDate).stream().map(ScannedFile::getPath).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ScannedFile> scanFiles(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
+        List<ScannedFile> scannedFiles = new ArrayList<>();
+        PathMatcher matcher = Paths.get("").getFileSystem().getPathMatcher("glob:" + glob);
+        for (String dir : directories) {
+            Path dirPath = Paths.get(dir);
+            if (Files.isDirectory(dirPath)) {
+                long startTime = System.currentTimeMillis();
+                Optional<Set<Path>> partitionsToScan = lastModificationDate
+                        .flatMap(lmd -> getPartitions(lmd, OffsetDateTime.now()));
+                if (partitionsToScan.isPresent()) {
+                    Set<Path> partitions = partitionsToScan.get();
+                    for (Path partition : partitions) {
+                        Path partitionPath = dirPath.resolve(partition);
+                        if (Files.isDirectory(partitionPath)) {
+                            scanPartition(partitionPath, matcher, lastModificationDate.get(), scannedFiles);
+                        }
+                    }
+                    LOGGER.info("{} partition(s) of directory {} scanned in {} milliseconds", partitions.size(),
+                                dirPath, System.currentTimeMillis() - startTime);
+                } else {
+                    if (lastModificationDate.isPresent()) {
+                        LOGGER.warn("Last modification date {} is too old to list more than {} partition(s) : "
+                                + "directory {} is fully scanned", lastModificationDate.get(), maxPartitions, dirPath);
+                    }
+                    OffsetDateTime lmd = lastModificationDate.orElse(null);
+                    try (Stream<ScannedFile> files = ParallelDirectoryWalker
+                            .walk(dirPath, 1, file -> matcher.matches(file.getPath().getFileName())
+                                    && file.isModifiedSince(lmd))) {
+                        files.forEach(scannedFiles::add);
+                    }
+                    LOGGER.info("Directory {} fully scanned in {} milliseconds", dirPath,
+                                System.currentTimeMillis() - startTime);
+                }
+            } else {
+                String message = String.format("Configured directory %s for scan does not exists or is not accessible.",
+                                               dirPath.toString());
+                LOGGER.error(message);
+                notifClient.notify(message, "Acquisition chain invalid", NotificationLevel.WARNING, DefaultRole.EXPLOIT,
+                                   DefaultRole.ADMIN, DefaultRole.PROJECT_ADMIN);
+            }
+        }
+        return scannedFiles;
+    }
+
+    /**
+     * Compute relative paths of the partitions that may have received files since the given last modification date
+     * @param lastModificationDate last modification date
+     * @param now current date
+     * @return partitions from the oldest to the most recent or empty if there are more than the configured maximum
+     */
+    public Optional<Set<Path>> getPartitions(OffsetDateTime lastModificationDate, OffsetDateTime now) {
+        Set<Path> partitions = new LinkedHashSet<>();
+        OffsetDateTime end = now.isAfter(lastModificationDate) ? now : lastModificationDate;
+        OffsetDateTime current = truncate(lastModificationDate.minus(lookBackDuration));
+        while (!current.isAfter(end)) {
+            partitions.add(Paths.get(formatter.format(current)));
+            if (partitions.size() > maxPartitions) {
+                return Optional.empty();
+            }
+            current = current.plus(1, partitionUnit);
+        }
+        return Optional.of(partitions);
+    }
+
+    /**
+     * Walk the partition recursively as a full scan does
+     */
+    private void scanPartition(Path partitionPath, PathMatcher matcher, OffsetDateTime lastModificationDate,
+            List<ScannedFile> scannedFiles) {
+        try (Stream<ScannedFile> files = ParallelDirectoryWalker
+                .walk(partitionPath, 1, file -> matcher.matches(file.getPath().getFileName())
+                        && file.isModifiedSince(lastModificationDate))) {
+            files.forEach(scannedFiles::add);
+        }
+    }
+
+    private OffsetDateTime truncate(OffsetDateTime date) {
+        OffsetDateTime utc = date.withOffsetSameInstant(ZoneOffset.UTC);
+        switch (partitionUnit) {
+            case YEARS:
+                return utc.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+            case MONTHS:
+                return utc.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            case WEEKS:
+                // First day of the week as defined by the formatter locale
+                return utc.truncatedTo(ChronoUnit.DAYS).with(WeekFields.of(formatter.getLocale()).dayOfWeek(), 1);
+            default:
+                return utc.truncatedTo(partitionUnit);
+        }
+    }
+
+    /**
+     * Finest date unit used in the template, quoted literals excluded
+     * @throws PluginUtilsRuntimeException if template uses fields finer than minutes or no date field at all
+     */
+    private static ChronoUnit getPartitionUnit(String template) {
+        String fields = template.replaceAll("'[^']*'", "");
+        if (containsAny(fields, "sSnNA")) {
+            throw new PluginUtilsRuntimeException(String
+                    .format("Invalid path template %s : partitions finer than minutes are not supported", template));
+        } else if (containsAny(fields, "m")) {
+            return ChronoUnit.MINUTES;
+        } else if (containsAny(fields, "HkKh")) {
+            return ChronoUnit.HOURS;
+        } else if (containsAny(fields, "dDEecFW")) {
+            // Week of month changes at month start so it is walked day by day
+            return ChronoUnit.DAYS;
+        } else if (containsAny(fields, "w")) {
+            // Week of week based year changes at week start only if not mixed with calendar fields
+            return containsAny(fields, "yuMLQq") ? ChronoUnit.DAYS : ChronoUnit.WEEKS;
+        } else if (containsAny(fields, "MLQq")) {
+            return ChronoUnit.MONTHS;
+        } else if (containsAny(fields, "yuY")) {
+            return ChronoUnit.YEARS;
+        }
+        throw new PluginUtilsRuntimeException(String.format("Invalid path template %s : no date field", template));
+    }
+
+    private static boolean containsAny(String fields, String letters) {
+        return fields.chars().anyMatch(c -> letters.indexOf(c) >= 0);
+    }
+}
@@ -18,11 +18,16 @@
  */
 package fr.cnes.regards.modules.acquisition.service.plugins;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.modules.acquisition.domain.FileValidationResult;
 import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
 
 /**
@@ -38,4 +43,35 @@ public class DefaultFileValidation implements IValidationPlugin {
     public boolean validate(Path filePath) throws ModuleException {
         return (filePath != null) && Files.isRegularFile(filePath) && Files.isReadable(filePath);
     }
+
+    /**
+     * Same checks as {@link #validate(Path)} reporting why each file is rejected
+     */
+    @Override
+    public List<FileValidationResult> validate(List<Path> filePaths) throws ModuleException {
+        List<FileValidationResult> results = new ArrayList<>(filePaths.size());
+        for (Path filePath : filePaths) {
+            results.add(validateFile(filePath));
+        }
+        return results;
+    }
+
+    private static FileValidationResult validateFile(Path filePath) {
+        if (filePath == null) {
+            return FileValidationResult.invalid(filePath, "No file path");
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return FileValidationResult.invalid(filePath, String.format("File not accessible : %s", e.getMessage()));
+        }
+        if (!attributes.isRegularFile()) {
+            return FileValidationResult.invalid(filePath, "Not a regular file");
+        }
+        if (!Files.isReadable(filePath)) {
+            return FileValidationResult.invalid(filePath, "File not readable");
+        }
+        return FileValidationResult.valid(filePath);
+    }
 }
@@ -23,6 +23,7 @@ import java.util.List;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginInit;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
 import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
 
@@ -35,13 +36,15 @@ import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
 @Plugin(id = "DefaultProductPlugin", version = "1.0.0-SNAPSHOT",
         description = "Compute the product name from filename optionnaly removing extension or/and truncating product name",
         author = "REGARDS Team", contact = "regards@c-s.fr", license = "GPLv3", owner = "CSSI",
-        url = "https://github.com/RegardsOss")
+        markdown = "DefaultProductPlugin.md", url = "https://github.com/RegardsOss")
 public class DefaultProductPlugin implements IProductPlugin {
 
     public static final String FIELD_REMOVE_EXT = "removeExtension";
 
     public static final String FIELD_EXTS = "extensions";
 
+    public static final String FIELD_USE_EXTS = "useExtensions";
+
     public static final String FIELD_LENGTH = "maxLength";
 
     public static final String FIELD_LENGTH_REQUIRED = "maxLengthRequired";
@@ -54,9 +57,15 @@ public class DefaultProductPlugin implements IProductPlugin {
     private Boolean removeExtension;
 
     @PluginParameter(name = FIELD_EXTS, label = "List of extensions to remove",
-            description = "Full qualified extension strings", optional = true)
+            description = "Full qualified extension strings, only used if listed extension removal is enabled",
+            optional = true)
     private List<String> extensions;
 
+    @PluginParameter(name = FIELD_USE_EXTS, label = "Enable listed extension removal",
+            description = "Only remove the listed extensions. If disabled, extension list is ignored and extension is removed from last dot index as in previous versions.",
+            defaultValue = "false", optional = true)
+    private Boolean useExtensions;
+
     @PluginParameter(name = FIELD_LENGTH, label = "Max product name length",
             description = "Product name is truncated to max length", optional = true)
     private Integer maxLength;
@@ -69,44 +78,64 @@ public class DefaultProductPlugin implements IProductPlugin {
             description = "Prefix is concatenated with product name", optional = true)
     private String prefix;
 
+    /**
+     * Extensions to look for, empty to remove from last dot, null to keep extension
+     */
+    private String[] removedExtensions;
+
+    private String namePrefix;
+
+    @PluginInit
+    public void init() {
+        if ((removeExtension != null) && removeExtension) {
+            removedExtensions = (Boolean.TRUE.equals(useExtensions) && (extensions != null))
+                    ? extensions.toArray(new String[0])
+                    : new String[0];
+        }
+        namePrefix = (prefix == null) ? "" : prefix;
+    }
+
     @Override
     public String getProductName(Path filePath) throws ModuleException {
-        String productName = filePath.getFileName().toString();
+        String fileName = filePath.getFileName().toString();
 
         // Remove extension
-        if ((removeExtension != null) && removeExtension) {
+        int end = fileName.length();
+        if (removedExtensions != null) {
             int indexExtension = -1;
-            if ((extensions != null) && extensions.isEmpty()) {
-                for (String extension : extensions) {
-                    indexExtension = productName.lastIndexOf(extension);
-                    if (indexExtension > 0) {
+            if (removedExtensions.length > 0) {
+                for (String extension : removedExtensions) {
+                    if (fileName.endsWith(extension)) {
+                        indexExtension = fileName.length() - extension.length();
                         break;
                     }
                 }
             } else {
-                indexExtension = productName.lastIndexOf('.');
+                indexExtension = fileName.lastIndexOf('.');
             }
             if (indexExtension > 0) {
-                productName = productName.substring(0, indexExtension);
+                end = indexExtension;
             }
         }
 
-        // Prefix
-        if ((prefix != null) && !prefix.isEmpty()) {
-            productName = prefix + productName;
-        }
-
-        // Truncate
+        // Truncate prefixed name
+        int length = namePrefix.length() + end;
         if (maxLength != null) {
-            if (productName.length() >= maxLength) {
-                productName = productName.substring(0, maxLength);
-            } else {
-                if (maxLengthRequired) {
-                    String message = String.format("Product name \"%s\" is shorted than max length", productName);
-                    throw new ModuleException(message);
-                }
+            if (length >= maxLength) {
+                length = maxLength;
+            } else if (Boolean.TRUE.equals(maxLengthRequired)) {
+                String message = String.format("Product name \"%s\" is shorted than max length",
+                                               namePrefix + fileName.substring(0, end));
+                throw new ModuleException(message);
             }
         }
-        return productName;
+
+        // Build name at once
+        if (namePrefix.isEmpty()) {
+            return fileName.substring(0, length);
+        }
+        int prefixLength = Math.min(namePrefix.length(), length);
+        return new StringBuilder(length).append(namePrefix, 0, prefixLength)
+                .append(fileName, 0, length - prefixLength).toString();
     }
 }
@@ -18,16 +18,17 @@
  */
 package fr.cnes.regards.modules.acquisition.service.plugins;
 
-import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
-import fr.cnes.regards.framework.utils.file.ChecksumUtils;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
 import fr.cnes.regards.modules.acquisition.domain.Product;
-import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
 import fr.cnes.regards.modules.acquisition.plugins.ISipGenerationPlugin;
+import fr.cnes.regards.modules.acquisition.service.IChecksumCacheService;
 import fr.cnes.regards.modules.ingest.dto.sip.SIP;
 import fr.cnes.regards.modules.ingest.dto.sip.SIPBuilder;
 
@@ -41,24 +42,25 @@ import fr.cnes.regards.modules.ingest.dto.sip.SIPBuilder;
         url = "https://github.com/RegardsOss")
 public class DefaultSIPGeneration implements ISipGenerationPlugin {
 
+    @Autowired
+    private IChecksumCacheService checksumCache;
+
     @Override
     public SIP generate(Product product) throws ModuleException {
 
         // Init the builder
         SIPBuilder sipBuilder = new SIPBuilder(product.getProductName());
 
+        // Compute all missing checksums of the product at once
+        Set<AcquisitionFile> files = product.getActiveAcquisitionFiles();
+        String algorithm = ProductToSIPHelper.getChecksumAlgorithm(product);
+        Map<AcquisitionFile, String> checksums = ProductToSIPHelper.getChecksums(files, algorithm, checksumCache);
+
         // Fill SIP with product information
-        for (AcquisitionFile af : product.getActiveAcquisitionFiles()) {
-            String checksum;
-            try {
-                checksum = ChecksumUtils.computeHexChecksum(af.getFilePath(),
-                                                            AcquisitionProcessingChain.CHECKSUM_ALGORITHM);
-            } catch (NoSuchAlgorithmException | IOException e) {
-                throw new ModuleException(String.format("Error calculating file checksum. Cause %s", e.getMessage()), e);
-            }
-            sipBuilder.getContentInformationBuilder()
-                    .setDataObject(af.getFileInfo().getDataType(), af.getFilePath().toAbsolutePath(),
-                                   AcquisitionProcessingChain.CHECKSUM_ALGORITHM, checksum);
+        for (AcquisitionFile af : files) {
+            sipBuilder.getContentInformationBuilder().setDataObject(af.getFileInfo().getDataType(),
+                                                                    af.getFilePath().toAbsolutePath(), algorithm,
+                                                                    checksums.get(af));
             sipBuilder.getContentInformationBuilder().setSyntax(af.getFileInfo().getMimeType());
             sipBuilder.addContentInformation();
         }
@@ -69,4 +71,10 @@ public class DefaultSIPGeneration implements ISipGenerationPlugin {
         return sipBuilder.build();
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        // Stateless generation
+        return true;
+    }
+
 }
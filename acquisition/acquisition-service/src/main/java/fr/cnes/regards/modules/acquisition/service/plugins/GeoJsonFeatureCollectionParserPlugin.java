@@ -27,7 +27,6 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
@@ -50,9 +49,9 @@ import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
 import fr.cnes.regards.framework.urn.DataType;
-import fr.cnes.regards.framework.utils.file.ChecksumUtils;
 import fr.cnes.regards.framework.utils.plugins.PluginUtilsRuntimeException;
 import fr.cnes.regards.modules.acquisition.plugins.IScanPlugin;
+import fr.cnes.regards.modules.acquisition.service.IChecksumCacheService;
 import fr.cnes.regards.modules.ingest.dto.sip.SIP;
 import fr.cnes.regards.modules.ingest.dto.sip.SIPBuilder;
 
@@ -77,6 +76,9 @@ public class GeoJsonFeatureCollectionParserPlugin implements IScanPlugin {
     @Autowired
     private Gson gson;
 
+    @Autowired
+    private IChecksumCacheService checksumCache;
+
     @PluginParameter(name = FIELD_DIR,
             label = "Directories to scan to find *.json files containing geojson feature collections")
     private String directoryToScan;
@@ -155,8 +157,7 @@ public class GeoJsonFeatureCollectionParserPlugin implements IScanPlugin {
                 Path descFile = Paths.get(entry.getParent().toString(), name + ".pdf");
 
                 if (Files.exists(rawDataFile)) {
-                    String checksum = ChecksumUtils.computeHexChecksum(new FileInputStream(rawDataFile.toFile()),
-                                                                       "MD5");
+                    String checksum = ProductToSIPHelper.getChecksum(rawDataFile, "MD5", checksumCache);
                     builder.getContentInformationBuilder().setDataObject(DataType.RAWDATA, rawDataFile.toAbsolutePath(),
                                                                          rawDataFile.getFileName().toString(), "MD5",
                                                                          checksum, rawDataFile.toFile().length());
@@ -164,8 +165,7 @@ public class GeoJsonFeatureCollectionParserPlugin implements IScanPlugin {
                     builder.addContentInformation();
                 }
                 if (Files.exists(thumbnailFilePng)) {
-                    String checksum = ChecksumUtils.computeHexChecksum(new FileInputStream(thumbnailFilePng.toFile()),
-                                                                       "MD5");
+                    String checksum = ProductToSIPHelper.getChecksum(thumbnailFilePng, "MD5", checksumCache);
                     builder.getContentInformationBuilder()
                             .setDataObject(DataType.THUMBNAIL, thumbnailFilePng.toAbsolutePath(),
                                            thumbnailFilePng.getFileName().toString(), "MD5", checksum,
@@ -181,8 +181,7 @@ public class GeoJsonFeatureCollectionParserPlugin implements IScanPlugin {
                     builder.addContentInformation();
                 }
                 if (Files.exists(thumbnailFileJpg)) {
-                    String checksum = ChecksumUtils.computeHexChecksum(new FileInputStream(thumbnailFileJpg.toFile()),
-                                                                       "MD5");
+                    String checksum = ProductToSIPHelper.getChecksum(thumbnailFileJpg, "MD5", checksumCache);
                     builder.getContentInformationBuilder()
                             .setDataObject(DataType.THUMBNAIL, thumbnailFileJpg.toAbsolutePath(),
                                            thumbnailFileJpg.getFileName().toString(), "MD5", checksum,
@@ -198,7 +197,7 @@ public class GeoJsonFeatureCollectionParserPlugin implements IScanPlugin {
                     builder.addContentInformation();
                 }
                 if (Files.exists(descFile)) {
-                    String checksum = ChecksumUtils.computeHexChecksum(new FileInputStream(descFile.toFile()), "MD5");
+                    String checksum = ProductToSIPHelper.getChecksum(descFile, "MD5", checksumCache);
                     builder.getContentInformationBuilder().setDataObject(DataType.DESCRIPTION,
                                                                          descFile.toAbsolutePath(),
                                                                          descFile.getFileName().toString(), "MD5",
@@ -216,7 +215,7 @@ public class GeoJsonFeatureCollectionParserPlugin implements IScanPlugin {
                 }
             }
 
-        } catch (IOException | NoSuchAlgorithmException e) {
+        } catch (IOException | ModuleException e) {
             LOGGER.error(e.getMessage(), e);
         }
         return generatedFiles;
@@ -226,6 +225,10 @@ public class GeoJsonFeatureCollectionParserPlugin implements IScanPlugin {
         this.directoryToScan = dir;
     }
 
+    public void setChecksumCache(IChecksumCacheService checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     public void setGson(Gson gson) {
         this.gson = gson;
     }
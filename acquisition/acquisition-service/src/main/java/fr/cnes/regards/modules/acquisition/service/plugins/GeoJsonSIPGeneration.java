@@ -62,6 +62,12 @@ public class GeoJsonSIPGeneration implements ISipGenerationPlugin {
         }
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        // Stateless generation
+        return true;
+    }
+
     public void setGson(Gson gson) {
         this.gson = gson;
     }
@@ -23,11 +23,12 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +41,8 @@ import fr.cnes.regards.framework.notification.NotificationLevel;
 import fr.cnes.regards.framework.notification.client.INotificationClient;
 import fr.cnes.regards.framework.security.role.DefaultRole;
 import fr.cnes.regards.framework.utils.plugins.PluginUtilsRuntimeException;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.plugins.IDirectoryIndex;
 import fr.cnes.regards.modules.acquisition.plugins.IScanPlugin;
 
 /**
@@ -60,6 +63,8 @@ public class GlobDiskScanning implements IScanPlugin {
 
     public static final String FIELD_GLOB = "glob";
 
+    public static final String FIELD_PRUNE = "pruneUnchangedDirectories";
+
     @PluginParameter(name = FIELD_DIRS, label = "List of directories to scan")
     private List<String> directories;
 
@@ -67,18 +72,34 @@ public class GlobDiskScanning implements IScanPlugin {
             optional = true)
     private String glob;
 
+    @PluginParameter(name = FIELD_PRUNE, label = "Do not list again directories unchanged since last scan",
+            markdown = "prune_unchanged_directories.md", defaultValue = "false", optional = true)
+    private Boolean pruneUnchangedDirectories;
+
     @Autowired
     private INotificationClient notifClient;
 
     @Override
     public List<Path> scan(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
+        return scanFiles(lastModificationDate).stream().map(ScannedFile::getPath).collect(Collectors.toList());
+    }
 
-        List<Path> scannedFiles = new ArrayList<>();
+    @Override
+    public List<ScannedFile> scanFiles(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
+        return scanFiles(lastModificationDate, null);
+    }
+
+    @Override
+    public List<ScannedFile> scanFiles(Optional<OffsetDateTime> lastModificationDate, IDirectoryIndex index)
+            throws ModuleException {
+
+        IDirectoryIndex usedIndex = Boolean.TRUE.equals(pruneUnchangedDirectories) ? index : null;
+        List<ScannedFile> scannedFiles = new ArrayList<>();
 
         for (String dir : directories) {
             Path dirPath = Paths.get(dir);
             if (Files.isDirectory(dirPath)) {
-                scannedFiles.addAll(scanDirectory(dirPath, lastModificationDate));
+                scannedFiles.addAll(scanDirectory(dirPath, lastModificationDate, usedIndex));
             } else {
                 String message = String.format("Configured directory %s for scan does not exists or is not accessible.",
                                                dirPath.toString());
@@ -90,23 +111,22 @@ public class GlobDiskScanning implements IScanPlugin {
         return scannedFiles;
     }
 
-    private List<Path> scanDirectory(Path dirPath, Optional<OffsetDateTime> lastModificationDate) {
+    private List<ScannedFile> scanDirectory(Path dirPath, Optional<OffsetDateTime> lastModificationDate,
+            IDirectoryIndex index) {
         long startTime = System.currentTimeMillis();
-        List<Path> scannedFiles = new ArrayList<>();
-
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath, glob)) {
-            for (Path entry : stream) {
-                if (Files.isRegularFile(entry)) {
-                    if (lastModificationDate.isPresent()) {
-                        OffsetDateTime lmd = OffsetDateTime.ofInstant(Files.getLastModifiedTime(entry).toInstant(),
-                                                                      ZoneOffset.UTC);
-                        if (lmd.isAfter(lastModificationDate.get()) || lmd.isEqual(lastModificationDate.get())) {
-                            scannedFiles.add(entry);
-                        }
-                    } else {
-                        scannedFiles.add(entry);
-                    }
-                }
+        List<ScannedFile> scannedFiles = new ArrayList<>();
+
+        try {
+            // Directory attributes must be read before listing so changes occurring during listing are detected
+            BasicFileAttributes dirAttributes = Files.readAttributes(dirPath, BasicFileAttributes.class);
+            if ((index != null) && index.isUnchanged(dirPath, dirAttributes)) {
+                index.visited(dirPath, dirAttributes, true);
+                LOGGER.info("Directory {} unchanged since last scan", dirPath);
+                return scannedFiles;
+            }
+            boolean complete = listDirectory(dirPath, lastModificationDate, scannedFiles);
+            if (index != null) {
+                index.visited(dirPath, dirAttributes, complete);
             }
         } catch (IOException x) {
             throw new PluginUtilsRuntimeException("Scanning failure", x);
@@ -116,4 +136,31 @@ public class GlobDiskScanning implements IScanPlugin {
                     System.currentTimeMillis() - startTime);
         return scannedFiles;
     }
+
+    /**
+     * @return false if some entries cannot be read
+     */
+    private boolean listDirectory(Path dirPath, Optional<OffsetDateTime> lastModificationDate,
+            List<ScannedFile> scannedFiles) throws IOException {
+        boolean complete = true;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath, glob)) {
+            for (Path entry : stream) {
+                // Read all needed attributes at once
+                ScannedFile scannedFile;
+                try {
+                    scannedFile = ScannedFile.build(entry, Files.readAttributes(entry, BasicFileAttributes.class));
+                } catch (IOException e) {
+                    // Broken link or file deleted since directory listing
+                    LOGGER.debug("Cannot read attributes of {} : {}", entry, e.getMessage());
+                    complete = false;
+                    continue;
+                }
+                if (scannedFile.getAttributes().isRegularFile()
+                        && scannedFile.isModifiedSince(lastModificationDate.orElse(null))) {
+                    scannedFiles.add(scannedFile);
+                }
+            }
+        }
+        return complete;
+    }
 }
@@ -18,17 +18,15 @@
  */
 package fr.cnes.regards.modules.acquisition.service.plugins;
 
-import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.compress.utils.Lists;
@@ -38,10 +36,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginInit;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
 import fr.cnes.regards.framework.notification.NotificationLevel;
 import fr.cnes.regards.framework.notification.client.INotificationClient;
 import fr.cnes.regards.framework.security.role.DefaultRole;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.plugins.IDirectoryIndex;
 import fr.cnes.regards.modules.acquisition.plugins.IFluxScanPlugin;
 
 /**
@@ -62,6 +63,15 @@ public class GlobDiskStreamScanning implements IFluxScanPlugin {
 
     public static final String FIELD_GLOB = "glob";
 
+    public static final String FIELD_PARALLELISM = "parallelism";
+
+    public static final String FIELD_PRUNE = "pruneUnchangedDirectories";
+
+    /**
+     * Number of directories scanned in parallel when not configured
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
     @PluginParameter(name = FIELD_DIRS, label = "List of directories to scan")
     private List<String> directories;
 
@@ -69,16 +79,45 @@ public class GlobDiskStreamScanning implements IFluxScanPlugin {
             optional = true)
     private String glob;
 
+    @PluginParameter(name = FIELD_PARALLELISM, label = "Number of directories scanned in parallel",
+            defaultValue = "" + DEFAULT_PARALLELISM, optional = true)
+    private Integer parallelism;
+
+    @PluginParameter(name = FIELD_PRUNE, label = "Do not list again directories unchanged since last scan",
+            markdown = "prune_unchanged_directories.md", defaultValue = "false", optional = true)
+    private Boolean pruneUnchangedDirectories;
+
     @Autowired
     private INotificationClient notifClient;
 
+    @PluginInit
+    public void init() {
+        if ((parallelism == null) || (parallelism < 1)) {
+            parallelism = DEFAULT_PARALLELISM;
+        }
+    }
+
     @Override
     public List<Stream<Path>> stream(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
-        List<Stream<Path>> dirStreams = Lists.newArrayList();
+        return streamFiles(lastModificationDate).stream().map(s -> s.map(ScannedFile::getPath))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Stream<ScannedFile>> streamFiles(Optional<OffsetDateTime> lastModificationDate)
+            throws ModuleException {
+        return streamFiles(lastModificationDate, null);
+    }
+
+    @Override
+    public List<Stream<ScannedFile>> streamFiles(Optional<OffsetDateTime> lastModificationDate,
+            IDirectoryIndex index) throws ModuleException {
+        IDirectoryIndex usedIndex = Boolean.TRUE.equals(pruneUnchangedDirectories) ? index : null;
+        List<Stream<ScannedFile>> dirStreams = Lists.newArrayList();
         for (String dir : directories) {
             Path dirPath = Paths.get(dir);
             if (Files.isDirectory(dirPath)) {
-                dirStreams.add(scanDirectory(dirPath, lastModificationDate));
+                dirStreams.add(scanDirectory(dirPath, lastModificationDate, usedIndex));
             } else {
                 String message = String.format("Configured directory %s for scan does not exists or is not accessible.",
                                                dirPath.toString());
@@ -90,30 +129,14 @@ public class GlobDiskStreamScanning implements IFluxScanPlugin {
         return dirStreams;
     }
 
-    private Stream<Path> scanDirectory(Path dirPath, Optional<OffsetDateTime> lastModificationDate)
-            throws ModuleException {
-        try {
-            FileSystem fs = dirPath.getFileSystem();
-            final PathMatcher matcher = fs.getPathMatcher("glob:" + glob);
-            Predicate<Path> filter = entry -> {
-                boolean match = Files.isReadable(entry) && Files.isRegularFile(entry)
-                        && matcher.matches(entry.getFileName());
-                if (match && lastModificationDate.isPresent()) {
-                    OffsetDateTime lmd;
-                    try {
-                        lmd = OffsetDateTime.ofInstant(Files.getLastModifiedTime(entry).toInstant(), ZoneOffset.UTC);
-                        return lmd.isAfter(lastModificationDate.get()) || lmd.isEqual(lastModificationDate.get());
-                    } catch (IOException e) {
-                        LOGGER.error(e.getMessage(), e);
-                        match = false;
-                    }
-                }
-                return match;
-            };
-            return Files.walk(dirPath).filter(filter);
-
-        } catch (IOException e) {
-            throw new ModuleException(e.getMessage(), e);
-        }
+    private Stream<ScannedFile> scanDirectory(Path dirPath, Optional<OffsetDateTime> lastModificationDate,
+            IDirectoryIndex index) {
+        FileSystem fs = dirPath.getFileSystem();
+        final PathMatcher matcher = fs.getPathMatcher("glob:" + glob);
+        OffsetDateTime lmd = lastModificationDate.orElse(null);
+        return ParallelDirectoryWalker.walk(dirPath, parallelism,
+                                            file -> matcher.matches(file.getPath().getFileName())
+                                                    && file.isModifiedSince(lmd) && Files.isReadable(file.getPath()),
+                                            index);
     }
 }
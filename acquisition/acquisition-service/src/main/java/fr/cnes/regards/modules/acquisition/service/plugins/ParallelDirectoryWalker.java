@@ -0,0 +1,313 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.plugins.IDirectoryIndex;
+
+/**
+ * Parallel directory tree walker based on fork/join work stealing : each sub directory is listed in its own task.<br/>
+ * Detected files are pushed into a bounded queue consumed by the returned stream so walking is paused as long as
+ * consumer does not pull new files (back pressure) and consumer can handle first files before the walk ends. Walk
+ * only starts when the first file is pulled.<br/>
+ * As {@link Files#walk(Path, java.nio.file.FileVisitOption...)}, symbolic links are not followed for directories but
+ * symbolic links to regular files are returned with the attributes of their target. Unreadable directories are
+ * logged and skipped.<br/>
+ * <b>Returned stream must be closed to release walking threads.</b>
+ *
+ * @author REGARDS Team
+ */
+public final class ParallelDirectoryWalker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelDirectoryWalker.class);
+
+    /**
+     * Maximum number of detected files waiting for consumption
+     */
+    private static final int QUEUE_CAPACITY = 2000;
+
+    /**
+     * Delay between two checks of the walk state while waiting for the consumer or the walker
+     */
+    private static final long WAIT_TIMEOUT_MS = 100;
+
+    private ParallelDirectoryWalker() {
+    }
+
+    /**
+     * Walk the given directory tree in parallel
+     * @param rootDir directory to walk
+     * @param parallelism maximum number of directories listed at the same time
+     * @param filter filter on regular files
+     * @return lazy stream of detected files accepted by the filter. Order is not guaranteed.
+     */
+    public static Stream<ScannedFile> walk(Path rootDir, int parallelism, Predicate<ScannedFile> filter) {
+        return walk(rootDir, parallelism, filter, null);
+    }
+
+    /**
+     * Same as {@link #walk(Path, int, Predicate)} skipping the listing of the directories the given index knows as
+     * unchanged. Their known sub directories are still walked.
+     * @param index directory index, may be null
+     */
+    public static Stream<ScannedFile> walk(Path rootDir, int parallelism, Predicate<ScannedFile> filter,
+            IDirectoryIndex index) {
+        Walk walk = new Walk(rootDir, Math.max(1, parallelism), filter, index);
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(walk, Spliterator.NONNULL | Spliterator.DISTINCT), false)
+                .onClose(walk::cancel);
+    }
+
+    private static class Walk implements Iterator<ScannedFile> {
+
+        private final Path rootDir;
+
+        private final Predicate<ScannedFile> filter;
+
+        private final IDirectoryIndex index;
+
+        private final ForkJoinPool pool;
+
+        private final BlockingQueue<ScannedFile> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        private volatile boolean cancelled = false;
+
+        private volatile boolean done = false;
+
+        private boolean started = false;
+
+        private ScannedFile next;
+
+        private Walk(Path rootDir, int parallelism, Predicate<ScannedFile> filter, IDirectoryIndex index) {
+            this.rootDir = rootDir;
+            this.filter = filter;
+            this.index = index;
+            this.pool = new ForkJoinPool(parallelism);
+        }
+
+        private void start() {
+            pool.execute(new RecursiveAction() {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    try {
+                        new DirectoryTask(rootDir, Files.readAttributes(rootDir, BasicFileAttributes.class)).invoke();
+                    } catch (IOException e) {
+                        LOGGER.error("Cannot read directory {} : {}", rootDir, e.getMessage());
+                    } catch (CancellationException e) {
+                        LOGGER.debug("Walk of directory {} cancelled", rootDir);
+                    } catch (RuntimeException e) { // NOSONAR
+                        LOGGER.error(String.format("Error walking directory %s", rootDir), e);
+                    } finally {
+                        done = true;
+                        pool.shutdown();
+                    }
+                }
+            });
+        }
+
+        private void cancel() {
+            cancelled = true;
+            pool.shutdownNow();
+            queue.clear();
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Walk is started at first consumption
+            if (!started && !cancelled) {
+                started = true;
+                start();
+            }
+            try {
+                while ((next == null) && !cancelled) {
+                    // Read done flag before polling so no file pushed before the end of the walk is missed
+                    boolean walkEnded = done;
+                    next = queue.poll(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    if ((next == null) && walkEnded) {
+                        return false;
+                    }
+                }
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+            }
+            return next != null;
+        }
+
+        @Override
+        public ScannedFile next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ScannedFile file = next;
+            next = null;
+            return file;
+        }
+
+        /**
+         * Wait for free space in the queue as long as the walk is not cancelled
+         */
+        private void push(ScannedFile file) {
+            try {
+                while (!cancelled && !queue.offer(file, WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    // Consumer is slower than walker
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private class DirectoryTask extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final Path dir;
+
+            /**
+             * Directory attributes read before listing
+             */
+            private final BasicFileAttributes attributes;
+
+            private DirectoryTask(Path dir, BasicFileAttributes attributes) {
+                this.dir = dir;
+                this.attributes = attributes;
+            }
+
+            @Override
+            protected void compute() {
+                List<DirectoryTask> subTasks = new ArrayList<>();
+                if ((index != null) && index.isUnchanged(dir, attributes)) {
+                    // Only walk known sub directories
+                    boolean complete = true;
+                    for (Path subDir : index.getSubDirectories(dir)) {
+                        if (cancelled || Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        complete &= visitKnownDirectory(subDir, subTasks);
+                    }
+                    index.visited(dir, attributes, complete);
+                } else {
+                    list(subTasks);
+                }
+                // Sub directories not stolen by other workers are walked by this one
+                for (DirectoryTask subTask : subTasks) {
+                    subTask.join();
+                }
+            }
+
+            private void list(List<DirectoryTask> subTasks) {
+                boolean complete = true;
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    for (Path entry : entries) {
+                        if (cancelled || Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        complete &= visit(entry, subTasks);
+                    }
+                } catch (IOException | RuntimeException e) { // NOSONAR
+                    LOGGER.error("Cannot list directory {} : {}", dir, e.getMessage());
+                    complete = false;
+                }
+                if (index != null) {
+                    index.visited(dir, attributes, complete);
+                }
+            }
+
+            /**
+             * @return false if entry cannot be read
+             */
+            private boolean visit(Path entry, List<DirectoryTask> subTasks) {
+                try {
+                    BasicFileAttributes entryAttributes = Files
+                            .readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (entryAttributes.isDirectory()) {
+                        fork(entry, entryAttributes, subTasks);
+                        return true;
+                    }
+                    if (entryAttributes.isSymbolicLink()) {
+                        // Link target attributes are needed to know if it is a regular file
+                        entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    }
+                    ScannedFile file = ScannedFile.build(entry, entryAttributes);
+                    if (entryAttributes.isRegularFile() && filter.test(file)) {
+                        push(file);
+                    }
+                    return true;
+                } catch (IOException e) {
+                    LOGGER.debug("Cannot read attributes of {} : {}", entry, e.getMessage());
+                    return false;
+                }
+            }
+
+            /**
+             * @return false if known sub directory cannot be read anymore, so parent directory has to be listed again
+             */
+            private boolean visitKnownDirectory(Path subDir, List<DirectoryTask> subTasks) {
+                try {
+                    BasicFileAttributes subDirAttributes = Files
+                            .readAttributes(subDir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (subDirAttributes.isDirectory()) {
+                        fork(subDir, subDirAttributes, subTasks);
+                        return true;
+                    }
+                    LOGGER.warn("Known directory {} is not a directory anymore", subDir);
+                } catch (IOException e) {
+                    // Unchanged directory cannot loose a sub directory, this is a concurrent deletion or an access
+                    // problem
+                    LOGGER.warn("Cannot read attributes of known directory {} : {}", subDir, e.getMessage());
+                }
+                return false;
+            }
+
+            private void fork(Path subDir, BasicFileAttributes subDirAttributes, List<DirectoryTask> subTasks) {
+                DirectoryTask subTask = new DirectoryTask(subDir, subDirAttributes);
+                subTask.fork();
+                subTasks.add(subTask);
+            }
+        }
+    }
+}
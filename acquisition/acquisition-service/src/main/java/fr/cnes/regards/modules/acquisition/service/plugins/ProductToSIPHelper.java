@@ -19,13 +19,22 @@
 package fr.cnes.regards.modules.acquisition.service.plugins;
 
 import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
-import fr.cnes.regards.framework.utils.file.ChecksumUtils;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
 import fr.cnes.regards.modules.acquisition.domain.Product;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.service.IChecksumCacheService;
 import fr.cnes.regards.modules.ingest.dto.sip.SIP;
 import fr.cnes.regards.modules.ingest.dto.sip.SIPBuilder;
 
@@ -42,26 +51,94 @@ public final class ProductToSIPHelper {
         // Nothing to do
     }
 
-    public static SIPBuilder initFrom(Product product) throws ModuleException {
+    /**
+     * Init a SIP builder with the product files. Checksums are computed with the algorithm of the product chain,
+     * through the given cache so unchanged files are not read again.
+     * @param checksumCache checksum cache
+     */
+    public static SIPBuilder initFrom(Product product, IChecksumCacheService checksumCache) throws ModuleException {
 
         // Init the builder
         SIPBuilder sipBuilder = new SIPBuilder(product.getProductName());
 
+        // Compute all missing checksums of the product at once
+        String algorithm = getChecksumAlgorithm(product);
+        Map<AcquisitionFile, String> checksums = getChecksums(product.getAcquisitionFiles(), algorithm,
+                                                              checksumCache);
+
         // Fill SIP with product information
         for (AcquisitionFile af : product.getAcquisitionFiles()) {
-            String checksum;
-            try {
-                checksum = ChecksumUtils.computeHexChecksum(af.getFilePath(),
-                                                            AcquisitionProcessingChain.CHECKSUM_ALGORITHM);
-            } catch (NoSuchAlgorithmException | IOException e) {
-                throw new ModuleException(String.format("Error calculating file checksum. Cause %s", e.getMessage()), e);
-            }
-            sipBuilder.getContentInformationBuilder()
-                    .setDataObject(af.getFileInfo().getDataType(), af.getFilePath().toAbsolutePath(),
-                                   AcquisitionProcessingChain.CHECKSUM_ALGORITHM, checksum);
+            sipBuilder.getContentInformationBuilder().setDataObject(af.getFileInfo().getDataType(),
+                                                                    af.getFilePath().toAbsolutePath(), algorithm,
+                                                                    checksums.get(af));
             sipBuilder.getContentInformationBuilder().setSyntax(af.getFileInfo().getMimeType());
             sipBuilder.addContentInformation();
         }
         return sipBuilder;
     }
+
+    /**
+     * @return checksum algorithm configured on the product processing chain or
+     *         {@link AcquisitionProcessingChain#CHECKSUM_ALGORITHM} if none
+     */
+    public static String getChecksumAlgorithm(Product product) {
+        AcquisitionProcessingChain chain = product.getProcessingChain();
+        if ((chain == null) || (chain.getChecksumAlgorithm() == null)) {
+            return AcquisitionProcessingChain.CHECKSUM_ALGORITHM;
+        }
+        return chain.getChecksumAlgorithm();
+    }
+
+    /**
+     * Get the checksums of acquisition files. The checksum computed at validation time is used if it has been
+     * computed with the same algorithm and the file size and last modification date have not changed since.
+     * Otherwise, the checksum cache is requested for all remaining files at once so missing checksums are computed in
+     * parallel.
+     * @param files acquisition files
+     * @param algorithm checksum algorithm
+     * @param checksumCache checksum cache
+     * @return hexadecimal checksum of each file
+     * @throws ModuleException if a file cannot be read
+     */
+    public static Map<AcquisitionFile, String> getChecksums(Collection<AcquisitionFile> files, String algorithm,
+            IChecksumCacheService checksumCache) throws ModuleException {
+        Map<AcquisitionFile, String> checksums = new LinkedHashMap<>();
+        List<AcquisitionFile> remaining = new ArrayList<>();
+        for (AcquisitionFile af : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(af.getFilePath(), BasicFileAttributes.class);
+                String checksum = af.getChecksumIfUnchanged(algorithm, attributes);
+                if (checksum != null) {
+                    checksums.put(af, checksum);
+                } else {
+                    remaining.add(af);
+                }
+            } catch (IOException e) {
+                throw new ModuleException(String.format("Error calculating file checksum. Cause %s", e.getMessage()),
+                        e);
+            }
+        }
+        if (!remaining.isEmpty()) {
+            Set<Path> filePaths = new LinkedHashSet<>();
+            remaining.forEach(af -> filePaths.add(af.getFilePath()));
+            Map<Path, String> computed = checksumCache.getChecksums(filePaths, algorithm);
+            for (AcquisitionFile af : remaining) {
+                checksums.put(af, computed.get(af.getFilePath()));
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * Get the checksum of a file from the given cache, computed by the checksum engine if file has changed
+     * @param filePath file
+     * @param algorithm checksum algorithm
+     * @param checksumCache checksum cache
+     * @return hexadecimal checksum
+     * @throws ModuleException if file cannot be read
+     */
+    public static String getChecksum(Path filePath, String algorithm, IChecksumCacheService checksumCache)
+            throws ModuleException {
+        return checksumCache.getChecksum(filePath, algorithm);
+    }
 }
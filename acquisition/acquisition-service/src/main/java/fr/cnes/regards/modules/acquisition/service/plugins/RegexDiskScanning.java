@@ -23,12 +23,13 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,7 @@ import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
 import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
 import fr.cnes.regards.framework.utils.plugins.PluginUtilsRuntimeException;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
 import fr.cnes.regards.modules.acquisition.plugins.IScanPlugin;
 
 /**
@@ -64,20 +66,24 @@ public class RegexDiskScanning implements IScanPlugin {
     @PluginParameter(name = FIELD_REGEX, label = "Regular expression", defaultValue = ".*", optional = true)
     private String regex;
 
-    private DirectoryStream.Filter<Path> filter;
-
     @Override
     public List<Path> scan(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
+        return scanFiles(lastModificationDate).stream().map(ScannedFile::getPath).collect(Collectors.toList());
+    }
 
-        // Init filter
-        filter = file -> Pattern.compile(regex).matcher(file.getFileName().toString()).matches();
+    @Override
+    public List<ScannedFile> scanFiles(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
 
-        List<Path> scannedFiles = new ArrayList<>();
+        // Init filter (local to the scan as plugin instance may be used concurrently)
+        Pattern pattern = Pattern.compile(regex);
+        DirectoryStream.Filter<Path> filter = file -> pattern.matcher(file.getFileName().toString()).matches();
+
+        List<ScannedFile> scannedFiles = new ArrayList<>();
 
         for (String dir : directories) {
             Path dirPath = Paths.get(dir);
             if (Files.isDirectory(dirPath)) {
-                scannedFiles.addAll(scanDirectory(dirPath, lastModificationDate));
+                scannedFiles.addAll(scanDirectory(dirPath, filter, lastModificationDate));
             } else {
                 LOGGER.error("Invalid directory path : {}", dirPath.toString());
             }
@@ -85,22 +91,25 @@ public class RegexDiskScanning implements IScanPlugin {
         return scannedFiles;
     }
 
-    private List<Path> scanDirectory(Path dirPath, Optional<OffsetDateTime> lastModificationDate) {
+    private List<ScannedFile> scanDirectory(Path dirPath, DirectoryStream.Filter<Path> filter,
+            Optional<OffsetDateTime> lastModificationDate) {
         long startTime = System.currentTimeMillis();
-        List<Path> scannedFiles = new ArrayList<>();
+        List<ScannedFile> scannedFiles = new ArrayList<>();
 
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath, filter)) {
             for (Path entry : stream) {
-                if (Files.isRegularFile(entry)) {
-                    if (lastModificationDate.isPresent()) {
-                        OffsetDateTime lmd = OffsetDateTime.ofInstant(Files.getLastModifiedTime(entry).toInstant(),
-                                                                      ZoneOffset.UTC);
-                        if (lmd.isAfter(lastModificationDate.get()) || lmd.isEqual(lastModificationDate.get())) {
-                            scannedFiles.add(entry);
-                        }
-                    } else {
-                        scannedFiles.add(entry);
-                    }
+                // Read all needed attributes at once
+                ScannedFile scannedFile;
+                try {
+                    scannedFile = ScannedFile.build(entry, Files.readAttributes(entry, BasicFileAttributes.class));
+                } catch (IOException e) {
+                    // Broken link or file deleted since directory listing
+                    LOGGER.debug("Cannot read attributes of {} : {}", entry, e.getMessage());
+                    continue;
+                }
+                if (scannedFile.getAttributes().isRegularFile()
+                        && scannedFile.isModifiedSince(lastModificationDate.orElse(null))) {
+                    scannedFiles.add(scannedFile);
                 }
             }
         } catch (IOException x) {
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginInit;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
+import fr.cnes.regards.framework.utils.plugins.PluginUtilsRuntimeException;
+import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
+
+/**
+ * Compute the product name from the capture groups of a regular expression matching the file name.<br/>
+ * Pattern and template are compiled once, each thread reuses its own {@link Matcher} and product names are cached by
+ * file name stem so files of the same product are matched only once.
+ *
+ * @author REGARDS Team
+ */
+@Plugin(id = "RegexProductPlugin", version = "1.0.0-SNAPSHOT",
+        description = "Compute the product name from the capture groups of a regular expression matching the file name",
+        markdown = "RegexProductPlugin.md", author = "REGARDS Team", contact = "regards@c-s.fr", license = "GPLv3",
+        owner = "CSSI", url = "https://github.com/RegardsOss")
+public class RegexProductPlugin implements IProductPlugin {
+
+    public static final String FIELD_PATTERN = "pattern";
+
+    public static final String FIELD_TEMPLATE = "template";
+
+    public static final String FIELD_REMOVE_EXT = "removeExtension";
+
+    public static final String FIELD_CACHE_SIZE = "cacheSize";
+
+    @PluginParameter(name = FIELD_PATTERN, label = "Regular expression matching the whole file name")
+    private String pattern;
+
+    @PluginParameter(name = FIELD_TEMPLATE, label = "Product name template",
+            description = "Capture groups are referenced by index or name between braces, i.e. {1}_{orbit}")
+    private String template;
+
+    @PluginParameter(name = FIELD_REMOVE_EXT, label = "Match file name without its extension",
+            description = "File name is truncated from last dot before matching", defaultValue = "true",
+            optional = true)
+    private Boolean removeExtension;
+
+    @PluginParameter(name = FIELD_CACHE_SIZE, label = "Maximum number of cached product names",
+            defaultValue = "10000", optional = true)
+    private Integer cacheSize;
+
+    private Pattern compiledPattern;
+
+    private List<TemplatePart> templateParts;
+
+    private ThreadLocal<Matcher> matchers;
+
+    private Cache<String, String> productNames;
+
+    @PluginInit
+    public void init() {
+        try {
+            compiledPattern = Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new PluginUtilsRuntimeException(String.format("Invalid regular expression %s", pattern), e);
+        }
+        templateParts = parseTemplate(template, compiledPattern.matcher("").groupCount());
+        matchers = ThreadLocal.withInitial(() -> compiledPattern.matcher(""));
+        productNames = CacheBuilder.newBuilder().maximumSize(cacheSize == null ? 0 : Math.max(0, cacheSize))
+                .build();
+    }
+
+    @Override
+    public String getProductName(Path filePath) throws ModuleException {
+        String stem = filePath.getFileName().toString();
+        if ((removeExtension == null) || removeExtension) {
+            int indexExtension = stem.lastIndexOf('.');
+            if (indexExtension > 0) {
+                stem = stem.substring(0, indexExtension);
+            }
+        }
+        String productName = productNames.getIfPresent(stem);
+        if (productName == null) {
+            productName = computeProductName(stem);
+            productNames.put(stem, productName);
+        }
+        return productName;
+    }
+
+    private String computeProductName(String stem) throws ModuleException {
+        Matcher matcher = matchers.get().reset(stem);
+        try {
+            if (!matcher.matches()) {
+                throw new ModuleException(String.format("File name %s does not match pattern %s", stem, pattern));
+            }
+            StringBuilder productName = new StringBuilder();
+            for (TemplatePart part : templateParts) {
+                part.appendTo(matcher, productName);
+            }
+            return productName.toString();
+        } catch (IllegalArgumentException e) {
+            throw new ModuleException(String.format("Invalid product name template %s : %s", template,
+                                                    e.getMessage()),
+                    e);
+        } finally {
+            // Release reference to the matched file name
+            matcher.reset("");
+        }
+    }
+
+    /**
+     * Split template into literal parts and capture group references
+     */
+    private static List<TemplatePart> parseTemplate(String template, int groupCount) {
+        List<TemplatePart> parts = new ArrayList<>();
+        int index = 0;
+        while (index < template.length()) {
+            int start = template.indexOf('{', index);
+            if (start < 0) {
+                parts.add(new TemplatePart(template.substring(index), null, null));
+                break;
+            }
+            int end = template.indexOf('}', start);
+            if (end < 0) {
+                throw new PluginUtilsRuntimeException(String.format("Unclosed group reference in template %s",
+                                                                    template));
+            }
+            if (start > index) {
+                parts.add(new TemplatePart(template.substring(index, start), null, null));
+            }
+            String group = template.substring(start + 1, end);
+            if (group.isEmpty()) {
+                throw new PluginUtilsRuntimeException(String.format("Empty group reference in template %s",
+                                                                    template));
+            }
+            if (group.chars().allMatch(Character::isDigit)) {
+                int groupIndex = Integer.parseInt(group);
+                if (groupIndex > groupCount) {
+                    throw new PluginUtilsRuntimeException(String
+                            .format("Template %s references group %d but pattern only has %d groups", template,
+                                    groupIndex, groupCount));
+                }
+                parts.add(new TemplatePart(null, groupIndex, null));
+            } else {
+                parts.add(new TemplatePart(null, null, group));
+            }
+            index = end + 1;
+        }
+        return parts;
+    }
+
+    /**
+     * Literal text or capture group reference of the product name template
+     */
+    private static class TemplatePart {
+
+        private final String literal;
+
+        private final Integer groupIndex;
+
+        private final String groupName;
+
+        private TemplatePart(String literal, Integer groupIndex, String groupName) {
+            this.literal = literal;
+            this.groupIndex = groupIndex;
+            this.groupName = groupName;
+        }
+
+        private void appendTo(Matcher matcher, StringBuilder productName) {
+            if (literal != null) {
+                productName.append(literal);
+            } else {
+                // Unmatched optional groups are ignored
+                String value = groupIndex != null ? matcher.group(groupIndex) : matcher.group(groupName);
+                if (value != null) {
+                    productName.append(value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.annotations.Plugin;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginDestroy;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginInit;
+import fr.cnes.regards.framework.modules.plugins.annotations.PluginParameter;
+import fr.cnes.regards.framework.notification.NotificationLevel;
+import fr.cnes.regards.framework.notification.client.INotificationClient;
+import fr.cnes.regards.framework.security.role.DefaultRole;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.plugins.IFluxScanPlugin;
+
+/**
+ * Detect files created or modified in directories (and their sub directories) thanks to file system events.<br/>
+ * Events received between two chain runs are buffered in a bounded queue and only the related files are returned at
+ * next run. A full scan of the directories is done instead at first run after plugin initialization (i.e. service
+ * restart or configuration update), after an event overflow or if file system events are not available.<br/>
+ * Detected files are kept until their registration is acknowledged, so they are detected again if registration
+ * fails or is interrupted.<br/>
+ * Last modification date and glob pattern filters are applied as for {@link GlobDiskStreamScanning}.
+ *
+ * @author REGARDS Team
+ */
+@Plugin(id = "WatchDiskStreamScanning", version = "1.0.0-SNAPSHOT",
+        description = "Detect files created or modified in directories filtering with a glob pattern",
+        markdown = "WatchDiskStreamScanning.md", author = "REGARDS Team", contact = "regards@c-s.fr",
+        license = "GPLv3", owner = "CSSI", url = "https://github.com/RegardsOss")
+public class WatchDiskStreamScanning implements IFluxScanPlugin {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchDiskStreamScanning.class);
+
+    public static final String FIELD_DIRS = "directories";
+
+    public static final String FIELD_GLOB = "glob";
+
+    public static final String FIELD_QUEUE_CAPACITY = "queueCapacity";
+
+    public static final String FIELD_PARALLELISM = "parallelism";
+
+    @PluginParameter(name = FIELD_DIRS, label = "List of directories to watch")
+    private List<String> directories;
+
+    @PluginParameter(name = FIELD_GLOB, label = "Glob pattern", markdown = "glob_pattern.md", defaultValue = "*",
+            optional = true)
+    private String glob;
+
+    @PluginParameter(name = FIELD_QUEUE_CAPACITY,
+            label = "Maximum number of changed files kept between two runs before falling back to a full scan",
+            defaultValue = "100000", optional = true)
+    private Integer queueCapacity;
+
+    @PluginParameter(name = FIELD_PARALLELISM, label = "Number of directories scanned in parallel during full scans",
+            defaultValue = "4", optional = true)
+    private Integer parallelism;
+
+    @Autowired
+    private INotificationClient notifClient;
+
+    private PathMatcher matcher;
+
+    private WatchService watchService;
+
+    private BlockingQueue<Path> changedFiles;
+
+    /**
+     * Files already in {@link #changedFiles} to skip duplicate events
+     */
+    private final Set<Path> pendingFiles = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Changed files returned by the last run and not yet acknowledged as registered.
+     * They are returned again at next run until registration succeeds.
+     */
+    private final Set<Path> unregisteredFiles = new LinkedHashSet<>();
+
+    /**
+     * True if last run was a full scan not yet acknowledged as registered
+     */
+    private boolean unregisteredFullScan = false;
+
+    /**
+     * Full scan is needed at first run as events may have been missed before plugin initialization
+     */
+    private volatile boolean fullScanNeeded = true;
+
+    private volatile boolean watching = false;
+
+    @PluginInit
+    public void init() {
+        matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        changedFiles = new ArrayBlockingQueue<>(queueCapacity);
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (String dir : directories) {
+                Path dirPath = Paths.get(dir);
+                if (Files.isDirectory(dirPath)) {
+                    registerTree(dirPath, false);
+                }
+            }
+            watching = true;
+            Thread watcher = new Thread(this::watch, "acquisition-watch-" + String.join(",", directories));
+            watcher.setDaemon(true);
+            watcher.start();
+        } catch (IOException e) {
+            LOGGER.error("File system events not available, directories will be fully scanned at each run", e);
+            close();
+        }
+    }
+
+    @PluginDestroy
+    public void close() {
+        watching = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.warn(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public List<Stream<Path>> stream(Optional<OffsetDateTime> lastModificationDate) throws ModuleException {
+        return streamFiles(lastModificationDate).stream().map(s -> s.map(ScannedFile::getPath))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized List<Stream<ScannedFile>> streamFiles(Optional<OffsetDateTime> lastModificationDate)
+            throws ModuleException {
+        OffsetDateTime lmd = lastModificationDate.orElse(null);
+        if (fullScanNeeded || unregisteredFullScan || !watching) {
+            // Reset events before scanning, so events occurring during the scan are handled at next run
+            fullScanNeeded = false;
+            unregisteredFullScan = true;
+            unregisteredFiles.clear();
+            drainChangedFiles();
+            return fullScan(lmd);
+        }
+        // Files of a previous failed run are returned again with the new ones
+        unregisteredFiles.addAll(drainChangedFiles());
+        if (unregisteredFiles.size() > queueCapacity) {
+            LOGGER.warn("Too many changed files not registered, directories are fully scanned");
+            unregisteredFullScan = true;
+            unregisteredFiles.clear();
+            return fullScan(lmd);
+        }
+        List<Stream<ScannedFile>> streams = new ArrayList<>();
+        streams.add(new ArrayList<>(unregisteredFiles).stream().map(WatchDiskStreamScanning::readAttributes)
+                .filter(Optional::isPresent).map(Optional::get)
+                .filter(file -> file.getAttributes().isRegularFile() && file.isModifiedSince(lmd)
+                        && Files.isReadable(file.getPath())));
+        return streams;
+    }
+
+    @Override
+    public synchronized void streamedFilesRegistered(boolean registered) {
+        if (registered) {
+            unregisteredFullScan = false;
+            unregisteredFiles.clear();
+        } else {
+            LOGGER.warn("Detected files have not been all registered, they will be detected again at next run");
+        }
+    }
+
+    private List<Stream<ScannedFile>> fullScan(OffsetDateTime lmd) {
+        List<Stream<ScannedFile>> dirStreams = new ArrayList<>();
+        for (String dir : directories) {
+            Path dirPath = Paths.get(dir);
+            if (Files.isDirectory(dirPath)) {
+                dirStreams.add(ParallelDirectoryWalker
+                        .walk(dirPath, parallelism, file -> matcher.matches(file.getPath().getFileName())
+                                && file.isModifiedSince(lmd) && Files.isReadable(file.getPath())));
+            } else {
+                String message = String.format("Configured directory %s for scan does not exists or is not accessible.",
+                                               dirPath.toString());
+                LOGGER.error(message);
+                notifClient.notify(message, "Acquisition chain invalid", NotificationLevel.WARNING, DefaultRole.EXPLOIT,
+                                   DefaultRole.ADMIN, DefaultRole.PROJECT_ADMIN);
+            }
+        }
+        return dirStreams;
+    }
+
+    private List<Path> drainChangedFiles() {
+        List<Path> files = new ArrayList<>();
+        changedFiles.drainTo(files);
+        pendingFiles.removeAll(files);
+        return files;
+    }
+
+    /**
+     * Watching loop run in a dedicated thread until {@link #close()}
+     */
+    private void watch() {
+        try {
+            while (watching) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        LOGGER.warn("Too many file system events, next run will fully scan directories");
+                        fullScanNeeded = true;
+                    } else {
+                        handle(dir.resolve((Path) event.context()),
+                               event.kind() == StandardWatchEventKinds.ENTRY_CREATE);
+                    }
+                }
+                // Directory may have been deleted
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Watch service closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) { // NOSONAR
+            LOGGER.error("Watching directories failed, directories will be fully scanned at each run", e);
+        } finally {
+            watching = false;
+        }
+    }
+
+    private void handle(Path path, boolean created) {
+        if (created && Files.isDirectory(path)) {
+            // Watch new directory and get files created before it was watched
+            try {
+                registerTree(path, true);
+            } catch (IOException e) {
+                LOGGER.error(String.format("Cannot watch new directory %s, next run will fully scan directories",
+                                           path),
+                             e);
+                fullScanNeeded = true;
+            }
+        } else {
+            changed(path);
+        }
+    }
+
+    private void changed(Path path) {
+        if (!fullScanNeeded && matcher.matches(path.getFileName()) && pendingFiles.add(path)
+                && !changedFiles.offer(path)) {
+            pendingFiles.remove(path);
+            LOGGER.warn("Too many changed files, next run will fully scan directories");
+            fullScanNeeded = true;
+        }
+    }
+
+    /**
+     * Watch given directory and all its sub directories
+     * @param collectFiles if true, files already in directories are handled as changed files
+     */
+    private void registerTree(Path rootDir, boolean collectFiles) throws IOException {
+        Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                             StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (collectFiles) {
+                    changed(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static Optional<ScannedFile> readAttributes(Path entry) {
+        try {
+            return Optional.of(ScannedFile.build(entry, Files.readAttributes(entry, BasicFileAttributes.class)));
+        } catch (IOException e) {
+            // File deleted since event
+            LOGGER.debug("Cannot read attributes of {} : {}", entry, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
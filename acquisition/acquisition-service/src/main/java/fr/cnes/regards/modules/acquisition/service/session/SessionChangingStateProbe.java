@@ -1,9 +1,11 @@
 package fr.cnes.regards.modules.acquisition.service.session;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
 
-import fr.cnes.regards.modules.acquisition.domain.Product;
 import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
 import fr.cnes.regards.modules.ingest.domain.sip.ISipState;
 
 public class SessionChangingStateProbe {
@@ -32,25 +34,38 @@ public class SessionChangingStateProbe {
 
     private ISipState productSIPState;
 
-    public void addUpdatedProduct(Product updatedProduct) {
-        ingestionChain = updatedProduct.getProcessingChain().getLabel();
+    // Number of new files acquired in another session than the product one, by session owner and session
+    private final Table<String, String, Long> fileSessionSwitches = HashBasedTable.create();
+
+    public void addUpdatedProduct(ProductSummary updatedProduct) {
+        ingestionChain = updatedProduct.getSessionOwner();
         session = updatedProduct.getSession();
-        sessionOwner = updatedProduct.getProcessingChain().getLabel();
+        sessionOwner = updatedProduct.getSessionOwner();
         productState = updatedProduct.getState();
         productSIPState = updatedProduct.getSipState();
     }
 
-    public static SessionChangingStateProbe build(Product initialProduct) {
+    /**
+     * Record a new file of the product registered in another session
+     */
+    public void addFileSessionSwitch(String fileSessionOwner, String fileSession) {
+        Long count = fileSessionSwitches.get(fileSessionOwner, fileSession);
+        fileSessionSwitches.put(fileSessionOwner, fileSession, count == null ? 1L : count + 1);
+    }
+
+    /**
+     * @param initialProduct {@link ProductSummary} of the product before update, null for a new product
+     * @param nbAcquiredFiles number of files acquired by the product before update
+     */
+    public static SessionChangingStateProbe build(ProductSummary initialProduct, long nbAcquiredFiles) {
         SessionChangingStateProbe sessionChangingStateProbe = new SessionChangingStateProbe();
         if (initialProduct != null) {
             sessionChangingStateProbe.productName = initialProduct.getProductName();
             sessionChangingStateProbe.initialSession = initialProduct.getSession();
-            sessionChangingStateProbe.initialSessionOwner = initialProduct.getProcessingChain().getLabel();
+            sessionChangingStateProbe.initialSessionOwner = initialProduct.getSessionOwner();
             sessionChangingStateProbe.initialProductState = initialProduct.getState();
             sessionChangingStateProbe.initialProductSIPState = initialProduct.getSipState();
-            // In case product changed from session we have to calculate number of files scanned in the previous session.
-            // This count is used after to decrement files acquired in the old session.
-            sessionChangingStateProbe.initalNbAcquiredFiles = initialProduct.getActiveAcquisitionFiles().size();
+            sessionChangingStateProbe.initalNbAcquiredFiles = nbAcquiredFiles;
         }
         return sessionChangingStateProbe;
     }
@@ -113,4 +128,8 @@ public class SessionChangingStateProbe {
         return sessionOwner;
     }
 
+    public Table<String, String, Long> getFileSessionSwitches() {
+        return fileSessionSwitches;
+    }
+
 }
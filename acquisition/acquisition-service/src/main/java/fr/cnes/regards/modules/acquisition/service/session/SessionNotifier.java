@@ -9,9 +9,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.google.common.collect.Table;
+
 import fr.cnes.regards.modules.acquisition.domain.Product;
 import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
 import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
 import fr.cnes.regards.modules.ingest.domain.sip.ISipState;
 import fr.cnes.regards.modules.ingest.domain.sip.SIPState;
 import fr.cnes.regards.modules.sessionmanager.client.ISessionNotificationClient;
@@ -76,20 +79,23 @@ public class SessionNotifier {
     }
 
     public void notifyChangeProductState(Product product, ISipState nextSipState) {
-        notifyChangeProductState(product, Optional.empty(), Optional.of(nextSipState));
+        notifyChangeProductState(product.getProcessingChain().getLabel(), product.getSession(), product.getState(),
+                                 product.getSipState(), Optional.empty(), Optional.of(nextSipState));
+    }
+
+    public void notifyChangeProductState(ProductSummary product, ISipState nextSipState) {
+        notifyChangeProductState(product.getSessionOwner(), product.getSession(), product.getState(),
+                                 product.getSipState(), Optional.empty(), Optional.of(nextSipState));
     }
 
-    private void notifyChangeProductState(Product product, Optional<ProductState> nextState,
-            Optional<ISipState> nexSipState) {
-        Optional<SessionProductPropertyEnum> current = getProperty(product.getState(), product.getSipState());
-        Optional<SessionProductPropertyEnum> next = getProperty(nextState.orElse(product.getState()),
-                                                                nexSipState.orElse(product.getSipState()));
+    private void notifyChangeProductState(String sessionOwner, String session, ProductState state, ISipState sipState,
+            Optional<ProductState> nextState, Optional<ISipState> nexSipState) {
+        Optional<SessionProductPropertyEnum> current = getProperty(state, sipState);
+        Optional<SessionProductPropertyEnum> next = getProperty(nextState.orElse(state), nexSipState.orElse(sipState));
         if (!current.equals(next)) {
-            notifyDecrementSession(product.getProcessingChain().getLabel(), product.getSession(), product.getState(),
-                                   product.getSipState());
+            notifyDecrementSession(sessionOwner, session, state, sipState);
             // Add to submitting
-            notifyIncrementSession(product.getProcessingChain().getLabel(), product.getSession(),
-                                   nextState.orElse(product.getState()), nexSipState.orElse(product.getSipState()));
+            notifyIncrementSession(sessionOwner, session, nextState.orElse(state), nexSipState.orElse(sipState));
         }
     }
 
@@ -122,6 +128,13 @@ public class SessionNotifier {
                                        probe.getInitialProductState(), probe.getInitialProductSIPState(),
                                        probe.getInitalNbAcquiredFiles());
         }
+        // Move new files registered in another session to the product one
+        for (Table.Cell<String, String, Long> fileSwitch : probe.getFileSessionSwitches().cellSet()) {
+            notifyDecrementSession(fileSwitch.getRowKey(), fileSwitch.getColumnKey(),
+                                   SessionProductPropertyEnum.PROPERTY_FILES_ACQUIRED, fileSwitch.getValue());
+            notifyIncrementSession(probe.getSessionOwner(), probe.getSession(),
+                                   SessionProductPropertyEnum.PROPERTY_FILES_ACQUIRED, fileSwitch.getValue());
+        }
         // Check if an event must be sent
         if (probe.shouldUpdateState()) {
             // First decrement the old state, if the product existed before and was in the same session
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fr.cnes.regards.framework.jpa.multitenant.test.AbstractMultitenantServiceTest;
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.sessionmanager.client.ISessionNotificationClient;
+
+/**
+ * Test {@link AcquisitionChainDescriptorService} caching and invalidation.
+ *
+ * @author REGARDS Team
+ */
+@TestPropertySource(properties = { "spring.jpa.properties.hibernate.default_schema=acq_chain_descriptor" })
+public class AcquisitionChainDescriptorServiceTest extends AbstractMultitenantServiceTest {
+
+    @MockBean
+    private ISessionNotificationClient sessionNotificationClient;
+
+    @Autowired
+    private IAcquisitionProcessingService processingService;
+
+    @Autowired
+    private IAcquisitionChainDescriptorService descriptorService;
+
+    private AcquisitionProcessingChain processingChain;
+
+    @Before
+    public void before() throws ModuleException {
+        for (AcquisitionProcessingChain chain : processingService.getFullChains(PageRequest.of(0, 100))
+                .getContent()) {
+            chain.setActive(false);
+            processingService.updateChain(chain);
+            processingService.deleteChain(chain.getId());
+        }
+        processingChain = processingService
+                .createChain(AcquisitionTestUtils.getNewChain("Descriptor chain", null, "A", "B"));
+    }
+
+    @Test
+    public void cachedUntilInvalidated() throws ModuleException {
+        AcquisitionChainDescriptor descriptor = descriptorService.get(processingChain);
+        Assert.assertEquals(processingChain.getId(), descriptor.getChainId());
+        Assert.assertSame(descriptor, descriptorService.get(processingChain));
+
+        // Outside of a transaction, invalidation is immediate
+        descriptorService.invalidate(processingChain.getId());
+        AcquisitionChainDescriptor compiled = descriptorService.get(processingChain);
+        Assert.assertNotSame(descriptor, compiled);
+        Assert.assertSame(compiled, descriptorService.get(processingChain));
+    }
+
+    @Test
+    public void chainUpdateInvalidatesDescriptor() throws ModuleException {
+        AcquisitionChainDescriptor descriptor = descriptorService.get(processingChain);
+        AcquisitionProcessingChain chain = processingService.getChain(processingChain.getId());
+        chain.getFileInfos().stream().filter(fileInfo -> "B".equals(fileInfo.getComment()))
+                .forEach(fileInfo -> fileInfo.setMandatory(Boolean.FALSE));
+        processingService.updateChain(chain);
+
+        AcquisitionChainDescriptor compiled = descriptorService.get(processingChain);
+        Assert.assertNotSame(descriptor, compiled);
+        Assert.assertEquals(1, compiled.getNbMandatoryFileInfos());
+        Assert.assertEquals(1, compiled.getNbOptionalFileInfos());
+    }
+
+    @Test
+    public void compiledFromDatabaseChain() throws ModuleException {
+        // Modified but not saved chain must not be used to compile the descriptor
+        AcquisitionProcessingChain detached = processingService.getChain(processingChain.getId());
+        detached.getFileInfos().forEach(fileInfo -> fileInfo.setMandatory(Boolean.FALSE));
+        descriptorService.invalidate(processingChain.getId());
+
+        AcquisitionChainDescriptor descriptor = descriptorService.get(detached);
+        Assert.assertEquals(2, descriptor.getNbMandatoryFileInfos());
+        Assert.assertEquals(0, descriptor.getNbOptionalFileInfos());
+    }
+
+    @Test
+    public void invalidatedAgainOnTransactionCompletion() throws ModuleException {
+        List<TransactionSynchronization> synchronizations;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            descriptorService.invalidate(processingChain.getId());
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assert.assertEquals(1, synchronizations.size());
+
+        // Descriptor compiled before commit, possibly from the previous chain state
+        AcquisitionChainDescriptor beforeCommit = descriptorService.get(processingChain);
+        Assert.assertSame(beforeCommit, descriptorService.get(processingChain));
+
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        AcquisitionChainDescriptor afterCommit = descriptorService.get(processingChain);
+        Assert.assertNotSame(beforeCommit, afterCommit);
+        Assert.assertSame(afterCommit, descriptorService.get(processingChain));
+    }
+}
@@ -22,12 +22,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -47,6 +49,9 @@ import fr.cnes.regards.framework.urn.DataType;
 import fr.cnes.regards.framework.utils.plugins.PluginParameterTransformer;
 import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileInfoRepository;
 import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileRepository;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
 import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
 import fr.cnes.regards.modules.acquisition.service.plugins.GlobDiskScanning;
@@ -87,6 +92,73 @@ public class AcquisitionProcessingServiceNotxTest extends AbstractMultitenantSer
     @Test
     public void registerWithDuplicates() throws ModuleException, IOException {
 
+        AcquisitionFileInfo fileInfo = createFileInfo();
+
+        Path searchDir = Paths.get("src", "test", "resources", "data", "plugins", "scan");
+        // Register file
+        Path first = searchDir.resolve("CSSI_PRODUCT_01.md");
+        Assert.assertTrue(processingService.registerFile(first, fileInfo, Optional.empty(), "chain1", "session1"));
+        AcquisitionFile registered = acquisitionFileRepository.findAll().get(0);
+        Assert.assertEquals("chain1", registered.getSession());
+        Assert.assertEquals("session1", registered.getSessionOwner());
+
+        // Register same file with its lmd
+        OffsetDateTime lmd = OffsetDateTime.ofInstant(Files.getLastModifiedTime(first).toInstant(), ZoneOffset.UTC);
+        List<ScannedFile> filePaths = new ArrayList<>();
+        filePaths.add(ScannedFile.build(first));
+        filePaths.add(ScannedFile.build(searchDir.resolve("CSSI_PRODUCT_02.md")));
+        filePaths.add(ScannedFile.build(searchDir.resolve("CSSI_PRODUCT_03.md")));
+        Assert.assertEquals(2, processingService.registerFiles(filePaths.iterator(), fileInfo, Optional.of(lmd),
+                                                               "chain1", "session1"));
+
+    }
+
+    /**
+     * Files inserted in bulk must get identifiers that never collide with the ones allocated by JPA
+     */
+    @Test
+    public void registerBulkReservesIds() throws ModuleException {
+
+        AcquisitionFileInfo fileInfo = createFileInfo();
+
+        // More files than one sequence block and one registration batch
+        int nbFiles = 1234;
+        Instant lmd = Instant.now();
+        List<ScannedFile> filePaths = new ArrayList<>(nbFiles);
+        for (int i = 0; i < nbFiles; i++) {
+            filePaths.add(ScannedFile.build(Paths.get("bulk", "file_" + i + ".dat"), lmd, 10L));
+        }
+        Assert.assertEquals(nbFiles, processingService.registerFiles(filePaths.iterator(), fileInfo,
+                                                                     Optional.empty(), "chain1", "session1"));
+
+        // Mix with identifiers allocated by JPA
+        AcquisitionFile jpaFile = new AcquisitionFile();
+        jpaFile.setAcqDate(OffsetDateTime.now());
+        jpaFile.setFileInfo(fileInfo);
+        jpaFile.setFilePath(Paths.get("bulk", "jpa.dat"));
+        jpaFile.setState(AcquisitionFileState.IN_PROGRESS);
+        jpaFile.setSession("chain1");
+        jpaFile.setSessionOwner("session1");
+        jpaFile = acquisitionFileRepository.save(jpaFile);
+
+        // And with a single registration
+        Assert.assertTrue(processingService.registerFile(Paths.get("bulk", "single.dat"), fileInfo,
+                                                         Optional.empty(), "chain1", "session1"));
+
+        List<AcquisitionFile> files = acquisitionFileRepository.findAll();
+        Assert.assertEquals(nbFiles + 2, files.size());
+        Set<Long> ids = files.stream().map(AcquisitionFile::getId).collect(Collectors.toSet());
+        Assert.assertEquals("Identifiers must be unique", nbFiles + 2, ids.size());
+        Assert.assertTrue(ids.contains(jpaFile.getId()));
+        for (AcquisitionFile file : files) {
+            Assert.assertEquals(AcquisitionFileState.IN_PROGRESS, file.getState());
+            Assert.assertEquals("chain1", file.getSession());
+            Assert.assertEquals("session1", file.getSessionOwner());
+            Assert.assertEquals(fileInfo.getId(), file.getFileInfo().getId());
+        }
+    }
+
+    private AcquisitionFileInfo createFileInfo() throws ModuleException {
         // Create an acquisition file info
         AcquisitionFileInfo fileInfo = new AcquisitionFileInfo();
         fileInfo.setMandatory(Boolean.TRUE);
@@ -103,21 +175,6 @@ public class AcquisitionProcessingServiceNotxTest extends AbstractMultitenantSer
 
         fileInfo.setScanPlugin(scanPlugin);
 
-        fileInfoRepository.save(fileInfo);
-
-        Path searchDir = Paths.get("src", "test", "resources", "data", "plugins", "scan");
-        // Register file
-        Path first = searchDir.resolve("CSSI_PRODUCT_01.md");
-        Assert.assertTrue(processingService.registerFile(first, fileInfo, Optional.empty()));
-
-        // Register same file with its lmd
-        OffsetDateTime lmd = OffsetDateTime.ofInstant(Files.getLastModifiedTime(first).toInstant(), ZoneOffset.UTC);
-        List<Path> filePaths = new ArrayList<>();
-        filePaths.add(first);
-        filePaths.add(searchDir.resolve("CSSI_PRODUCT_02.md"));
-        filePaths.add(searchDir.resolve("CSSI_PRODUCT_03.md"));
-        Assert.assertEquals(2, processingService.registerFiles(filePaths.iterator(), fileInfo, Optional.of(lmd),
-                                                               "chain1", "session1"));
-
+        return fileInfoRepository.save(fileInfo);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.http.MediaType;
+
+import com.google.common.collect.Sets;
+
+import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
+import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
+import fr.cnes.regards.framework.urn.DataType;
+import fr.cnes.regards.framework.utils.plugins.PluginParameterTransformer;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChainMode;
+import fr.cnes.regards.modules.acquisition.domain.chain.StorageMetadataProvider;
+import fr.cnes.regards.modules.acquisition.service.plugins.DefaultFileValidation;
+import fr.cnes.regards.modules.acquisition.service.plugins.DefaultProductPlugin;
+import fr.cnes.regards.modules.acquisition.service.plugins.DefaultSIPGeneration;
+import fr.cnes.regards.modules.acquisition.service.plugins.GlobDiskScanning;
+
+/**
+ * Utils for acquisition service testing
+ *
+ * @author REGARDS Team
+ */
+public final class AcquisitionTestUtils {
+
+    private AcquisitionTestUtils() {
+        // Nothing to do
+    }
+
+    /**
+     * Build a manual chain with default plugins and one mandatory file info per comment, scanning no directory
+     * @param label chain label, also used to label plugin configurations
+     * @param productPrefix prefix of the product names, may be null
+     * @param fileInfoComments comment of each file info
+     */
+    public static AcquisitionProcessingChain getNewChain(String label, String productPrefix,
+            String... fileInfoComments) {
+        AcquisitionProcessingChain chain = new AcquisitionProcessingChain();
+        chain.setLabel(label);
+        chain.setActive(Boolean.TRUE);
+        chain.setMode(AcquisitionProcessingChainMode.MANUAL);
+        chain.setIngestChain("DefaultIngestChain");
+        chain.setPeriodicity("0 * * * * *");
+        chain.setCategories(Sets.newLinkedHashSet());
+
+        for (String comment : fileInfoComments) {
+            AcquisitionFileInfo fileInfo = new AcquisitionFileInfo();
+            fileInfo.setMandatory(Boolean.TRUE);
+            fileInfo.setComment(comment);
+            fileInfo.setMimeType(MediaType.APPLICATION_OCTET_STREAM);
+            fileInfo.setDataType(DataType.RAWDATA);
+            Set<IPluginParam> param = IPluginParam.set(IPluginParam
+                    .build(GlobDiskScanning.FIELD_DIRS, PluginParameterTransformer.toJson(new ArrayList<>())));
+            PluginConfiguration scanPlugin = PluginConfiguration.build(GlobDiskScanning.class, null, param);
+            scanPlugin.setIsActive(true);
+            scanPlugin.setLabel(label + " scan plugin " + comment);
+            fileInfo.setScanPlugin(scanPlugin);
+            chain.addFileInfo(fileInfo);
+        }
+
+        PluginConfiguration validationPlugin = PluginConfiguration.build(DefaultFileValidation.class, null,
+                                                                         new HashSet<IPluginParam>());
+        validationPlugin.setIsActive(true);
+        validationPlugin.setLabel(label + " validation plugin");
+        chain.setValidationPluginConf(validationPlugin);
+
+        Set<IPluginParam> productParams = new HashSet<>();
+        if (productPrefix != null) {
+            productParams.add(IPluginParam.build(DefaultProductPlugin.FIELD_PREFIX, productPrefix));
+        }
+        PluginConfiguration productPlugin = PluginConfiguration.build(DefaultProductPlugin.class, null,
+                                                                      productParams);
+        productPlugin.setIsActive(true);
+        productPlugin.setLabel(label + " product plugin");
+        chain.setProductPluginConf(productPlugin);
+
+        PluginConfiguration sipGenPlugin = PluginConfiguration.build(DefaultSIPGeneration.class, null,
+                                                                     new HashSet<IPluginParam>());
+        sipGenPlugin.setIsActive(true);
+        sipGenPlugin.setLabel(label + " SIP generation plugin");
+        chain.setGenerateSipPluginConf(sipGenPlugin);
+
+        chain.setStorages(Collections
+                .singletonList(StorageMetadataProvider.build("AWS", "/path/to/file", new HashSet<>())));
+        return chain;
+    }
+}
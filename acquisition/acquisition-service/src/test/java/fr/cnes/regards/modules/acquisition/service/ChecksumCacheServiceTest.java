@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import fr.cnes.regards.framework.jpa.multitenant.test.AbstractMultitenantServiceTest;
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.modules.acquisition.dao.IChecksumCacheRepository;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.ChecksumCacheEntry;
+
+/**
+ * Test {@link ChecksumCacheService} persistence. Retention is set to zero so that every checksum not accessed since
+ * the previous eviction is removed.
+ *
+ * @author REGARDS Team
+ */
+@TestPropertySource(properties = { "spring.jpa.properties.hibernate.default_schema=acquisition_checksum",
+        "regards.acquisition.checksum.cache.retention.days=0" })
+public class ChecksumCacheServiceTest extends AbstractMultitenantServiceTest {
+
+    private static final String ABC_MD5 = "900150983cd24fb0d6963f7d28e17f72";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private IChecksumCacheService checksumCache;
+
+    @Autowired
+    private IChecksumCacheRepository checksumCacheRepository;
+
+    @Before
+    public void before() {
+        checksumCacheRepository.deleteAll();
+    }
+
+    @Test
+    public void putReplacesExistingEntry() throws IOException, ModuleException {
+        Path file = createFile("file", "abc");
+        Assert.assertEquals(ABC_MD5, checksumCache.getChecksum(file, "MD5"));
+
+        // Same path and algorithm : entry is updated, not duplicated
+        checksumCache.put(file, "MD5", 3L, 1L, "other");
+        List<ChecksumCacheEntry> entries = findEntries(file, "MD5");
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("other", entries.get(0).getChecksum());
+        Assert.assertEquals(1L, entries.get(0).getFileLastModified().longValue());
+
+        // File attributes do not match anymore so checksum is computed again
+        Assert.assertEquals(ABC_MD5, checksumCache.getChecksum(file, "MD5"));
+        entries = findEntries(file, "MD5");
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals(ABC_MD5, entries.get(0).getChecksum());
+
+        // Other algorithm is another entry
+        checksumCache.getChecksum(file, "SHA-256");
+        Assert.assertEquals(2, checksumCacheRepository.count());
+    }
+
+    @Test
+    public void hitAndMissCounts() throws IOException, ModuleException {
+        Path file = createFile("counted", "abc");
+        long memoryHits = checksumCache.getMemoryHitCount();
+        long databaseHits = checksumCache.getDatabaseHitCount();
+        long misses = checksumCache.getMissCount();
+
+        // First computation is a miss
+        Assert.assertEquals(ABC_MD5, checksumCache.getChecksum(file, "MD5"));
+        Assert.assertEquals(misses + 1, checksumCache.getMissCount());
+
+        // Then checksum is found in memory
+        Assert.assertEquals(ABC_MD5, checksumCache.getChecksum(file, "MD5"));
+        Assert.assertEquals(memoryHits + 1, checksumCache.getMemoryHitCount());
+        Assert.assertEquals(databaseHits, checksumCache.getDatabaseHitCount());
+        Assert.assertEquals(misses + 1, checksumCache.getMissCount());
+    }
+
+    @Test
+    public void evictUnusedChecksums() throws IOException, ModuleException, InterruptedException {
+        Path used = createFile("used", "abc");
+        Path unused = createFile("unused", "def");
+        Map<Path, String> checksums = checksumCache.getChecksums(Arrays.asList(used, unused), "MD5");
+        Assert.assertEquals(ABC_MD5, checksums.get(used));
+        Assert.assertEquals(2, checksumCacheRepository.count());
+
+        // Let last access of both entries get older than the eviction date
+        Thread.sleep(10);
+        Assert.assertEquals(ABC_MD5, checksumCache.getChecksum(used, "MD5"));
+
+        Assert.assertEquals(1, checksumCache.evictUnusedChecksums());
+        Assert.assertEquals(1, findEntries(used, "MD5").size());
+        Assert.assertTrue(findEntries(unused, "MD5").isEmpty());
+
+        // Nothing accessed since last eviction
+        Thread.sleep(10);
+        Assert.assertEquals(1, checksumCache.evictUnusedChecksums());
+        Assert.assertEquals(0, checksumCacheRepository.count());
+    }
+
+    private List<ChecksumCacheEntry> findEntries(Path file, String algorithm) {
+        return checksumCacheRepository.findByFilePathHashAndAlgorithm(AcquisitionFile.computeFilePathHash(file),
+                                                                      algorithm);
+    }
+
+    private Path createFile(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+
+/**
+ * Test {@link ChecksumEngine} against known vectors. The buffer is smaller than the files so that each file is read in
+ * several chunks.
+ *
+ * @author REGARDS Team
+ */
+public class ChecksumEngineTest {
+
+    private static final int PARALLELISM = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ChecksumEngine engine;
+
+    private Path numbers;
+
+    private Path millionA;
+
+    @Before
+    public void init() throws IOException {
+        engine = new ChecksumEngine();
+        ReflectionTestUtils.setField(engine, "parallelism", PARALLELISM);
+        ReflectionTestUtils.setField(engine, "bufferSize", 4096);
+        engine.init();
+        numbers = folder.getRoot().toPath().resolve("numbers");
+        Files.write(numbers, "123456789".getBytes(StandardCharsets.US_ASCII));
+        millionA = folder.getRoot().toPath().resolve("millionA");
+        byte[] content = new byte[1_000_000];
+        Arrays.fill(content, (byte) 'a');
+        Files.write(millionA, content);
+    }
+
+    @After
+    public void cleanUp() {
+        engine.destroy();
+    }
+
+    @Test
+    public void md5() throws ModuleException {
+        Assert.assertEquals("25f9e794323b453885f5181f1b624d0b", engine.computeChecksum(numbers, "MD5"));
+        Assert.assertEquals("7707d6ae4e027c70eea2a935c2296f21", engine.computeChecksum(millionA, "MD5"));
+    }
+
+    @Test
+    public void sha256() throws ModuleException {
+        Assert.assertEquals("15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225",
+                            engine.computeChecksum(numbers, "SHA-256"));
+        Assert.assertEquals("cdc76e5c9914fb9281a1c7e284d73e67f1809a48a497200e046d39ccc7112cd0",
+                            engine.computeChecksum(millionA, "SHA-256"));
+    }
+
+    @Test
+    public void jvmCrc32c() throws ModuleException {
+        Assume.assumeTrue("java.util.zip.CRC32C requires Java 9",
+                          (boolean) ReflectionTestUtils.getField(engine, "jvmCrc32c"));
+        checkCrc32c();
+    }
+
+    @Test
+    public void guavaCrc32c() throws ModuleException {
+        ReflectionTestUtils.setField(engine, "jvmCrc32c", false);
+        checkCrc32c();
+    }
+
+    @Test
+    public void unknownAlgorithm() {
+        Assert.assertTrue(engine.isSupported(IChecksumEngine.CRC32C));
+        Assert.assertTrue(engine.isSupported("SHA-256"));
+        Assert.assertFalse(engine.isSupported("CRC64"));
+        Assert.assertFalse(engine.isSupported(null));
+    }
+
+    @Test
+    public void parallelComputationUsesBoundedBuffers() throws ModuleException, IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Path copy = folder.getRoot().toPath().resolve("copy" + i);
+            Files.copy((i % 2) == 0 ? numbers : millionA, copy);
+            files.add(copy);
+        }
+        Map<Path, String> checksums = engine.computeChecksums(files, "MD5");
+        Assert.assertEquals(files, new ArrayList<>(checksums.keySet()));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals((i % 2) == 0 ? "25f9e794323b453885f5181f1b624d0b" : "7707d6ae4e027c70eea2a935c2296f21",
+                                checksums.get(files.get(i)));
+        }
+
+        // Calling thread reuses the buffers of the engine threads
+        engine.computeChecksum(numbers, "MD5");
+        AtomicInteger allocatedBuffers = (AtomicInteger) ReflectionTestUtils.getField(engine, "allocatedBuffers");
+        Assert.assertTrue(allocatedBuffers.get() <= PARALLELISM);
+    }
+
+    private void checkCrc32c() throws ModuleException {
+        Assert.assertEquals("e3069283", engine.computeChecksum(numbers, IChecksumEngine.CRC32C));
+        Assert.assertEquals("436fe240", engine.computeChecksum(millionA, IChecksumEngine.CRC32C));
+    }
+}
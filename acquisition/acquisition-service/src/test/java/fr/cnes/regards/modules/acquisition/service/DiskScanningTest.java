@@ -32,15 +32,22 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
@@ -48,9 +55,14 @@ import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
 import fr.cnes.regards.framework.utils.plugins.PluginParameterTransformer;
 import fr.cnes.regards.framework.utils.plugins.PluginUtils;
 import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.plugins.IFluxScanPlugin;
 import fr.cnes.regards.modules.acquisition.plugins.IScanPlugin;
+import fr.cnes.regards.modules.acquisition.service.plugins.DatePartitionDiskScanning;
 import fr.cnes.regards.modules.acquisition.service.plugins.GlobDiskScanning;
+import fr.cnes.regards.modules.acquisition.service.plugins.GlobDiskStreamScanning;
 import fr.cnes.regards.modules.acquisition.service.plugins.RegexDiskScanning;
+import fr.cnes.regards.modules.acquisition.service.plugins.WatchDiskStreamScanning;
 
 /**
  * Test scanning plugin
@@ -62,6 +74,9 @@ public class DiskScanningTest {
 
     private final Path searchDir = Paths.get("src", "test", "resources", "data", "plugins", "scan");
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     @Before
     public void setup() {
         PluginUtils.setup();
@@ -163,4 +178,214 @@ public class DiskScanningTest {
         Assert.assertNotNull(scannedFiles);
         Assert.assertTrue(scannedFiles.size() == 2);
     }
+
+    @Test
+    public void testScannedFilesWithAttributes()
+            throws ModuleException, IOException, NotAvailablePluginConfigurationException {
+
+        // Plugin parameters
+        Set<IPluginParam> parameters = IPluginParam
+                .set(IPluginParam.build(GlobDiskScanning.FIELD_DIRS,
+                                        PluginParameterTransformer.toJson(Arrays.asList(searchDir.toString()))));
+
+        PluginConfiguration pluginConf = PluginConfiguration.build(GlobDiskScanning.class, null, parameters);
+        // Instantiate plugin
+        IScanPlugin plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+        Assert.assertNotNull(plugin);
+
+        // Run plugin
+        List<ScannedFile> scannedFiles = plugin.scanFiles(Optional.empty());
+        Assert.assertEquals(4, scannedFiles.size());
+        for (ScannedFile scannedFile : scannedFiles) {
+            // Attributes read while scanning must be the file ones
+            Assert.assertEquals(Files.size(scannedFile.getPath()), scannedFile.getSize());
+            Assert.assertEquals(OffsetDateTime.ofInstant(Files.getLastModifiedTime(scannedFile.getPath()).toInstant(),
+                                                         ZoneOffset.UTC),
+                                scannedFile.getLastModificationDate());
+        }
+    }
+
+    @Test
+    public void testParallelStreamScanning()
+            throws ModuleException, IOException, NotAvailablePluginConfigurationException {
+
+        // Build a directory tree
+        Path rootDir = tmpFolder.getRoot().toPath();
+        for (int i = 0; i < 5; i++) {
+            Path dir = Files.createDirectories(rootDir.resolve("dir" + i).resolve("sub" + i));
+            Files.createFile(dir.resolve("file" + i + ".md"));
+            Files.createFile(dir.getParent().resolve("file" + i + ".md"));
+            Files.createFile(dir.getParent().resolve("file" + i + ".txt"));
+        }
+
+        // Plugin parameters
+        Set<IPluginParam> parameters = IPluginParam
+                .set(IPluginParam.build(GlobDiskStreamScanning.FIELD_DIRS,
+                                        PluginParameterTransformer.toJson(Arrays.asList(rootDir.toString()))),
+                     IPluginParam.build(GlobDiskStreamScanning.FIELD_GLOB, "*.md"),
+                     IPluginParam.build(GlobDiskStreamScanning.FIELD_PARALLELISM, 2));
+
+        PluginConfiguration pluginConf = PluginConfiguration.build(GlobDiskStreamScanning.class, null, parameters);
+        // Instantiate plugin
+        IFluxScanPlugin plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+        Assert.assertNotNull(plugin);
+
+        // Run plugin
+        List<Stream<ScannedFile>> streams = plugin.streamFiles(Optional.empty());
+        Assert.assertEquals(1, streams.size());
+        try (Stream<ScannedFile> stream = streams.get(0)) {
+            Set<Path> scannedFiles = stream.map(ScannedFile::getPath).collect(Collectors.toSet());
+            Assert.assertEquals(10, scannedFiles.size());
+            Assert.assertTrue(scannedFiles.stream().allMatch(p -> p.toString().endsWith(".md")));
+        }
+    }
+
+    @Test
+    public void testStreamScanningWithoutParallelism() throws ModuleException, IOException {
+        Path rootDir = tmpFolder.getRoot().toPath();
+        Files.createFile(Files.createDirectories(rootDir.resolve("dir")).resolve("file.md"));
+
+        GlobDiskStreamScanning plugin = new GlobDiskStreamScanning();
+        ReflectionTestUtils.setField(plugin, "directories", Arrays.asList(rootDir.toString()));
+        ReflectionTestUtils.setField(plugin, "glob", "*.md");
+        plugin.init();
+
+        List<Stream<ScannedFile>> streams = plugin.streamFiles(Optional.empty());
+        Assert.assertEquals(1, streams.size());
+        try (Stream<ScannedFile> stream = streams.get(0)) {
+            Assert.assertEquals(1, stream.count());
+        }
+    }
+
+    @Test
+    public void testDatePartitionScanning()
+            throws ModuleException, IOException, NotAvailablePluginConfigurationException {
+
+        // Build an old and a recent partition, both with fresh files
+        Path rootDir = tmpFolder.getRoot().toPath();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        Path recent = Files.createDirectories(rootDir.resolve(formatter.format(now)));
+        Path old = Files.createDirectories(rootDir.resolve(formatter.format(now.minusDays(30))));
+        Files.createFile(recent.resolve("recent.dat"));
+        Files.createFile(recent.resolve("recent.txt"));
+        Files.createFile(Files.createDirectories(recent.resolve("sub")).resolve("nested.dat"));
+        Files.createFile(old.resolve("old.dat"));
+
+        // Plugin parameters
+        Set<IPluginParam> parameters = IPluginParam
+                .set(IPluginParam.build(DatePartitionDiskScanning.FIELD_DIRS,
+                                        PluginParameterTransformer.toJson(Arrays.asList(rootDir.toString()))),
+                     IPluginParam.build(DatePartitionDiskScanning.FIELD_TEMPLATE, "yyyy/MM/dd"),
+                     IPluginParam.build(DatePartitionDiskScanning.FIELD_LOOK_BACK, "P1D"),
+                     IPluginParam.build(DatePartitionDiskScanning.FIELD_GLOB, "*.dat"));
+
+        PluginConfiguration pluginConf = PluginConfiguration.build(DatePartitionDiskScanning.class, null, parameters);
+        // Instantiate plugin
+        IScanPlugin plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+        Assert.assertNotNull(plugin);
+
+        // First scan walks all partitions
+        Assert.assertEquals(3, plugin.scanFiles(Optional.empty()).size());
+
+        // Next scans only walk partitions in look back window, sub directories included
+        Set<Path> scannedFiles = plugin.scanFiles(Optional.of(now.minusDays(2))).stream().map(ScannedFile::getPath)
+                .collect(Collectors.toSet());
+        Assert.assertEquals(2, scannedFiles.size());
+        Assert.assertTrue(scannedFiles.contains(recent.resolve("recent.dat")));
+        Assert.assertTrue(scannedFiles.contains(recent.resolve("sub").resolve("nested.dat")));
+    }
+
+    @Test
+    public void testDatePartitionUnits() throws NotAvailablePluginConfigurationException {
+        OffsetDateTime lmd = OffsetDateTime.of(2020, 1, 15, 12, 0, 0, 0, ZoneOffset.UTC);
+
+        // Minute partitions
+        DatePartitionDiskScanning plugin = getDatePartitionPlugin("yyyy/MM/dd/HH/mm", "PT10M");
+        Set<Path> partitions = plugin.getPartitions(lmd, lmd.plusMinutes(5)).get();
+        Assert.assertEquals(16, partitions.size());
+        Assert.assertEquals(Paths.get("2020/01/15/11/50"), partitions.iterator().next());
+
+        // Week partitions
+        plugin = getDatePartitionPlugin("YYYY/ww", "P7D");
+        partitions = plugin.getPartitions(lmd, lmd.plusDays(14)).get();
+        Assert.assertEquals(4, partitions.size());
+
+        // Too old last modification date falls back to a full scan
+        plugin = getDatePartitionPlugin("yyyy/MM/dd/HH/mm", "PT10M");
+        Assert.assertFalse(plugin.getPartitions(lmd, lmd.plusDays(1)).isPresent());
+
+        // Seconds are rejected
+        try {
+            getDatePartitionPlugin("yyyy/MM/dd/HH/mm/ss", "PT1M");
+            Assert.fail("Template with seconds should be rejected");
+        } catch (RuntimeException e) {
+            // Expected
+        }
+    }
+
+    private DatePartitionDiskScanning getDatePartitionPlugin(String template, String lookBack)
+            throws NotAvailablePluginConfigurationException {
+        Set<IPluginParam> parameters = IPluginParam
+                .set(IPluginParam.build(DatePartitionDiskScanning.FIELD_DIRS,
+                                        PluginParameterTransformer.toJson(Arrays.asList(searchDir.toString()))),
+                     IPluginParam.build(DatePartitionDiskScanning.FIELD_TEMPLATE, template),
+                     IPluginParam.build(DatePartitionDiskScanning.FIELD_LOOK_BACK, lookBack));
+        PluginConfiguration pluginConf = PluginConfiguration.build(DatePartitionDiskScanning.class, null, parameters);
+        return PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+    }
+
+    @Test
+    public void testWatchScanningKeepsUnregisteredFiles()
+            throws ModuleException, IOException, NotAvailablePluginConfigurationException, InterruptedException {
+
+        Path rootDir = tmpFolder.getRoot().toPath();
+        Files.createFile(rootDir.resolve("existing.md"));
+
+        // Plugin parameters
+        Set<IPluginParam> parameters = IPluginParam
+                .set(IPluginParam.build(WatchDiskStreamScanning.FIELD_DIRS,
+                                        PluginParameterTransformer.toJson(Arrays.asList(rootDir.toString()))),
+                     IPluginParam.build(WatchDiskStreamScanning.FIELD_GLOB, "*.md"));
+
+        PluginConfiguration pluginConf = PluginConfiguration.build(WatchDiskStreamScanning.class, null, parameters);
+        // Instantiate plugin
+        WatchDiskStreamScanning plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+        Assert.assertNotNull(plugin);
+        try {
+            // First run is a full scan, failing registration leads to another full scan
+            Assert.assertEquals(Collections.singleton(rootDir.resolve("existing.md")), watchRun(plugin));
+            plugin.streamedFilesRegistered(false);
+            Assert.assertEquals(Collections.singleton(rootDir.resolve("existing.md")), watchRun(plugin));
+            plugin.streamedFilesRegistered(true);
+
+            // Wait for the event of a new file
+            Path created = Files.createFile(rootDir.resolve("created.md"));
+            Set<Path> detected = watchRun(plugin);
+            for (int i = 0; (i < 50) && detected.isEmpty(); i++) {
+                plugin.streamedFilesRegistered(true);
+                Thread.sleep(100);
+                detected = watchRun(plugin);
+            }
+            Assert.assertEquals(Collections.singleton(created), detected);
+
+            // Drained file is kept while registration fails
+            plugin.streamedFilesRegistered(false);
+            Assert.assertEquals(Collections.singleton(created), watchRun(plugin));
+            plugin.streamedFilesRegistered(true);
+            Assert.assertTrue(watchRun(plugin).isEmpty());
+        } finally {
+            plugin.close();
+        }
+    }
+
+    private static Set<Path> watchRun(IFluxScanPlugin plugin) throws ModuleException {
+        Set<Path> scannedFiles = new HashSet<>();
+        for (Stream<ScannedFile> stream : plugin.streamFiles(Optional.empty())) {
+            try (Stream<ScannedFile> s = stream) {
+                s.map(ScannedFile::getPath).forEach(scannedFiles::add);
+            }
+        }
+        return scannedFiles;
+    }
 }
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
+import fr.cnes.regards.modules.acquisition.domain.FileValidationResult;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
+
+/**
+ * Test {@link FileValidationService} timeouts and cancellation with a blocking validation plugin
+ *
+ * @author REGARDS Team
+ */
+public class FileValidationServiceTest {
+
+    private static final long TIMEOUT_MS = 300;
+
+    private FileValidationService validationService;
+
+    private AcquisitionProcessingChain processingChain;
+
+    private BlockingValidation plugin;
+
+    @Before
+    public void init() {
+        validationService = new FileValidationService();
+        ReflectionTestUtils.setField(validationService, "validationParallelism", 2);
+        ReflectionTestUtils.setField(validationService, "validationTimeout", TIMEOUT_MS);
+        ReflectionTestUtils.setField(validationService, "runtimeTenantResolver",
+                                     Mockito.mock(IRuntimeTenantResolver.class));
+        processingChain = new AcquisitionProcessingChain();
+        processingChain.setId(1L);
+        plugin = new BlockingValidation(true);
+    }
+
+    @After
+    public void cleanUp() {
+        plugin.release.countDown();
+        validationService.destroy();
+    }
+
+    @Test
+    public void validate() throws ModuleException {
+        List<AcquisitionFile> files = buildFiles("file1", "file2", "file3", "file4");
+        validationService.validate(processingChain, plugin, files);
+        Assert.assertTrue(files.stream().allMatch(f -> f.getState() == AcquisitionFileState.VALID));
+    }
+
+    @Test
+    public void validateByBatch() throws ModuleException {
+        // Each worker gives its whole batch to the plugin
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        IValidationPlugin batchPlugin = new IValidationPlugin() {
+
+            @Override
+            public boolean validate(Path filePath) {
+                return true;
+            }
+
+            @Override
+            public List<FileValidationResult> validate(List<Path> filePaths) {
+                batchSizes.add(filePaths.size());
+                return filePaths.stream().map(FileValidationResult::valid).collect(Collectors.toList());
+            }
+        };
+        List<AcquisitionFile> files = buildFiles("file1", "file2", "file3", "file4", "file5");
+        Assert.assertTrue(validationService.validate(processingChain, batchPlugin, files));
+        Assert.assertTrue(files.stream().allMatch(f -> f.getState() == AcquisitionFileState.VALID));
+        Assert.assertEquals(2, batchSizes.size());
+        Assert.assertTrue(batchSizes.containsAll(Arrays.asList(3, 2)));
+    }
+
+    @Test
+    public void timeout() throws ModuleException, InterruptedException {
+        List<AcquisitionFile> files = buildFiles("file1", "file2", "block3", "file4");
+        long startTime = System.currentTimeMillis();
+        validationService.validate(processingChain, plugin, files);
+        Assert.assertTrue("Validation should stop after timeout",
+                          (System.currentTimeMillis() - startTime) < (10 * TIMEOUT_MS));
+
+        // Batch has timed out then only the blocking file has timed out, following file of its batch is left for later
+        // validation
+        Assert.assertEquals(AcquisitionFileState.VALID, files.get(0).getState());
+        Assert.assertEquals(AcquisitionFileState.VALID, files.get(1).getState());
+        Assert.assertEquals(AcquisitionFileState.INVALID, files.get(2).getState());
+        Assert.assertTrue(files.get(2).getError().contains("timed out"));
+        Assert.assertEquals(AcquisitionFileState.IN_PROGRESS, files.get(3).getState());
+        // Blocked worker is cancelled
+        Assert.assertTrue(plugin.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void timeoutPerBatch() throws ModuleException {
+        // A batch is given the timeout of all its files
+        plugin = new BlockingValidation(true, TIMEOUT_MS / 2);
+        List<AcquisitionFile> files = buildFiles("slow1", "slow2", "slow3", "slow4", "slow5", "slow6");
+        validationService.validate(processingChain, plugin, files);
+        Assert.assertTrue(files.stream().allMatch(f -> f.getState() == AcquisitionFileState.VALID));
+    }
+
+    @Test
+    public void notStartedTimeout() throws ModuleException, InterruptedException {
+        // Occupy all workers of the chain with validations ignoring cancellation
+        plugin = new BlockingValidation(false);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        Thread blocking = new Thread(() -> {
+            try {
+                validationService.validate(processingChain, plugin, buildFiles("block1", "block2"));
+            } catch (ModuleException e) {
+                error.set(e);
+            }
+        });
+        blocking.start();
+        for (int i = 0; (i < 50) && (plugin.blocked.get() < 2); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(2, plugin.blocked.get());
+
+        // Files waiting for a worker are not waited for forever
+        List<AcquisitionFile> files = buildFiles("file1", "file2");
+        long startTime = System.currentTimeMillis();
+        validationService.validate(processingChain, plugin, files);
+        Assert.assertTrue((System.currentTimeMillis() - startTime) < (10 * TIMEOUT_MS));
+        Assert.assertTrue(files.stream().allMatch(f -> f.getState() == AcquisitionFileState.IN_PROGRESS));
+
+        blocking.join(5000);
+        Assert.assertNull(error.get());
+    }
+
+    @Test
+    public void interrupted() throws InterruptedException {
+        List<AcquisitionFile> files = buildFiles("block1", "file2", "file3", "file4");
+        Thread validation = new Thread(() -> {
+            try {
+                validationService.validate(processingChain, plugin, files);
+            } catch (ModuleException e) {
+                Assert.fail(e.getMessage());
+            }
+        });
+        validation.start();
+        Assert.assertTrue(plugin.started.await(5, TimeUnit.SECONDS));
+        validation.interrupt();
+        validation.join(5000);
+        Assert.assertFalse(validation.isAlive());
+
+        // Files are left unchanged and running validation is cancelled
+        Assert.assertTrue(files.stream().allMatch(f -> f.getState() == AcquisitionFileState.IN_PROGRESS));
+        Assert.assertTrue(plugin.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void interruptedSequential() throws InterruptedException {
+        ReflectionTestUtils.setField(validationService, "validationParallelism", 1);
+        List<AcquisitionFile> files = buildFiles("file1", "block2", "file3");
+        AtomicReference<Boolean> applied = new AtomicReference<>();
+        Thread validation = new Thread(() -> {
+            try {
+                applied.set(validationService.validate(processingChain, plugin, files));
+            } catch (ModuleException e) {
+                Assert.fail(e.getMessage());
+            }
+        });
+        validation.start();
+        Assert.assertTrue(plugin.started.await(5, TimeUnit.SECONDS));
+        validation.interrupt();
+        validation.join(5000);
+        Assert.assertFalse(validation.isAlive());
+
+        // Results of the files validated before interruption are not applied either
+        Assert.assertEquals(Boolean.FALSE, applied.get());
+        Assert.assertTrue(files.stream().allMatch(f -> f.getState() == AcquisitionFileState.IN_PROGRESS));
+    }
+
+    private static List<AcquisitionFile> buildFiles(String... names) {
+        List<AcquisitionFile> files = new ArrayList<>();
+        for (String name : names) {
+            AcquisitionFile file = new AcquisitionFile();
+            file.setFilePath(Paths.get("data", name));
+            file.setState(AcquisitionFileState.IN_PROGRESS);
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Validation plugin blocking on files which name starts with "block" until released or, if interruptible,
+     * interrupted. Files which name starts with "slow" take some time to be validated.
+     */
+    private static class BlockingValidation implements IValidationPlugin {
+
+        private final boolean interruptible;
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        private final AtomicInteger blocked = new AtomicInteger();
+
+        /**
+         * Validation duration of files which name starts with "slow"
+         */
+        private final long slowDuration;
+
+        private BlockingValidation(boolean interruptible) {
+            this(interruptible, 0);
+        }
+
+        private BlockingValidation(boolean interruptible, long slowDuration) {
+            this.interruptible = interruptible;
+            this.slowDuration = slowDuration;
+        }
+
+        @Override
+        public boolean validate(Path filePath) throws ModuleException {
+            if (filePath.getFileName().toString().startsWith("slow")) {
+                try {
+                    Thread.sleep(slowDuration);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (filePath.getFileName().toString().startsWith("block")) {
+                started.countDown();
+                blocked.incrementAndGet();
+                while (true) {
+                    try {
+                        release.await();
+                        return true;
+                    } catch (InterruptedException e) {
+                        if (interruptible) {
+                            interrupted.countDown();
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
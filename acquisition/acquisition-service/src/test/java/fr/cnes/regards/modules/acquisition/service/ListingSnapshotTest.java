@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+
+/**
+ * Test {@link ListingSnapshot} recording, merge of sorted runs and lookup
+ *
+ * @author REGARDS Team
+ */
+public class ListingSnapshotTest {
+
+    private static final Instant OLD = Instant.parse("2020-01-01T00:00:00Z");
+
+    private static final Optional<OffsetDateTime> SCANNING_DATE = Optional
+            .of(OffsetDateTime.ofInstant(Instant.parse("2020-06-01T00:00:00Z"), ZoneOffset.UTC));
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void commitMergesRuns() throws IOException {
+        Path snapshotFile = tmpFolder.getRoot().toPath().resolve("snapshots").resolve("1.snapshot");
+
+        // Small runs so that the listing is spilled in several sorted runs, with duplicates across runs
+        try (ListingSnapshot snapshot = new ListingSnapshot(snapshotFile, 7)) {
+            for (int i = 0; i < 100; i++) {
+                Assert.assertTrue(snapshot.isNew(file("file" + (i % 60)), SCANNING_DATE));
+            }
+            snapshot.commit();
+        }
+
+        List<Long> hashes = readSnapshot(snapshotFile);
+        Assert.assertEquals(60, hashes.size());
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            expected.add(AcquisitionFile.computeFilePathHash(Paths.get("dir", "file" + i)));
+        }
+        Assert.assertEquals(expected.stream().sorted().collect(Collectors.toList()), hashes);
+        // Work and run files are removed
+        try (Stream<Path> files = Files.list(snapshotFile.getParent())) {
+            Assert.assertEquals(1, files.count());
+        }
+
+        // Next listing only detects unknown old files
+        try (ListingSnapshot snapshot = new ListingSnapshot(snapshotFile, 7)) {
+            Assert.assertFalse(snapshot.isNew(file("file10"), SCANNING_DATE));
+            Assert.assertTrue(snapshot.isNew(file("file60"), SCANNING_DATE));
+            Assert.assertTrue(snapshot.isNew(file("file10"), Optional.empty()));
+        }
+    }
+
+    @Test
+    public void closeKeepsPreviousSnapshot() throws IOException {
+        Path snapshotFile = tmpFolder.getRoot().toPath().resolve("2.snapshot");
+        try (ListingSnapshot snapshot = new ListingSnapshot(snapshotFile)) {
+            snapshot.isNew(file("first"), SCANNING_DATE);
+            snapshot.commit();
+        }
+        // Interrupted listing is not committed
+        try (ListingSnapshot snapshot = new ListingSnapshot(snapshotFile, 2)) {
+            for (int i = 0; i < 10; i++) {
+                snapshot.isNew(file("other" + i), SCANNING_DATE);
+            }
+        }
+        Assert.assertEquals(1, readSnapshot(snapshotFile).size());
+        try (Stream<Path> files = Files.list(snapshotFile.getParent())) {
+            Assert.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void emptyListing() throws IOException {
+        Path snapshotFile = tmpFolder.getRoot().toPath().resolve("3.snapshot");
+        try (ListingSnapshot snapshot = new ListingSnapshot(snapshotFile)) {
+            snapshot.commit();
+        }
+        Assert.assertTrue(readSnapshot(snapshotFile).isEmpty());
+    }
+
+    private static ScannedFile file(String name) {
+        return ScannedFile.build(Paths.get("dir", name), OLD, 10L);
+    }
+
+    private static List<Long> readSnapshot(Path snapshotFile) throws IOException {
+        List<Long> hashes = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotFile))) {
+            for (long i = Files.size(snapshotFile) / Long.BYTES; i > 0; i--) {
+                hashes.add(in.readLong());
+            }
+        }
+        return hashes;
+    }
+}
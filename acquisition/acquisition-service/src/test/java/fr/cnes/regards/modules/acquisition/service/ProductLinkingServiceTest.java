@@ -0,0 +1,573 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.collect.Sets;
+
+import fr.cnes.regards.framework.jpa.multitenant.test.AbstractMultitenantServiceTest;
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
+import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
+import fr.cnes.regards.framework.urn.DataType;
+import fr.cnes.regards.framework.utils.plugins.PluginParameterTransformer;
+import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileRepository;
+import fr.cnes.regards.modules.acquisition.dao.IProductRepository;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
+import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
+import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.ProductSummary;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.service.plugins.GlobDiskScanning;
+import fr.cnes.regards.modules.acquisition.service.session.SessionProductPropertyEnum;
+import fr.cnes.regards.modules.sessionmanager.client.ISessionNotificationClient;
+import fr.cnes.regards.modules.sessionmanager.domain.event.SessionNotificationState;
+
+/**
+ * Test {@link ProductService#linkAcquisitionFilesToProducts(AcquisitionProcessingChain, String, List)} state
+ * transitions written in bulk : acquired and superseded files, product states and session moves.<br/>
+ * Chains expect one file of each of their two mandatory file infos, product name is the file name.
+ *
+ * @author REGARDS Team
+ */
+@TestPropertySource(properties = { "spring.jpa.properties.hibernate.default_schema=acq_product_linking" })
+public class ProductLinkingServiceTest extends AbstractMultitenantServiceTest {
+
+    private static final String CHAIN_LABEL = "Linking chain";
+
+    private static final String FILES_ACQUIRED = SessionProductPropertyEnum.PROPERTY_FILES_ACQUIRED.getValue();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @MockBean
+    private ISessionNotificationClient sessionNotificationClient;
+
+    @Autowired
+    private IAcquisitionProcessingService processingService;
+
+    @Autowired
+    private IProductService productService;
+
+    @Autowired
+    private IAcquisitionFileRepository acqFileRepository;
+
+    @Autowired
+    private IProductRepository productRepository;
+
+    private AcquisitionProcessingChain processingChain;
+
+    private AcquisitionFileInfo fileInfoA;
+
+    private AcquisitionFileInfo fileInfoB;
+
+    @Before
+    public void before() throws ModuleException {
+        acqFileRepository.deleteAll();
+        productRepository.deleteAll();
+        for (AcquisitionProcessingChain chain : processingService.getFullChains(PageRequest.of(0, 100))
+                .getContent()) {
+            chain.setActive(false);
+            processingService.updateChain(chain);
+            processingService.deleteChain(chain.getId());
+        }
+        processingChain = processingService.createChain(AcquisitionTestUtils.getNewChain(CHAIN_LABEL, null, "A", "B"));
+        fileInfoA = getFileInfo(processingChain, "A");
+        fileInfoB = getFileInfo(processingChain, "B");
+        Mockito.reset(sessionNotificationClient);
+    }
+
+    @Test
+    public void supersedeAndAcquire() throws ModuleException {
+        // First file of the product
+        AcquisitionFile a1 = createFile("a1", fileInfoA, "s1");
+        link("s1", a1);
+        Product product = productRepository.findByProductName("p1");
+        Assert.assertEquals(ProductState.ACQUIRING, product.getState());
+        Assert.assertEquals(ProductSIPState.NOT_SCHEDULED, product.getSipState());
+        Assert.assertEquals("s1", product.getSession());
+        Assert.assertNull(product.getError());
+        assertFile(a1, AcquisitionFileState.ACQUIRED, product, "s1");
+
+        // New version of the same file : previous one is superseded, product is still waiting for its second file
+        AcquisitionFile a2 = createFile("a2", fileInfoA, "s1");
+        link("s1", a2);
+        product = productRepository.findByProductName("p1");
+        Assert.assertEquals(ProductState.ACQUIRING, product.getState());
+        assertFile(a1, AcquisitionFileState.SUPERSEDED, product, "s1");
+        assertFile(a2, AcquisitionFileState.ACQUIRED, product, "s1");
+
+        // A superseded file in error is marked as such
+        AcquisitionFile a3 = createFile("a3", fileInfoA, "s1");
+        AcquisitionFile a2Error = acqFileRepository.findById(a2.getId()).get();
+        a2Error.setState(AcquisitionFileState.ERROR);
+        acqFileRepository.save(a2Error);
+        link("s1", a3);
+        product = productRepository.findByProductName("p1");
+        assertFile(a2, AcquisitionFileState.SUPERSEDED_AFTER_ERROR, product, "s1");
+        assertFile(a3, AcquisitionFileState.ACQUIRED, product, "s1");
+
+        // Second mandatory file completes the product
+        AcquisitionFile b1 = createFile("b1", fileInfoB, "s1");
+        link("s1", b1);
+        product = productRepository.findByProductName("p1");
+        Assert.assertEquals(ProductState.FINISHED, product.getState());
+        assertFile(a3, AcquisitionFileState.ACQUIRED, product, "s1");
+        assertFile(b1, AcquisitionFileState.ACQUIRED, product, "s1");
+        Assert.assertEquals(Sets.newHashSet(a3.getId(), b1.getId()), product.getActiveAcquisitionFiles().stream()
+                .map(AcquisitionFile::getId).collect(Collectors.toSet()));
+
+        // No file changed of session
+        Mockito.verify(sessionNotificationClient, Mockito.never())
+                .decrement(Mockito.anyString(), Mockito.anyString(), Mockito.eq(FILES_ACQUIRED),
+                           Mockito.any(SessionNotificationState.class), Mockito.anyLong());
+    }
+
+    @Test
+    public void tooManyFilesInvalidateProduct() throws ModuleException {
+        AcquisitionFile a1 = createFile("a1", fileInfoA, "s1");
+        AcquisitionFile b1 = createFile("b1", fileInfoB, "s1");
+        AcquisitionFile b2 = createFile("b2", fileInfoB, "s1");
+        link("s1", a1, b1, b2);
+        Product product = productRepository.findByProductName("p1");
+        Assert.assertEquals(ProductState.INVALID, product.getState());
+        Assert.assertEquals(ProductSIPState.NOT_SCHEDULED_INVALID, product.getSipState());
+        Assert.assertNotNull(product.getError());
+        assertFile(a1, AcquisitionFileState.ACQUIRED, product, "s1");
+        assertFile(b1, AcquisitionFileState.ACQUIRED, product, "s1");
+        assertFile(b2, AcquisitionFileState.ACQUIRED, product, "s1");
+    }
+
+    @Test
+    public void moveFilesAcquiredBetweenSessions() throws ModuleException {
+        AcquisitionFile a1 = createFile("a1", fileInfoA, "s1");
+        link("s1", a1);
+
+        // File registered in session s1 acquired by the product now managed by session s2
+        AcquisitionFile a2 = createFile("a2", fileInfoA, "s1");
+        Collection<ProductSummary> products = link("s2", a2);
+        Assert.assertEquals(1, products.size());
+        Assert.assertEquals("s2", products.iterator().next().getSession());
+
+        Product product = productRepository.findByProductName("p1");
+        Assert.assertEquals("s2", product.getSession());
+        Assert.assertEquals(ProductState.ACQUIRING, product.getState());
+        assertFile(a1, AcquisitionFileState.SUPERSEDED, product, "s1");
+        assertFile(a2, AcquisitionFileState.ACQUIRED, product, "s2");
+
+        // Previously acquired file moves with the product and new file moves to the product session
+        Mockito.verify(sessionNotificationClient, Mockito.times(2))
+                .decrement(CHAIN_LABEL, "s1", FILES_ACQUIRED, SessionNotificationState.OK, 1L);
+        Mockito.verify(sessionNotificationClient, Mockito.times(2))
+                .increment(CHAIN_LABEL, "s2", FILES_ACQUIRED, SessionNotificationState.OK, 1L);
+    }
+
+    /**
+     * Products linked by several workers must be the same as the ones linked by a single one. Each round fits in one
+     * page so that the files of a product are always linked together.
+     */
+    @Test
+    public void parallelLinking() throws ModuleException, IOException {
+        AcquisitionProcessingChain sequentialChain = processingService
+                .createChain(AcquisitionTestUtils.getNewChain("Sequential", "seq_", "A", "B"));
+        AcquisitionProcessingChain parallelChain = processingService
+                .createChain(AcquisitionTestUtils.getNewChain("Parallel", "par_", "A", "B"));
+
+        // First round : complete, incomplete and invalid products
+        List<Path> filesA = new ArrayList<>();
+        List<Path> filesB = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            filesA.add(createRealFile("a", i));
+            if ((i % 3) != 0) {
+                filesB.add(createRealFile("b", i));
+            }
+            if ((i % 10) == 0) {
+                filesA.add(createRealFile("a_bis", i));
+            }
+        }
+        manageRegisteredFiles(sequentialChain, 1, filesA, filesB);
+        manageRegisteredFiles(parallelChain, 4, filesA, filesB);
+        Assert.assertEquals(30, getProducts(sequentialChain, "seq_").size());
+        Assert.assertEquals(getProducts(sequentialChain, "seq_"), getProducts(parallelChain, "par_"));
+        Assert.assertEquals(getFiles(sequentialChain, "seq_"), getFiles(parallelChain, "par_"));
+
+        // Second round : superseded files, completed and updated products
+        filesA.clear();
+        filesB.clear();
+        for (int i = 0; i < 30; i++) {
+            if ((i % 2) == 0) {
+                filesA.add(createRealFile("a2", i));
+            }
+            if ((i % 3) == 0) {
+                filesB.add(createRealFile("b", i));
+            }
+        }
+        manageRegisteredFiles(sequentialChain, 1, filesA, filesB);
+        manageRegisteredFiles(parallelChain, 4, filesA, filesB);
+        Assert.assertEquals(getProducts(sequentialChain, "seq_"), getProducts(parallelChain, "par_"));
+        Assert.assertEquals(getFiles(sequentialChain, "seq_"), getFiles(parallelChain, "par_"));
+    }
+
+    /**
+     * Bulk linking (superseded files, file links and product updates written with JDBC batches) must give the same
+     * product states, errors and file links as the previous linking of complete product entities, replayed here by
+     * {@link EntityLinkingModel}.
+     */
+    @Test
+    public void sameResultsAsEntityLinking() throws ModuleException {
+        AcquisitionProcessingChain chain = AcquisitionTestUtils.getNewChain("Entity linking chain", null, "A", "B");
+        AcquisitionFileInfo optional = new AcquisitionFileInfo();
+        optional.setMandatory(Boolean.FALSE);
+        optional.setComment("C");
+        optional.setMimeType(MediaType.APPLICATION_OCTET_STREAM);
+        optional.setDataType(DataType.RAWDATA);
+        PluginConfiguration scanPlugin = PluginConfiguration
+                .build(GlobDiskScanning.class, null,
+                       IPluginParam.set(IPluginParam.build(GlobDiskScanning.FIELD_DIRS,
+                                                           PluginParameterTransformer.toJson(new ArrayList<>()))));
+        scanPlugin.setIsActive(true);
+        scanPlugin.setLabel("Entity linking chain scan plugin C");
+        optional.setScanPlugin(scanPlugin);
+        chain.addFileInfo(optional);
+        chain = processingService.createChain(chain);
+        AcquisitionFileInfo a = getFileInfo(chain, "A");
+        AcquisitionFileInfo b = getFileInfo(chain, "B");
+        AcquisitionFileInfo c = getFileInfo(chain, "C");
+        EntityLinkingModel model = new EntityLinkingModel(2, 1);
+
+        // Incomplete, completed and finished products
+        AcquisitionFile p3a1 = createFile("a1", "p3", a, "s1");
+        linkAndCompare(chain, model, "s1", createFile("a1", "p1", a, "s1"), createFile("a1", "p2", a, "s1"),
+                       createFile("b1", "p2", b, "s1"), p3a1, createFile("b1", "p3", b, "s1"),
+                       createFile("c1", "p3", c, "s1"));
+
+        // Products completed before new files are updated
+        linkAndCompare(chain, model, "s1", createFile("b1", "p1", b, "s1"), createFile("c1", "p1", c, "s1"),
+                       createFile("c1", "p2", c, "s1"), createFile("c2", "p3", c, "s1"));
+
+        // Too many optional files are only detected once the product state is computed again
+        linkAndCompare(chain, model, "s1", createFile("c3", "p1", c, "s1"), createFile("c4", "p1", c, "s1"),
+                       createFile("b2", "p2", b, "s1"));
+
+        // Invalid product, file in error superseded and product moving to another session
+        p3a1 = acqFileRepository.findById(p3a1.getId()).get();
+        p3a1.setState(AcquisitionFileState.ERROR);
+        acqFileRepository.save(p3a1);
+        model.setFileState(p3a1.getId(), AcquisitionFileState.ERROR);
+        linkAndCompare(chain, model, "s2", createFile("a2", "p1", a, "s1"), createFile("a2", "p3", a, "s1"));
+
+        // Error of the invalid product is kept once it is valid again
+        linkAndCompare(chain, model, "s2", createFile("c5", "p1", c, "s1"));
+        Product product = productRepository.findByProductName("p1");
+        Assert.assertEquals(ProductState.FINISHED, product.getState());
+        Assert.assertNotNull(product.getError());
+    }
+
+    private void linkAndCompare(AcquisitionProcessingChain chain, EntityLinkingModel model, String session,
+            AcquisitionFile... files) throws ModuleException {
+        List<AcquisitionFile> validFiles = new ArrayList<>();
+        for (AcquisitionFile file : files) {
+            validFiles.add(acqFileRepository.findById(file.getId()).get());
+        }
+        model.link(session, validFiles);
+        productService.linkAcquisitionFilesToProducts(chain, session, validFiles);
+
+        for (EntityLinkingModel.ModelProduct expected : model.products.values()) {
+            Product product = productRepository.findByProductName(expected.productName);
+            Assert.assertEquals(expected.productName, expected.state, product.getState());
+            Assert.assertEquals(expected.productName, expected.sipState, product.getSipState());
+            Assert.assertEquals(expected.productName, expected.error, product.getError());
+            Assert.assertEquals(expected.productName, expected.session, product.getSession());
+            for (EntityLinkingModel.ModelFile expectedFile : expected.files.values()) {
+                AcquisitionFile stored = acqFileRepository.findById(expectedFile.id).get();
+                Assert.assertEquals(stored.getFilePath().toString(), expectedFile.state, stored.getState());
+                Assert.assertEquals(stored.getFilePath().toString(), expectedFile.session, stored.getSession());
+                Assert.assertEquals(stored.getFilePath().toString(), product.getId(), stored.getProduct().getId());
+            }
+            Assert.assertEquals(expected.files.keySet(), product.getAcquisitionFiles().stream()
+                    .map(AcquisitionFile::getId).collect(Collectors.toSet()));
+        }
+    }
+
+    private void manageRegisteredFiles(AcquisitionProcessingChain chain, int linkingParallelism, List<Path> filesA,
+            List<Path> filesB) throws ModuleException, IOException {
+        for (AcquisitionFileInfo fileInfo : chain.getFileInfos()) {
+            List<Path> files = "A".equals(fileInfo.getComment()) ? filesA : filesB;
+            List<ScannedFile> scannedFiles = new ArrayList<>();
+            for (Path file : files) {
+                scannedFiles.add(ScannedFile.build(file));
+            }
+            processingService.registerFiles(scannedFiles.iterator(), fileInfo, Optional.empty(), "s1",
+                                            chain.getLabel());
+        }
+        Object target = AopTestUtils.getUltimateTargetObject(processingService);
+        ReflectionTestUtils.setField(target, "linkingParallelism", linkingParallelism);
+        try {
+            processingService.manageRegisteredFiles(chain, "s1");
+        } finally {
+            ReflectionTestUtils.setField(target, "linkingParallelism", 1);
+        }
+    }
+
+    /**
+     * @return product state by product name without prefix
+     */
+    private Map<String, ProductState> getProducts(AcquisitionProcessingChain chain, String prefix) {
+        Map<String, ProductState> products = new TreeMap<>();
+        for (AcquisitionFile file : getChainFiles(chain)) {
+            products.put(file.getProduct().getProductName().substring(prefix.length()), file.getProduct().getState());
+        }
+        return products;
+    }
+
+    /**
+     * @return file state and product name without prefix by file info and relative path
+     */
+    private Map<String, String> getFiles(AcquisitionProcessingChain chain, String prefix) {
+        Map<String, String> files = new TreeMap<>();
+        for (AcquisitionFile file : getChainFiles(chain)) {
+            files.put(file.getFileInfo().getComment() + ":" + folder.getRoot().toPath().relativize(file.getFilePath()),
+                      file.getState() + ":" + file.getProduct().getProductName().substring(prefix.length()));
+        }
+        return files;
+    }
+
+    private List<AcquisitionFile> getChainFiles(AcquisitionProcessingChain chain) {
+        Set<Long> fileInfoIds = chain.getFileInfos().stream().map(AcquisitionFileInfo::getId)
+                .collect(Collectors.toSet());
+        return acqFileRepository.findAll().stream().filter(f -> fileInfoIds.contains(f.getFileInfo().getId()))
+                .collect(Collectors.toList());
+    }
+
+    private Path createRealFile(String directory, int index) throws IOException {
+        Path dir = folder.getRoot().toPath().resolve(directory);
+        Files.createDirectories(dir);
+        return Files.write(dir.resolve("p" + index), new byte[] { 1 });
+    }
+
+    private Collection<ProductSummary> link(String session, AcquisitionFile... files) throws ModuleException {
+        List<AcquisitionFile> validFiles = new ArrayList<>();
+        for (AcquisitionFile file : files) {
+            validFiles.add(acqFileRepository.findById(file.getId()).get());
+        }
+        return productService.linkAcquisitionFilesToProducts(processingChain, session, validFiles);
+    }
+
+    private void assertFile(AcquisitionFile file, AcquisitionFileState state, Product product, String session) {
+        AcquisitionFile stored = acqFileRepository.findById(file.getId()).get();
+        Assert.assertEquals(state, stored.getState());
+        Assert.assertEquals(session, stored.getSession());
+        Assert.assertNotNull(stored.getProduct());
+        Assert.assertEquals(product.getId(), stored.getProduct().getId());
+    }
+
+    /**
+     * Create a valid file. All files are named after the same product.
+     */
+    private AcquisitionFile createFile(String directory, AcquisitionFileInfo fileInfo, String session) {
+        return createFile(directory, "p1", fileInfo, session);
+    }
+
+    /**
+     * Create a valid file named after the given product.
+     */
+    private AcquisitionFile createFile(String directory, String productName, AcquisitionFileInfo fileInfo,
+            String session) {
+        AcquisitionFile file = new AcquisitionFile();
+        file.setAcqDate(OffsetDateTime.now());
+        file.setFileInfo(fileInfo);
+        file.setFilePath(Paths.get("/data", directory, productName));
+        file.setState(AcquisitionFileState.VALID);
+        file.setSession(session);
+        file.setSessionOwner(CHAIN_LABEL);
+        return acqFileRepository.save(file);
+    }
+
+    private AcquisitionFileInfo getFileInfo(AcquisitionProcessingChain chain, String comment) {
+        return chain.getFileInfos().stream().filter(fi -> comment.equals(fi.getComment())).findFirst()
+                .get();
+    }
+
+    /**
+     * In memory replay of the linking of complete product entities, as done before products were updated in bulk :
+     * previous files of the same file infos are superseded, new files are acquired, product state is computed from
+     * its acquired files and the error of a product is only written when it becomes invalid.
+     */
+    private static class EntityLinkingModel {
+
+        private final int nbExpectedMandatory;
+
+        private final int nbExpectedOptional;
+
+        private final Map<String, ModelProduct> products = new TreeMap<>();
+
+        private final Map<Long, ModelFile> files = new HashMap<>();
+
+        EntityLinkingModel(int nbExpectedMandatory, int nbExpectedOptional) {
+            this.nbExpectedMandatory = nbExpectedMandatory;
+            this.nbExpectedOptional = nbExpectedOptional;
+        }
+
+        void setFileState(Long fileId, AcquisitionFileState state) {
+            files.get(fileId).state = state;
+        }
+
+        void link(String session, List<AcquisitionFile> validFiles) {
+            Map<String, List<AcquisitionFile>> filesByProduct = validFiles.stream()
+                    .collect(Collectors.groupingBy(f -> f.getFilePath().getFileName().toString()));
+            for (Map.Entry<String, List<AcquisitionFile>> entry : filesByProduct.entrySet()) {
+                ModelProduct product = products.get(entry.getKey());
+                if (product == null) {
+                    product = new ModelProduct(entry.getKey(), session);
+                    products.put(entry.getKey(), product);
+                }
+                product.session = session;
+
+                // Mark old files as superseded
+                Set<Long> newFileInfoIds = entry.getValue().stream().map(f -> f.getFileInfo().getId())
+                        .collect(Collectors.toSet());
+                for (ModelFile existing : product.files.values()) {
+                    if (newFileInfoIds.contains(existing.fileInfoId)) {
+                        if (existing.state == AcquisitionFileState.ACQUIRED) {
+                            existing.state = AcquisitionFileState.SUPERSEDED;
+                        } else if (existing.state == AcquisitionFileState.ERROR) {
+                            existing.state = AcquisitionFileState.SUPERSEDED_AFTER_ERROR;
+                        }
+                    }
+                }
+                // Mark files as acquired
+                for (AcquisitionFile validFile : entry.getValue()) {
+                    ModelFile file = new ModelFile(validFile.getId(), validFile.getFileInfo().getId(),
+                            validFile.getFileInfo().isMandatory(), session);
+                    product.files.put(file.id, file);
+                    files.put(file.id, file);
+                }
+
+                product.sipState = ProductSIPState.NOT_SCHEDULED;
+                if ((product.state != ProductState.FINISHED) && (product.state != ProductState.COMPLETED)) {
+                    product.state = ProductState.ACQUIRING;
+                    computeState(product);
+                } else {
+                    product.state = ProductState.UPDATED;
+                }
+                if ((product.sipState == ProductSIPState.NOT_SCHEDULED)
+                        && ((product.state == ProductState.COMPLETED) || (product.state == ProductState.FINISHED))) {
+                    product.sipState = ProductSIPState.SCHEDULED;
+                }
+            }
+        }
+
+        private void computeState(ModelProduct product) {
+            long nbActualMandatory = product.files.values().stream()
+                    .filter(f -> (f.state == AcquisitionFileState.ACQUIRED) && f.mandatory).count();
+            long nbActualOptional = product.files.values().stream()
+                    .filter(f -> (f.state == AcquisitionFileState.ACQUIRED) && !f.mandatory).count();
+            if (nbExpectedMandatory == nbActualMandatory) {
+                product.state = ProductState.COMPLETED;
+                if (nbExpectedOptional == nbActualOptional) {
+                    product.state = ProductState.FINISHED;
+                } else if (nbActualOptional >= nbExpectedOptional) {
+                    product.state = ProductState.INVALID;
+                    product.sipState = ProductSIPState.NOT_SCHEDULED_INVALID;
+                    product.error = String
+                            .format("This product should only have %s optional files according to configuration. We found %s files matching. Please check your configuration and reacquire.",
+                                    nbExpectedMandatory, nbActualMandatory);
+                }
+            } else if (nbActualMandatory >= nbExpectedMandatory) {
+                product.state = ProductState.INVALID;
+                product.sipState = ProductSIPState.NOT_SCHEDULED_INVALID;
+                product.error = String
+                        .format("This product should only have %s mandatory files according to configuration. We found %s files matching. Please check your configuration and reacquire.",
+                                nbExpectedMandatory, nbActualMandatory);
+            }
+        }
+
+        private static class ModelProduct {
+
+            private final String productName;
+
+            private final Map<Long, ModelFile> files = new HashMap<>();
+
+            private String session;
+
+            private ProductState state;
+
+            private ProductSIPState sipState;
+
+            private String error;
+
+            ModelProduct(String productName, String session) {
+                this.productName = productName;
+                this.session = session;
+            }
+        }
+
+        private static class ModelFile {
+
+            private final Long id;
+
+            private final Long fileInfoId;
+
+            private final boolean mandatory;
+
+            private final String session;
+
+            private AcquisitionFileState state = AcquisitionFileState.ACQUIRED;
+
+            ModelFile(Long id, Long fileInfoId, boolean mandatory, String session) {
+                this.id = id;
+                this.fileInfoId = fileInfoId;
+                this.mandatory = mandatory;
+                this.session = session;
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+
+import fr.cnes.regards.framework.jpa.multitenant.test.AbstractMultitenantServiceTest;
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileRepository;
+import fr.cnes.regards.modules.acquisition.dao.IProductRepository;
+import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
+import fr.cnes.regards.modules.acquisition.domain.ProductState;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.ingest.client.IIngestClient;
+import fr.cnes.regards.modules.ingest.dto.sip.SIP;
+import fr.cnes.regards.modules.ingest.dto.sip.SIPBuilder;
+import fr.cnes.regards.modules.sessionmanager.client.ISessionNotificationClient;
+
+/**
+ * Test {@link ProductService#handleGeneratedProducts(AcquisitionProcessingChain, Set, Set)} : SIPs submitted by bulk
+ * and SIP states, SIPs and errors written with {@link fr.cnes.regards.modules.acquisition.dao.IProductBulkRepository}.
+ *
+ * @author REGARDS Team
+ */
+@TestPropertySource(properties = { "spring.jpa.properties.hibernate.default_schema=acq_product_submission",
+        "regards.acquisition.sip.bulk.request.limit=2" })
+public class ProductSubmissionServiceTest extends AbstractMultitenantServiceTest {
+
+    @MockBean
+    private ISessionNotificationClient sessionNotificationClient;
+
+    @MockBean
+    private IIngestClient ingestClient;
+
+    @MockBean
+    private IAcquisitionChainDescriptorService chainDescriptorService;
+
+    @Autowired
+    private IAcquisitionProcessingService processingService;
+
+    @Autowired
+    private IProductService productService;
+
+    @Autowired
+    private IAcquisitionFileRepository acqFileRepository;
+
+    @Autowired
+    private IProductRepository productRepository;
+
+    @Autowired
+    private Gson gson;
+
+    private AcquisitionProcessingChain processingChain;
+
+    @Before
+    public void before() throws ModuleException {
+        acqFileRepository.deleteAll();
+        productRepository.deleteAll();
+        for (AcquisitionProcessingChain chain : processingService.getFullChains(PageRequest.of(0, 100))
+                .getContent()) {
+            chain.setActive(false);
+            processingService.updateChain(chain);
+            processingService.deleteChain(chain.getId());
+        }
+        processingChain = processingService
+                .createChain(AcquisitionTestUtils.getNewChain("Submission chain", null, "A"));
+        Mockito.reset(ingestClient, chainDescriptorService);
+    }
+
+    @Test
+    public void writeGeneratedSips() throws Exception {
+        Mockito.when(chainDescriptorService.get(Mockito.any()))
+                .thenReturn(AcquisitionChainDescriptor.build(processingChain, null, null, null));
+        Set<Product> success = new HashSet<>();
+        for (String productName : Arrays.asList("s1_p1", "s1_p2", "s1_p3", "s2_p1")) {
+            Product product = createProduct(productName, productName.substring(0, 2));
+            product.setSip(createSip(productName));
+            product.setSipState(ProductSIPState.SUBMITTED);
+            success.add(product);
+        }
+        Product generationError = createProduct("s1_error", "s1");
+        generationError.setSipState(ProductSIPState.GENERATION_ERROR);
+        generationError.setError("Generation error");
+
+        productService.handleGeneratedProducts(processingChain, success, Sets.newHashSet(generationError));
+
+        // Ingest metadata is built once for each bulk of at most 2 products of the same session
+        Mockito.verify(chainDescriptorService, Mockito.times(3)).get(Mockito.any());
+        Mockito.verify(ingestClient, Mockito.times(4)).ingest(Mockito.any(), Mockito.any());
+        for (Product expected : success) {
+            Product stored = productRepository.findByProductName(expected.getProductName());
+            Assert.assertEquals(ProductSIPState.SUBMITTED, stored.getSipState());
+            Assert.assertNull(stored.getError());
+            Assert.assertNotNull(stored.getSip());
+            Assert.assertEquals(gson.toJson(expected.getSip()), gson.toJson(stored.getSip()));
+        }
+        Product stored = productRepository.findByProductName("s1_error");
+        Assert.assertEquals(ProductSIPState.GENERATION_ERROR, stored.getSipState());
+        Assert.assertEquals("Generation error", stored.getError());
+        Assert.assertNull(stored.getSip());
+    }
+
+    @Test
+    public void writeSubmissionErrors() throws Exception {
+        Mockito.when(chainDescriptorService.get(Mockito.any()))
+                .thenThrow(new ModuleException("Unable to run disabled acquisition chain."));
+        Product product = createProduct("s1_p1", "s1");
+        product.setSip(createSip("s1_p1"));
+        product.setSipState(ProductSIPState.SUBMITTED);
+
+        productService.handleGeneratedProducts(processingChain, Sets.newHashSet(product), Collections.emptySet());
+
+        Mockito.verify(ingestClient, Mockito.never()).ingest(Mockito.any(), Mockito.any());
+        Product stored = productRepository.findByProductName("s1_p1");
+        Assert.assertEquals(ProductSIPState.INGESTION_FAILED, stored.getSipState());
+        Assert.assertEquals("Unable to run disabled acquisition chain.", stored.getError());
+        // Generated SIP is kept to be submitted again
+        Assert.assertEquals(gson.toJson(product.getSip()), gson.toJson(stored.getSip()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectInvalidBulkRequestLimit() {
+        ProductService service = new ProductService();
+        ReflectionTestUtils.setField(service, "bulkRequestLimit", 0);
+        service.init();
+    }
+
+    private Product createProduct(String productName, String session) {
+        Product product = new Product();
+        product.setProductName(productName);
+        product.setProcessingChain(processingChain);
+        product.setSession(session);
+        product.setState(ProductState.COMPLETED);
+        product.setSipState(ProductSIPState.SCHEDULED);
+        product.setLastUpdate(OffsetDateTime.now());
+        return productRepository.save(product);
+    }
+
+    private static SIP createSip(String productName) {
+        SIPBuilder sipBuilder = new SIPBuilder(productName);
+        sipBuilder.addEvent("Product SIP generation");
+        return sipBuilder.build();
+    }
+}
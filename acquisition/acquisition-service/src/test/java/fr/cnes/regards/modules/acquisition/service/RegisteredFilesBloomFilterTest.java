@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+
+import fr.cnes.regards.framework.jpa.multitenant.test.AbstractMultitenantServiceTest;
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
+import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
+import fr.cnes.regards.framework.modules.plugins.service.IPluginService;
+import fr.cnes.regards.framework.urn.DataType;
+import fr.cnes.regards.framework.utils.plugins.PluginParameterTransformer;
+import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileInfoRepository;
+import fr.cnes.regards.modules.acquisition.dao.IAcquisitionFileRepository;
+import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionFileInfo;
+import fr.cnes.regards.modules.acquisition.service.plugins.GlobDiskScanning;
+
+/**
+ * Test file registration relying on {@link RegisteredFilesBloomFilter}.<br/>
+ * The filter is deliberately undersized so that false positives happen and the database check is used.
+ *
+ * @author REGARDS Team
+ */
+@TestPropertySource(properties = { "spring.jpa.properties.hibernate.default_schema=acquisition_bloom",
+        "regards.acquisition.file.bloom.filter.enabled=true",
+        "regards.acquisition.file.bloom.filter.expected.insertions=10",
+        "regards.acquisition.file.bloom.filter.fpp=0.3" })
+public class RegisteredFilesBloomFilterTest extends AbstractMultitenantServiceTest {
+
+    private static final Instant LMD = Instant.parse("2020-01-01T00:00:00Z");
+
+    @Autowired
+    private IAcquisitionProcessingService processingService;
+
+    @Autowired
+    private RegisteredFilesBloomFilter registeredFilesFilter;
+
+    @Autowired
+    private IAcquisitionFileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private IAcquisitionFileRepository acquisitionFileRepository;
+
+    @Autowired
+    private IPluginService pluginService;
+
+    private AcquisitionFileInfo fileInfo;
+
+    @Before
+    public void before() throws ModuleException {
+        acquisitionFileRepository.deleteAll();
+        fileInfoRepository.deleteAll();
+        for (PluginConfiguration pc : pluginService.getAllPluginConfigurations()) {
+            pluginService.deletePluginConfiguration(pc.getBusinessId());
+        }
+
+        fileInfo = new AcquisitionFileInfo();
+        fileInfo.setMandatory(Boolean.TRUE);
+        fileInfo.setComment("Bloom filter");
+        fileInfo.setMimeType(MediaType.APPLICATION_OCTET_STREAM);
+        fileInfo.setDataType(DataType.RAWDATA);
+        Set<IPluginParam> param = IPluginParam.set(IPluginParam
+                .build(GlobDiskScanning.FIELD_DIRS, PluginParameterTransformer.toJson(new ArrayList<>())));
+        PluginConfiguration scanPlugin = PluginConfiguration.build(GlobDiskScanning.class, null, param);
+        scanPlugin.setIsActive(true);
+        scanPlugin.setLabel("Bloom scan plugin");
+        pluginService.savePluginConfiguration(scanPlugin);
+        fileInfo.setScanPlugin(scanPlugin);
+        fileInfo = fileInfoRepository.save(fileInfo);
+    }
+
+    /**
+     * Files the saturated filter may consider as registered must still be checked in database and registered
+     */
+    @Test
+    public void falsePositivesFallBackToDatabase() throws ModuleException {
+        // First full scan fills the filter far beyond its expected insertions
+        Assert.assertEquals(200, processingService
+                .registerFiles(buildFiles("first", 200).iterator(), fileInfo, Optional.empty(), "chain", "session"));
+
+        // Next scan at the same date : known files are skipped, new ones are all registered
+        OffsetDateTime scanningDate = OffsetDateTime.ofInstant(LMD, ZoneOffset.UTC);
+        List<ScannedFile> files = buildFiles("first", 200);
+        files.addAll(buildFiles("second", 200));
+        Assert.assertTrue("Saturated filter should give false positives",
+                          buildFiles("second", 200).stream()
+                                  .anyMatch(f -> !registeredFilesFilter
+                                          .isNeverRegistered(fileInfo, Optional.of(scanningDate), f.getPath())));
+        Assert.assertEquals(200, processingService.registerFiles(files.iterator(), fileInfo,
+                                                                 Optional.of(scanningDate), "chain", "session"));
+        Assert.assertEquals(400, acquisitionFileRepository.count());
+    }
+
+    @Test
+    public void duplicatesInBatch() throws ModuleException {
+        List<ScannedFile> files = buildFiles("dup", 10);
+        files.addAll(buildFiles("dup", 10));
+        Assert.assertEquals(10, processingService.registerFiles(files.iterator(), fileInfo, Optional.empty(),
+                                                                "chain", "session"));
+        Set<Path> paths = acquisitionFileRepository.findAll().stream().map(AcquisitionFile::getFilePath)
+                .collect(Collectors.toSet());
+        Assert.assertEquals(10, paths.size());
+        Assert.assertEquals(10, acquisitionFileRepository.count());
+    }
+
+    @Test
+    public void evict() throws ModuleException {
+        processingService.registerFiles(buildFiles("evict", 1).iterator(), fileInfo, Optional.empty(), "chain",
+                                        "session");
+        OffsetDateTime scanningDate = OffsetDateTime.ofInstant(LMD, ZoneOffset.UTC);
+        Path unknown = Paths.get("unknown", "file.dat");
+        Assert.assertTrue(registeredFilesFilter.isNeverRegistered(fileInfo, Optional.of(scanningDate), unknown));
+
+        // Once evicted, a new filter cannot be trusted for the current scanning date
+        registeredFilesFilter.evict(Collections.singletonList(fileInfo.getId()));
+        Assert.assertFalse(registeredFilesFilter.isNeverRegistered(fileInfo, Optional.of(scanningDate), unknown));
+    }
+
+    private static List<ScannedFile> buildFiles(String prefix, int count) {
+        List<ScannedFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            files.add(ScannedFile.build(Paths.get("bloom", prefix + "_" + i + ".dat"), LMD, 10L));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+
+/**
+ * Test bounded memory sort of scanned files
+ *
+ * @author REGARDS Team
+ */
+public class ScannedFileSorterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testSortWithSpill() throws IOException {
+        Random random = new Random(42);
+        List<ScannedFile> sorted = new ArrayList<>();
+        try (ScannedFileSorter sorter = new ScannedFileSorter(tmpFolder.getRoot().toPath(), 10)) {
+            for (int i = 0; i < 105; i++) {
+                sorter.add(ScannedFile.build(Paths.get("/data", "file" + i),
+                                             Instant.ofEpochSecond(random.nextInt(100000), random.nextInt(1000000)),
+                                             i));
+            }
+            Assert.assertEquals(105, sorter.size());
+            Iterator<ScannedFile> it = sorter.sorted();
+            while (it.hasNext()) {
+                sorted.add(it.next());
+            }
+            // Chunks are spilled to disk
+            Assert.assertEquals(11, tmpFolder.getRoot().list().length);
+        }
+        Assert.assertEquals(105, sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            Assert.assertFalse(sorted.get(i).getLastModificationDate()
+                    .isBefore(sorted.get(i - 1).getLastModificationDate()));
+        }
+        // Restored files keep their attributes
+        ScannedFile file = sorted.stream().filter(f -> f.getPath().equals(Paths.get("/data", "file7"))).findFirst()
+                .get();
+        Assert.assertEquals(7, file.getSize());
+        Assert.assertTrue(file.getAttributes().isRegularFile());
+        // Temporary files are deleted on close
+        Assert.assertEquals(0, tmpFolder.getRoot().list().length);
+    }
+}
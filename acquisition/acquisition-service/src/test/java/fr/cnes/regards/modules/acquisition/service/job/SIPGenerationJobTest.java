@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.job;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.multitenant.IRuntimeTenantResolver;
+import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.domain.ProductSIPState;
+import fr.cnes.regards.modules.acquisition.domain.chain.AcquisitionProcessingChain;
+import fr.cnes.regards.modules.acquisition.plugins.ISipGenerationPlugin;
+import fr.cnes.regards.modules.acquisition.service.AcquisitionChainDescriptor;
+import fr.cnes.regards.modules.acquisition.service.IAcquisitionChainDescriptorService;
+import fr.cnes.regards.modules.acquisition.service.IProductService;
+import fr.cnes.regards.modules.acquisition.service.SIPGenerationExecutor;
+import fr.cnes.regards.modules.acquisition.service.session.SessionNotifier;
+import fr.cnes.regards.modules.ingest.dto.sip.SIP;
+
+/**
+ * Test {@link SIPGenerationJob} with a thread safe generation plugin : SIPs are generated on the shared
+ * {@link SIPGenerationExecutor} and the job only ends once all generations are over.
+ *
+ * @author REGARDS Team
+ */
+public class SIPGenerationJobTest {
+
+    private static final int PARALLELISM = 4;
+
+    private static final int NB_PRODUCTS = 20;
+
+    private static final String TENANT = "PROJECT";
+
+    private SIPGenerationExecutor executor;
+
+    private IProductService productService;
+
+    private SessionNotifier sessionNotifier;
+
+    private IAcquisitionChainDescriptorService chainDescriptorService;
+
+    private AcquisitionProcessingChain processingChain;
+
+    /**
+     * Generations running at a time
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * Maximum number of generations running at a time
+     */
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    /**
+     * Generations still running once the job handles its products
+     */
+    private final AtomicInteger runningWhenHandled = new AtomicInteger(-1);
+
+    private final Set<Product> generated = new HashSet<>();
+
+    private final Set<Product> failed = new HashSet<>();
+
+    @Before
+    public void init() {
+        IRuntimeTenantResolver tenantResolver = Mockito.mock(IRuntimeTenantResolver.class);
+        Mockito.when(tenantResolver.getTenant()).thenReturn(TENANT);
+        executor = new SIPGenerationExecutor();
+        ReflectionTestUtils.setField(executor, "parallelism", PARALLELISM);
+        ReflectionTestUtils.setField(executor, "runtimeTenantResolver", tenantResolver);
+        executor.init();
+
+        productService = Mockito.mock(IProductService.class);
+        Mockito.doAnswer(invocation -> {
+            runningWhenHandled.set(running.get());
+            generated.addAll(invocation.getArgument(1));
+            failed.addAll(invocation.getArgument(2));
+            return null;
+        }).when(productService).handleGeneratedProducts(Mockito.any(), Mockito.any(), Mockito.any());
+        sessionNotifier = Mockito.mock(SessionNotifier.class);
+        chainDescriptorService = Mockito.mock(IAcquisitionChainDescriptorService.class);
+
+        processingChain = new AcquisitionProcessingChain();
+        processingChain.setLabel("SIP generation chain");
+        processingChain.setFileInfos(new HashSet<>());
+    }
+
+    @After
+    public void destroy() {
+        executor.destroy();
+    }
+
+    @Test
+    public void generateConcurrently() throws ModuleException, InterruptedException {
+        SIPGenerationJob job = createJob(new ThreadSafeSipGeneration() {
+
+            @Override
+            protected void generate(String productName) throws ModuleException, InterruptedException {
+                Thread.sleep(10);
+                if ("product13".equals(productName)) {
+                    throw new ModuleException("Generation error");
+                }
+            }
+        });
+        job.run();
+
+        Assert.assertEquals(0, runningWhenHandled.get());
+        Assert.assertTrue("SIPs must be generated concurrently", maxRunning.get() > 1);
+        Assert.assertTrue("Parallelism must be bounded", maxRunning.get() <= PARALLELISM);
+        Assert.assertEquals(NB_PRODUCTS - 1, generated.size());
+        generated.forEach(product -> Assert.assertEquals(ProductSIPState.SUBMITTED, product.getSipState()));
+        Assert.assertEquals(1, failed.size());
+        Product error = failed.iterator().next();
+        Assert.assertEquals("product13", error.getProductName());
+        Assert.assertEquals(ProductSIPState.GENERATION_ERROR, error.getSipState());
+        Assert.assertEquals("Generation error", error.getError());
+    }
+
+    @Test
+    public void interruptWaitsForRunningGenerations() throws ModuleException, InterruptedException {
+        CountDownLatch started = new CountDownLatch(PARALLELISM);
+        AtomicInteger nbStarted = new AtomicInteger();
+        SIPGenerationJob job = createJob(new ThreadSafeSipGeneration() {
+
+            @Override
+            protected void generate(String productName) throws InterruptedException {
+                nbStarted.incrementAndGet();
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } finally {
+                    // Let the job a chance to end before the generation is over
+                    Thread.sleep(100);
+                }
+            }
+        });
+        Thread jobThread = new Thread(job::run);
+        jobThread.start();
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        jobThread.interrupt();
+        jobThread.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(jobThread.isAlive());
+
+        // Interrupted generations are over, products not handled yet are skipped
+        Assert.assertEquals(0, runningWhenHandled.get());
+        Assert.assertEquals(PARALLELISM, nbStarted.get());
+        Assert.assertTrue(generated.isEmpty());
+        Assert.assertTrue(failed.isEmpty());
+        Mockito.verify(sessionNotifier).notifyEndingChain(processingChain.getLabel(), "session");
+    }
+
+    private SIPGenerationJob createJob(ISipGenerationPlugin plugin) throws ModuleException {
+        Mockito.when(chainDescriptorService.get(processingChain))
+                .thenReturn(AcquisitionChainDescriptor.build(processingChain, null, null, plugin));
+        Set<Product> products = new HashSet<>();
+        for (int i = 0; i < NB_PRODUCTS; i++) {
+            Product product = new Product();
+            product.setProductName("product" + i);
+            product.setSession("session");
+            product.setSipState(ProductSIPState.SCHEDULED);
+            products.add(product);
+        }
+        SIPGenerationJob job = new SIPGenerationJob();
+        ReflectionTestUtils.setField(job, "productService", productService);
+        ReflectionTestUtils.setField(job, "sessionNotifier", sessionNotifier);
+        ReflectionTestUtils.setField(job, "chainDescriptorService", chainDescriptorService);
+        ReflectionTestUtils.setField(job, "sipGenerationExecutor", executor);
+        ReflectionTestUtils.setField(job, "processingChain", processingChain);
+        ReflectionTestUtils.setField(job, "products", products);
+        return job;
+    }
+
+    /**
+     * Thread safe generation plugin recording the number of generations running at a time
+     */
+    private abstract class ThreadSafeSipGeneration implements ISipGenerationPlugin {
+
+        @Override
+        public SIP generate(Product product) throws ModuleException {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                generate(product.getProductName());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ModuleException(e.getMessage(), e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        protected abstract void generate(String productName) throws ModuleException, InterruptedException;
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+}
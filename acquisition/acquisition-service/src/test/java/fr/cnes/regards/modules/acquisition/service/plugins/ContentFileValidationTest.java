@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
+import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
+import fr.cnes.regards.framework.utils.plugins.PluginUtils;
+import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
+import fr.cnes.regards.modules.acquisition.domain.FileValidationResult;
+import fr.cnes.regards.modules.acquisition.plugins.IValidationPlugin;
+
+/**
+ * Test content validation plugin
+ *
+ * @author REGARDS Team
+ */
+public class ContentFileValidationTest {
+
+    /**
+     * MD5 of "%PDF-test"
+     */
+    private static final String CONTENT_MD5 = "7dbf7393168b90626b074e36b30bc7e5";
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Before
+    public void setup() {
+        PluginUtils.setup();
+    }
+
+    @Test
+    public void testContentValidation()
+            throws ModuleException, IOException, NotAvailablePluginConfigurationException {
+        Path root = tmpFolder.getRoot().toPath();
+        Path valid = Files.write(root.resolve("valid.pdf"), "%PDF-test".getBytes(StandardCharsets.UTF_8));
+        Path badHeader = Files.write(root.resolve("header.pdf"), "PDF-test".getBytes(StandardCharsets.UTF_8));
+        Path badChecksum = Files.write(root.resolve("checksum.pdf"), "%PDF-other".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("checksum.pdf.md5"), "0123456789abcdef0123456789abcdef  checksum.pdf"
+                .getBytes(StandardCharsets.UTF_8));
+        Path tooSmall = Files.write(root.resolve("small.pdf"), "%PDF".getBytes(StandardCharsets.UTF_8));
+
+        Set<IPluginParam> parameters = IPluginParam
+                .set(IPluginParam.build(ContentFileValidation.FIELD_MIN_SIZE, 5L),
+                     IPluginParam.build(ContentFileValidation.FIELD_MAGIC_BYTES, "25504446"));
+        PluginConfiguration pluginConf = PluginConfiguration.build(ContentFileValidation.class, null, parameters);
+        IValidationPlugin plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+        Assert.assertNotNull(plugin);
+
+        List<FileValidationResult> results = plugin
+                .validate(Arrays.asList(valid, badHeader, badChecksum, tooSmall, root.resolve("unknown.pdf")));
+        Assert.assertEquals(5, results.size());
+        Assert.assertTrue(results.get(0).isValid());
+        Assert.assertEquals("MD5", results.get(0).getChecksumAlgorithm());
+        Assert.assertEquals(CONTENT_MD5, results.get(0).getChecksum());
+        for (FileValidationResult result : results.subList(1, results.size())) {
+            Assert.assertFalse(result.isValid());
+            Assert.assertNotNull(result.getReason());
+        }
+    }
+
+    @Test
+    public void testInterruptedValidation()
+            throws ModuleException, IOException, NotAvailablePluginConfigurationException {
+        Path root = tmpFolder.getRoot().toPath();
+        Path valid = Files.write(root.resolve("valid.pdf"), "%PDF-test".getBytes(StandardCharsets.UTF_8));
+        Path tooSmall = Files.write(root.resolve("small.pdf"), "%PDF".getBytes(StandardCharsets.UTF_8));
+
+        Set<IPluginParam> parameters = IPluginParam.set(IPluginParam.build(ContentFileValidation.FIELD_MIN_SIZE, 5L));
+        PluginConfiguration pluginConf = PluginConfiguration.build(ContentFileValidation.class, null, parameters);
+        IValidationPlugin plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+
+        // Files are not validated, neither valid nor invalid, once interrupted
+        Thread.currentThread().interrupt();
+        try {
+            List<FileValidationResult> results = plugin.validate(Arrays.asList(valid, tooSmall));
+            Assert.assertEquals(2, results.size());
+            Assert.assertTrue(results.stream().allMatch(Objects::isNull));
+        } finally {
+            // Clear interrupted flag
+            Thread.interrupted();
+        }
+    }
+}
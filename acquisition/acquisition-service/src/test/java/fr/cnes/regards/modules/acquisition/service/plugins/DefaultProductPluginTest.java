@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
+import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
+import fr.cnes.regards.framework.utils.plugins.PluginParameterTransformer;
+import fr.cnes.regards.framework.utils.plugins.PluginUtils;
+import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
+import fr.cnes.regards.modules.acquisition.domain.ProductNameResult;
+import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
+
+/**
+ * Test default product plugin
+ *
+ * @author REGARDS Team
+ */
+public class DefaultProductPluginTest {
+
+    @Before
+    public void setup() {
+        PluginUtils.setup();
+    }
+
+    private IProductPlugin getPlugin(Set<IPluginParam> parameters) throws NotAvailablePluginConfigurationException {
+        PluginConfiguration pluginConf = PluginConfiguration.build(DefaultProductPlugin.class, null, parameters);
+        IProductPlugin plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+        Assert.assertNotNull(plugin);
+        return plugin;
+    }
+
+    @Test
+    public void testRemoveExtension() throws ModuleException, NotAvailablePluginConfigurationException {
+        IProductPlugin plugin = getPlugin(IPluginParam.set(IPluginParam.build(DefaultProductPlugin.FIELD_REMOVE_EXT,
+                                                                              true)));
+        Assert.assertEquals("product.tar", plugin.getProductName(Paths.get("/data", "product.tar.gz")));
+        Assert.assertEquals("product", plugin.getProductName(Paths.get("/data", "product")));
+    }
+
+    @Test
+    public void testRemoveListedExtension() throws ModuleException, NotAvailablePluginConfigurationException {
+        IProductPlugin plugin = getPlugin(IPluginParam
+                .set(IPluginParam.build(DefaultProductPlugin.FIELD_REMOVE_EXT, true),
+                     IPluginParam.build(DefaultProductPlugin.FIELD_USE_EXTS, true),
+                     IPluginParam.build(DefaultProductPlugin.FIELD_EXTS,
+                                        PluginParameterTransformer.toJson(Arrays.asList(".tar.gz", ".dat")))));
+        Assert.assertEquals("product", plugin.getProductName(Paths.get("/data", "product.tar.gz")));
+        Assert.assertEquals("product", plugin.getProductName(Paths.get("/data", "product.dat")));
+        Assert.assertEquals("product.txt", plugin.getProductName(Paths.get("/data", "product.txt")));
+        // Only the suffix is removed
+        Assert.assertEquals("product.dat.bak", plugin.getProductName(Paths.get("/data", "product.dat.bak")));
+        Assert.assertEquals("product.dat", plugin.getProductName(Paths.get("/data", "product.dat.dat")));
+    }
+
+    @Test
+    public void testIgnoreListedExtension() throws ModuleException, NotAvailablePluginConfigurationException {
+        // Without listed extension removal, product names are the ones of previous versions
+        IProductPlugin plugin = getPlugin(IPluginParam
+                .set(IPluginParam.build(DefaultProductPlugin.FIELD_REMOVE_EXT, true),
+                     IPluginParam.build(DefaultProductPlugin.FIELD_EXTS,
+                                        PluginParameterTransformer.toJson(Arrays.asList(".tar.gz", ".dat")))));
+        Assert.assertEquals("product.tar", plugin.getProductName(Paths.get("/data", "product.tar.gz")));
+        Assert.assertEquals("product", plugin.getProductName(Paths.get("/data", "product.txt")));
+    }
+
+    @Test
+    public void testPrefixAndLength() throws ModuleException, NotAvailablePluginConfigurationException {
+        IProductPlugin plugin = getPlugin(IPluginParam
+                .set(IPluginParam.build(DefaultProductPlugin.FIELD_PREFIX, "PRE_"),
+                     IPluginParam.build(DefaultProductPlugin.FIELD_LENGTH, 8),
+                     IPluginParam.build(DefaultProductPlugin.FIELD_LENGTH_REQUIRED, true)));
+        Assert.assertEquals("PRE_prod", plugin.getProductName(Paths.get("/data", "product.dat")));
+
+        List<Path> filePaths = Arrays.asList(Paths.get("/data", "product.dat"), Paths.get("/data", "p"));
+        List<ProductNameResult> results = plugin.getProductNames(filePaths);
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals("PRE_prod", results.get(0).getProductName());
+        Assert.assertTrue(results.get(1).isError());
+        Assert.assertTrue(results.get(1).getCause() instanceof ModuleException);
+        Assert.assertEquals(results.get(1).getCause().getMessage(), results.get(1).getError());
+        Assert.assertEquals(filePaths.get(1), results.get(1).getPath());
+    }
+}
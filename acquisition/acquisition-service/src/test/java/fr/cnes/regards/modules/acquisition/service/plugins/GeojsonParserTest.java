@@ -38,6 +38,7 @@ import fr.cnes.regards.framework.module.rest.exception.ModuleException;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFile;
 import fr.cnes.regards.modules.acquisition.domain.AcquisitionFileState;
 import fr.cnes.regards.modules.acquisition.domain.Product;
+import fr.cnes.regards.modules.acquisition.service.IChecksumCacheService;
 import fr.cnes.regards.modules.ingest.dto.sip.SIP;
 
 @TestPropertySource(properties = { "spring.jpa.properties.hibernate.default_schema=geojson_test" })
@@ -46,6 +47,9 @@ public class GeojsonParserTest extends AbstractMultitenantServiceTest {
     @Autowired
     private Gson gson;
 
+    @Autowired
+    private IChecksumCacheService checksumCache;
+
     @Test
     public void test() throws ModuleException, IOException {
         GeoJsonFeatureCollectionParserPlugin plugin = new GeoJsonFeatureCollectionParserPlugin();
@@ -62,9 +66,23 @@ public class GeojsonParserTest extends AbstractMultitenantServiceTest {
         Files.copy(Paths.get("src/test/resources/Ain.dat"), Paths.get("target/output/Ain.dat"));
         plugin.setDirectoryToScan(targetDir.toString());
         plugin.setGson(gson);
+        plugin.setChecksumCache(checksumCache);
         plugin.setFeatureId("nom");
         List<Path> paths = plugin.scan(Optional.empty());
         Assert.assertEquals(1, paths.size());
+
+        // Checksums of unchanged files are kept
+        Path rawDataFile = Paths.get("target/output/Ain.pdf");
+        Assert.assertTrue(checksumCache.findChecksum(rawDataFile, "MD5", Files.size(rawDataFile),
+                                                     Files.getLastModifiedTime(rawDataFile).toMillis())
+                .isPresent());
+        // and not computed again
+        long misses = checksumCache.getMissCount();
+        long hits = checksumCache.getMemoryHitCount();
+        paths = plugin.scan(Optional.empty());
+        Assert.assertEquals(1, paths.size());
+        Assert.assertEquals(misses, checksumCache.getMissCount());
+        Assert.assertTrue(checksumCache.getMemoryHitCount() > hits);
     }
 
     @Test
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.cnes.regards.modules.acquisition.domain.ScannedFile;
+import fr.cnes.regards.modules.acquisition.domain.chain.ScannedDirectory;
+import fr.cnes.regards.modules.acquisition.service.DirectoryIndex;
+
+/**
+ * Test {@link ParallelDirectoryWalker} with and without directory index
+ *
+ * @author REGARDS Team
+ */
+public class ParallelDirectoryWalkerTest {
+
+    /**
+     * Directory modification date old enough to be trusted by the index
+     */
+    private static final FileTime OLD = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void walk() throws IOException {
+        Path rootDir = tmpFolder.getRoot().toPath();
+        Set<Path> expected = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            Path dir = Files.createDirectories(rootDir.resolve("dir" + (i % 4)).resolve("sub" + i));
+            expected.add(Files.createFile(dir.resolve("file" + i + ".md")));
+            Files.createFile(dir.resolve("file" + i + ".txt"));
+        }
+        expected.add(Files.createFile(rootDir.resolve("root.md")));
+
+        Assert.assertEquals(expected, walk(rootDir, null));
+        // Single thread walk gives the same files
+        try (Stream<ScannedFile> stream = ParallelDirectoryWalker.walk(rootDir, 1, this::isMarkdown)) {
+            Assert.assertEquals(expected, stream.map(ScannedFile::getPath).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    public void walkClosedBeforeEnd() throws IOException {
+        Path rootDir = tmpFolder.getRoot().toPath();
+        for (int i = 0; i < 5000; i++) {
+            Files.createFile(rootDir.resolve("file" + i + ".md"));
+        }
+        try (Stream<ScannedFile> stream = ParallelDirectoryWalker.walk(rootDir, 2, this::isMarkdown)) {
+            Assert.assertEquals(10, stream.limit(10).count());
+        }
+    }
+
+    @Test
+    public void pruneUnchangedDirectories() throws IOException {
+        Path rootDir = tmpFolder.getRoot().toPath();
+        Path dirA = Files.createDirectories(rootDir.resolve("a"));
+        Path dirB = Files.createDirectories(rootDir.resolve("b"));
+        Files.createFile(dirA.resolve("a1.md"));
+        Path b1 = Files.createFile(dirB.resolve("b1.md"));
+        setOld(rootDir, dirA, dirB);
+
+        // First walk lists all directories
+        DirectoryIndex firstIndex = new DirectoryIndex(1L, Collections.emptyList());
+        Assert.assertEquals(2, walk(rootDir, firstIndex).size());
+        Map<Path, ScannedDirectory> visited = getVisited(firstIndex);
+        Assert.assertEquals(3, visited.size());
+        Assert.assertTrue(visited.values().stream().allMatch(dir -> dir.getLastModified() != null));
+
+        // New file in a directory which modification date is unchanged is not detected, others are
+        Files.createFile(dirA.resolve("a2.md"));
+        Path b2 = Files.createFile(dirB.resolve("b2.md"));
+        setOld(dirA);
+        DirectoryIndex secondIndex = new DirectoryIndex(1L, new ArrayList<>(firstIndex.getVisitedDirectories()));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(b1, b2)), walk(rootDir, secondIndex));
+        Assert.assertEquals(3, getVisited(secondIndex).size());
+    }
+
+    @Test
+    public void unreadableKnownDirectoryIsIncomplete() throws IOException {
+        Path rootDir = tmpFolder.getRoot().toPath();
+        Path dirA = Files.createDirectories(rootDir.resolve("a"));
+        Path dirB = Files.createDirectories(rootDir.resolve("b"));
+        Files.createFile(dirA.resolve("a1.md"));
+        Files.createFile(dirB.resolve("b1.md"));
+        setOld(rootDir, dirA, dirB);
+        DirectoryIndex firstIndex = new DirectoryIndex(1L, Collections.emptyList());
+        walk(rootDir, firstIndex);
+
+        // Known sub directory disappears whereas parent modification date is unchanged
+        Files.delete(dirB.resolve("b1.md"));
+        Files.delete(dirB);
+        setOld(rootDir);
+        DirectoryIndex secondIndex = new DirectoryIndex(1L, new ArrayList<>(firstIndex.getVisitedDirectories()));
+        // Unchanged directory a is not listed
+        Assert.assertTrue(walk(rootDir, secondIndex).isEmpty());
+
+        // Parent directory must be listed again at next scan
+        Map<Path, ScannedDirectory> visited = getVisited(secondIndex);
+        Assert.assertNull(visited.get(rootDir).getLastModified());
+        Assert.assertNotNull(visited.get(dirA).getLastModified());
+        Assert.assertFalse(visited.containsKey(dirB));
+    }
+
+    private Set<Path> walk(Path rootDir, DirectoryIndex index) {
+        try (Stream<ScannedFile> stream = ParallelDirectoryWalker.walk(rootDir, 4, this::isMarkdown, index)) {
+            return stream.map(ScannedFile::getPath).collect(Collectors.toSet());
+        }
+    }
+
+    private boolean isMarkdown(ScannedFile file) {
+        return file.getPath().getFileName().toString().endsWith(".md");
+    }
+
+    private static void setOld(Path... dirs) throws IOException {
+        for (Path dir : dirs) {
+            Files.setLastModifiedTime(dir, OLD);
+        }
+    }
+
+    private static Map<Path, ScannedDirectory> getVisited(DirectoryIndex index) {
+        return index.getVisitedDirectories().stream()
+                .collect(Collectors.toMap(ScannedDirectory::getDirPath, Function.identity()));
+    }
+}
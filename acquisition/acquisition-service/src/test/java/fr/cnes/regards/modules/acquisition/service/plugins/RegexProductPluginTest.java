@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017-2020 CNES - CENTRE NATIONAL d'ETUDES SPATIALES
+ *
+ * This file is part of REGARDS.
+ *
+ * REGARDS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * REGARDS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with REGARDS. If not, see <http://www.gnu.org/licenses/>.
+ */
+package fr.cnes.regards.modules.acquisition.service.plugins;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.cnes.regards.framework.module.rest.exception.ModuleException;
+import fr.cnes.regards.framework.modules.plugins.domain.PluginConfiguration;
+import fr.cnes.regards.framework.modules.plugins.domain.parameter.IPluginParam;
+import fr.cnes.regards.framework.utils.plugins.PluginUtils;
+import fr.cnes.regards.framework.utils.plugins.exception.NotAvailablePluginConfigurationException;
+import fr.cnes.regards.modules.acquisition.plugins.IProductPlugin;
+
+/**
+ * Test regular expression product plugin
+ *
+ * @author REGARDS Team
+ */
+public class RegexProductPluginTest {
+
+    @Before
+    public void setup() {
+        PluginUtils.setup();
+    }
+
+    @Test
+    public void testProductName() throws ModuleException, NotAvailablePluginConfigurationException {
+        PluginConfiguration pluginConf = PluginConfiguration
+                .build(RegexProductPlugin.class, null,
+                       IPluginParam.set(IPluginParam.build(RegexProductPlugin.FIELD_PATTERN,
+                                                           "(?<mission>S1[AB])_(\\d{8})T\\d{6}_(?<orbit>\\d{6})_.*"),
+                                        IPluginParam.build(RegexProductPlugin.FIELD_TEMPLATE,
+                                                           "{mission}_{2}_{orbit}")));
+        IProductPlugin plugin = PluginUtils.getPlugin(pluginConf, new HashMap<String, Object>());
+        Assert.assertNotNull(plugin);
+
+        Assert.assertEquals("S1A_20200131_012345",
+                            plugin.getProductName(Paths.get("/data", "S1A_20200131T120000_012345_DATA.nc")));
+        // Same stem, from cache
+        Assert.assertEquals("S1A_20200131_012345",
+                            plugin.getProductName(Paths.get("/other", "S1A_20200131T120000_012345_DATA.xml")));
+        Assert.assertEquals("S1B_20200201_000001",
+                            plugin.getProductName(Paths.get("/data", "S1B_20200201T000000_000001_DATA.nc")));
+
+        try {
+            plugin.getProductName(Paths.get("/data", "unknown.nc"));
+            Assert.fail("File name should not match");
+        } catch (ModuleException e) {
+            // Expected
+        }
+    }
+}